@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.internal.data.ExamStatus;
+import jenkins.internal.data.TestConfiguration;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous variant of {@link ClientRequest}.
+ * <p>
+ * The requests are executed on a shared thread pool and the results are returned as {@link CompletableFuture}.
+ * Between two status polls no thread is used, so many EXAM testruns can be observed without holding an executor
+ * thread for each of them. The polls are timed by a single scheduler thread, the pool grows with the requests
+ * running at the same time up to {@link #MAX_THREADS} and shrinks when it is idle. Every request times out, see
+ * {@link ExamHttpTransport#READ_TIMEOUT}, so a hung EXAM holds a thread only until its request times out.
+ */
+public class AsyncClientRequest {
+
+    /** maximum number of requests running at the same time, further requests wait */
+    static final int MAX_THREADS = 32;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new NamingThreadFactory(new DaemonThreadFactory(),
+            "EXAM REST API"));
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+            new NamingThreadFactory(new DaemonThreadFactory(), "EXAM REST API scheduler"));
+
+    private final ClientRequest clientRequest;
+
+    public AsyncClientRequest(ClientRequest clientRequest) {
+        this.clientRequest = clientRequest;
+    }
+
+    public ClientRequest getClientRequest() {
+        return clientRequest;
+    }
+
+    /**
+     * @see ClientRequest#startTestrun(TestConfiguration)
+     */
+    public CompletableFuture<Void> startTestrunAsync(TestConfiguration testConfig) {
+        return CompletableFuture.runAsync(() -> clientRequest.startTestrun(testConfig), EXECUTOR);
+    }
+
+    /**
+     * @see ClientRequest#convert(String)
+     */
+    public CompletableFuture<Void> convertAsync(String reportProject) {
+        return CompletableFuture.runAsync(() -> clientRequest.convert(reportProject), EXECUTOR);
+    }
+
+    /**
+     * @see ClientRequest#clearWorkspace(String)
+     */
+    public CompletableFuture<Void> clearWorkspaceAsync(String projectName) {
+        return CompletableFuture.runAsync(() -> clientRequest.clearWorkspace(projectName), EXECUTOR);
+    }
+
+    /**
+     * Polls the testrun status until the testrun ends, like {@link ClientRequest#waitForTestrunEnds}.
+     * <p>
+     * Every status is passed to the consumer. The returned future completes with the last status when the testrun
+     * has ended or no testrun was detected. Cancelling the future stops polling, the testrun is not stopped.
+     *
+     * @param scheduler scheduler for the status polls
+     * @param consumer  receives every polled status, may be null
+     * @return future of the last status
+     */
+    public CompletableFuture<ExamStatus> statusStream(PollingScheduler scheduler, Consumer<ExamStatus> consumer) {
+        return statusStream(scheduler, consumer, System.currentTimeMillis());
+    }
+
+    /**
+     * Polls the testrun status like {@link #statusStream(PollingScheduler, Consumer)} for a testrun started at the
+     * given time, e.g. to continue observing a testrun after a restart of Jenkins.
+     *
+     * @param scheduler scheduler for the status polls
+     * @param consumer  receives every polled status, may be null
+     * @param startTime start time of the testrun in ms
+     * @return future of the last status
+     */
+    public CompletableFuture<ExamStatus> statusStream(PollingScheduler scheduler, Consumer<ExamStatus> consumer,
+                                                      long startTime) {
+        CompletableFuture<ExamStatus> result = new CompletableFuture<>();
+        EXECUTOR.execute(() -> pollStatus(result, scheduler, consumer, startTime, false));
+        return result;
+    }
+
+    private void pollStatus(CompletableFuture<ExamStatus> result, PollingScheduler scheduler,
+                            Consumer<ExamStatus> consumer, long startTime, boolean testDetected) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            ExamStatus status = clientRequest.getStatus();
+            if (status == null) {
+                result.completeExceptionally(new IllegalStateException("no EXAM connected"));
+                return;
+            }
+            if (consumer != null) {
+                consumer.accept(status);
+            }
+            long elapsed = System.currentTimeMillis() - startTime;
+            boolean detected = testDetected;
+            if (!detected) {
+                detected = "TestRun".equalsIgnoreCase(status.getJobName());
+                if (!detected && elapsed >= scheduler.getDetectTimeout()) {
+                    clientRequest.getLogger().println("No Testrun detected");
+                    result.complete(status);
+                    return;
+                }
+            } else if (!status.getJobRunning()) {
+                result.complete(status);
+                return;
+            }
+            final boolean nextDetected = detected;
+            SCHEDULER.schedule(() -> EXECUTOR.execute(
+                    () -> pollStatus(result, scheduler, consumer, startTime, nextDetected)),
+                    scheduler.nextDelay(elapsed), TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
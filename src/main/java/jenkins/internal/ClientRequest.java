@@ -32,11 +32,9 @@ package jenkins.internal;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
-import com.sun.jersey.api.client.config.ClientConfig;
-import com.sun.jersey.api.client.config.DefaultClientConfig;
-import com.sun.jersey.api.json.JSONConfiguration;
 import hudson.AbortException;
 import hudson.Launcher;
+import hudson.Proc;
 import hudson.model.BuildListener;
 import hudson.model.Executor;
 import jenkins.internal.data.*;
@@ -45,6 +43,7 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.PrintStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class ClientRequest {
 
@@ -52,6 +51,7 @@ public class ClientRequest {
     private PrintStream logger;
     private Client client = null;
     private Launcher launcher = null;
+    private ReadinessProbe readinessProbe = new ReadinessProbe();
 
     private final static int OK = Response.ok().build().getStatus();
 
@@ -81,13 +81,24 @@ public class ClientRequest {
         this.launcher = launcher;
     }
 
+    public void setReadinessProbe(ReadinessProbe readinessProbe) {
+        this.readinessProbe = readinessProbe;
+    }
+
+    private ExamHttpTransport transport() {
+        return ExamHttpTransport.forBaseUrl(baseUrl);
+    }
+
     public ExamStatus getStatus() {
         if(client == null){
             logger.println("WARNING: no EXAM connected");
             return null;
         }
+        return requestStatus();
+    }
 
-        WebResource service = client.resource(baseUrl + "/testrun/status");
+    private ExamStatus requestStatus() {
+        WebResource service = transport().resource("/testrun/status");
         ClientResponse response = service.accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
                 .get(ClientResponse.class);
 
@@ -101,7 +112,7 @@ public class ClientRequest {
             logger.println("WARNING: no EXAM connected");
             return null;
         }
-        WebResource service = client.resource(baseUrl + "/workspace/apiVersion");
+        WebResource service = transport().resource("/workspace/apiVersion");
         ClientResponse response = service.accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
                 .get(ClientResponse.class);
 
@@ -111,22 +122,12 @@ public class ClientRequest {
     }
 
     public boolean isApiAvailable(){
-        boolean clientCreated = false;
-        boolean isAvailable = true;
-        if(client == null){
-            clientCreated = true;
-            createClient();
-        }
         try {
-            getStatus();
+            requestStatus();
         }catch (Exception e){
-            isAvailable = false;
+            return false;
         }
-
-        if(clientCreated){
-            destroyClient();
-        }
-        return isAvailable;
+        return true;
     }
 
     public void setTestrunFilter(FilterConfiguration filterConfig) {
@@ -144,12 +145,13 @@ public class ClientRequest {
             logger.println(i + ") activ: " + filter.isActivateTestcases());
             logger.println();
         }
-        WebResource service = client.resource(baseUrl + "/testrun/setFilter");
+        WebResource service = transport().resource("/testrun/setFilter");
 
         ClientResponse response = service.accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
                 .post(ClientResponse.class, filterConfig);
 
         handleResponseError(response);
+        response.close();
     }
 
     public void convert(String reportProject)  {
@@ -158,12 +160,14 @@ public class ClientRequest {
             return;
         }
         logger.println("convert to junit");
-        WebResource service = client.resource(baseUrl + "/testrun/convertToJunit/"+reportProject);
+        WebResource service = transport().resource("/testrun/convertToJunit", ExamHttpTransport.LONG_READ_TIMEOUT)
+                .path(reportProject);
 
         ClientResponse response = service.accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
                 .get(ClientResponse.class);
 
         handleResponseError(response);
+        response.close();
     }
 
     public void startTestrun(TestConfiguration testConfig) {
@@ -172,12 +176,13 @@ public class ClientRequest {
             return;
         }
         logger.println("starting testrun");
-        WebResource service = client.resource(baseUrl + "/testrun/start");
+        WebResource service = transport().resource("/testrun/start");
 
         ClientResponse response = service.accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
                 .post(ClientResponse.class, testConfig);
 
         handleResponseError(response);
+        response.close();
     }
 
     private void handleResponseError(ClientResponse response) {
@@ -202,12 +207,15 @@ public class ClientRequest {
             return;
         }
         logger.println("stopping testrun");
-        WebResource service = client.resource(baseUrl + "/testrun/stop?timeout=300");
+        // EXAM answers after the testrun has stopped, at most after 300s
+        WebResource service = transport().resource("/testrun/stop", ExamHttpTransport.LONG_READ_TIMEOUT)
+                .queryParam("timeout", "300");
 
         ClientResponse response = service.accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
                                          .post(ClientResponse.class);
 
         handleResponseError(response);
+        response.close();
     }
 
     public void clearWorkspace(String projectName) {
@@ -215,18 +223,18 @@ public class ClientRequest {
             logger.println("WARNING: no EXAM connected");
             return;
         }
-        WebResource service = null;
+        WebResource service = transport().resource("/workspace/delete", ExamHttpTransport.LONG_READ_TIMEOUT);
         if (projectName == null || projectName.isEmpty()) {
             logger.println("deleting all projects and pcode from EXAM workspace");
-            service = client.resource(baseUrl + "/workspace/delete");
         } else {
             logger.println("deleting project and pcode for project \"" + projectName + "\" from EXAM workspace");
-            service = client.resource(baseUrl + "/workspace/delete?projectName=" + projectName);
+            service = service.queryParam("projectName", projectName);
         }
 
         ClientResponse response = service.get(ClientResponse.class);
 
         handleResponseError(response);
+        response.close();
     }
 
     public void shutdown() {
@@ -235,38 +243,61 @@ public class ClientRequest {
             return;
         }
         logger.println("closing EXAM");
-        client.resource(baseUrl + "/workspace/shutdown");
+        transport().resource("/workspace/shutdown");
 
     }
 
     public boolean connectClient(int timeout) {
+        return connectClient(timeout, null);
+    }
+
+    /**
+     * Connects to EXAM and waits until the REST API answers.
+     *
+     * @param timeout maximum time to wait in ms
+     * @param process the launched EXAM process, waiting stops if it exits. May be null.
+     * @return true if EXAM is connected
+     */
+    public boolean connectClient(int timeout, final Proc process) {
         logger.println("connecting to EXAM");
         createClient();
 
-        long timeoutTime = System.currentTimeMillis() + timeout;
-        while (timeoutTime > System.currentTimeMillis()){
-            if(isApiAvailable()){
+        ReadinessProbe.Condition processExited = null;
+        if (process != null) {
+            processExited = () -> !process.isAlive();
+        }
+        ReadinessProbe.Result result;
+        try {
+            result = readinessProbe.await(this::isApiAvailable, processExited, timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.println("ERROR: connecting to EXAM interrupted");
+            return false;
+        }
+        switch (result) {
+            case READY:
                 return true;
-            }
+            case ABORTED:
+                logger.println("ERROR: EXAM process terminated before the REST API was available");
+                return false;
+            default:
+                logger.println("ERROR: EXAM does not answer in " + timeout / 1000 + "s");
+                return false;
         }
-        logger.println("ERROR: EXAM does not answer in " + timeout / 1000 + "s");
-        return false;
     }
 
     private void createClient(){
         if (client == null) {
-            ClientConfig clientConfig = new DefaultClientConfig();
-            clientConfig.getFeatures().put(JSONConfiguration.FEATURE_POJO_MAPPING, Boolean.TRUE);
-            client = Client.create(clientConfig);
+            client = ExamHttpTransport.getClient();
         } else {
             logger.println("Client already connected");
         }
     }
 
+    /**
+     * Releases the connection to EXAM. The shared client of {@link ExamHttpTransport} is kept for the next build.
+     */
     private void destroyClient(){
-        if(client != null) {
-            client.destroy();
-        }
         client = null;
     }
 
@@ -277,20 +308,20 @@ public class ClientRequest {
         } else {
             logger.println("disconnect from EXAM");
 
-            WebResource service = client.resource(baseUrl + "/workspace/shutdown");
+            WebResource service = transport().resource("/workspace/shutdown");
             try {
                 ClientResponse responseShutdown = service.get(ClientResponse.class);
+                responseShutdown.close();
             }catch (Exception e){
                 logger.println(e.getMessage());
             }
 
-            long timeoutTime = System.currentTimeMillis() + timeout;
             boolean shutdownOK = false;
-            while (timeoutTime > System.currentTimeMillis()){
-                if(!isApiAvailable()){
-                    shutdownOK = true;
-                    break;
-                }
+            try {
+                shutdownOK = readinessProbe.await(() -> !isApiAvailable(), null, timeout)
+                        == ReadinessProbe.Result.READY;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
             if (!shutdownOK) {
                 logger.println("ERROR: EXAM does not shutdown in " + timeout + "ms");
@@ -301,18 +332,43 @@ public class ClientRequest {
     }
 
     public void waitForTestrunEnds(Executor executor){
+        waitForTestrunEnds(executor, new PollingScheduler());
+    }
+
+    /**
+     * Polls the testrun status until the testrun ends. The delay between two polls is taken from the scheduler.
+     * If the executor is interrupted, the testrun is stopped.
+     *
+     * @param executor  executor of the build
+     * @param scheduler scheduler for the status polls
+     */
+    public void waitForTestrunEnds(Executor executor, PollingScheduler scheduler){
+        waitForTestrunEnds(executor, scheduler, null);
+    }
+
+    /**
+     * Polls the testrun status like {@link #waitForTestrunEnds(Executor, PollingScheduler)}.
+     *
+     * @param executor  executor of the build
+     * @param scheduler scheduler for the status polls
+     * @param consumer  receives every polled status, may be null
+     */
+    public void waitForTestrunEnds(Executor executor, PollingScheduler scheduler, Consumer<ExamStatus> consumer){
         boolean testDetected = false;
-        int breakAfter = 10;
+        long startTime = scheduler.currentTimeMillis();
         while(true){
-            if(executor.isInterrupted()){
+            if(Thread.currentThread().isInterrupted() || executor != null && executor.isInterrupted()){
                 this.stopTestrun();
                 return;
             }
             ExamStatus status = this.getStatus();
+            if (consumer != null) {
+                consumer.accept(status);
+            }
+            long elapsed = scheduler.currentTimeMillis() - startTime;
             if(!testDetected) {
-                breakAfter--;
                 testDetected = "TestRun".equalsIgnoreCase(status.getJobName());
-                if(!testDetected && breakAfter <= 0){
+                if(!testDetected && elapsed >= scheduler.getDetectTimeout()){
                     logger.println("No Testrun detected");
                     break;
                 }
@@ -322,9 +378,12 @@ public class ClientRequest {
                 }
             }
             try {
-                Thread.sleep(5000);
+                scheduler.sleep(scheduler.nextDelay(elapsed));
             } catch (InterruptedException e) {
-                // nothing to do
+                // the executor was interrupted while waiting
+                this.stopTestrun();
+                Thread.currentThread().interrupt();
+                return;
             }
         }
     }
@@ -42,6 +42,12 @@ public class DbFactory {
 
     private final static int OK = Response.ok().build().getStatus();
 
+    /** connect timeout of the model connection test in ms */
+    public static final int CONNECT_TIMEOUT = 10 * 1000;
+
+    /** read timeout of the model connection test in ms */
+    public static final int READ_TIMEOUT = 20 * 1000;
+
     private static SOAPMessage getSoapMessage(String modelName, int examVersion) throws SOAPException {
         MessageFactory messageFactory = MessageFactory.newInstance();
         SOAPMessage message = messageFactory.createMessage();
@@ -66,6 +72,8 @@ public class DbFactory {
         ClientConfig clientConfig = new DefaultClientConfig();
         clientConfig.getClasses().add(SoapProvider.class);
         Client client = Client.create(clientConfig);
+        client.setConnectTimeout(CONNECT_TIMEOUT);
+        client.setReadTimeout(READ_TIMEOUT);
 
         SOAPMessage message = getSoapMessage(modelName, examVersion);
 
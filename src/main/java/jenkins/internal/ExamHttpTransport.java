@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.json.JSONConfiguration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared HTTP transport to the EXAM REST API.
+ * <p>
+ * One Jersey {@link Client} is created per JVM and reused by every {@link ClientRequest}. The client uses the
+ * {@link java.net.HttpURLConnection} handler, so connections to the same EXAM instance are kept alive and pooled
+ * by the JDK keep-alive cache (see the {@code http.keepAlive} and {@code http.maxConnections} system properties).
+ * For every base url (one per agent and port) the {@link WebResource} objects of the fixed endpoints are cached,
+ * parameters like a project name are added to the cached resource with {@link WebResource#path(String)} or
+ * {@link WebResource#queryParam(String, String)}. The transports of the last {@link #MAX_TRANSPORTS} base urls are
+ * kept.
+ * <p>
+ * Every request times out after {@link #READ_TIMEOUT}, so a hung EXAM does not block the calling thread forever.
+ * Endpoints on which EXAM works before it answers, like the conversion of the reports, get a longer read timeout.
+ */
+public class ExamHttpTransport {
+
+    /** connect timeout for all requests in ms */
+    static final int CONNECT_TIMEOUT = 10 * 1000;
+
+    /** read timeout of the requests in ms */
+    public static final int READ_TIMEOUT = 60 * 1000;
+
+    /** read timeout in ms of the requests which wait for EXAM, e.g. the conversion of the reports */
+    public static final int LONG_READ_TIMEOUT = 15 * 60 * 1000;
+
+    /** number of base urls whose transports are kept */
+    static final int MAX_TRANSPORTS = 64;
+
+    private static volatile Client sharedClient = null;
+    private static final Map<String, ExamHttpTransport> TRANSPORTS =
+            new LinkedHashMap<String, ExamHttpTransport>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ExamHttpTransport> eldest) {
+                    return size() > MAX_TRANSPORTS;
+                }
+            };
+
+    private final String baseUrl;
+    private final ConcurrentMap<String, WebResource> resources = new ConcurrentHashMap<>();
+
+    private ExamHttpTransport(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * Gets the transport for the given EXAM base url, e.g. "http://192.168.0.1:8085/examRest".
+     *
+     * @param baseUrl base url of the EXAM REST API
+     * @return the shared transport for this url
+     */
+    public static ExamHttpTransport forBaseUrl(String baseUrl) {
+        synchronized (TRANSPORTS) {
+            ExamHttpTransport transport = TRANSPORTS.get(baseUrl);
+            if (transport == null) {
+                transport = new ExamHttpTransport(baseUrl);
+                TRANSPORTS.put(baseUrl, transport);
+            }
+            return transport;
+        }
+    }
+
+    /**
+     * Gets the JVM wide Jersey client, the client is created on first use.
+     *
+     * @return the shared client
+     */
+    public static Client getClient() {
+        Client client = sharedClient;
+        if (client == null) {
+            synchronized (ExamHttpTransport.class) {
+                client = sharedClient;
+                if (client == null) {
+                    ClientConfig clientConfig = new DefaultClientConfig();
+                    clientConfig.getFeatures().put(JSONConfiguration.FEATURE_POJO_MAPPING, Boolean.TRUE);
+                    client = Client.create(clientConfig);
+                    client.setConnectTimeout(CONNECT_TIMEOUT);
+                    client.setReadTimeout(READ_TIMEOUT);
+                    sharedClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Drops the cached resources of all EXAM instances. The shared client stays alive.
+     */
+    public static void clearResources() {
+        synchronized (TRANSPORTS) {
+            TRANSPORTS.clear();
+        }
+    }
+
+    /**
+     * @return number of base urls with a cached transport
+     */
+    static int getTransportCount() {
+        synchronized (TRANSPORTS) {
+            return TRANSPORTS.size();
+        }
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Gets the cached {@link WebResource} for a fixed endpoint path like "/testrun/status".
+     *
+     * @param path endpoint path relative to the base url, without parameters
+     * @return the cached web resource
+     */
+    public WebResource resource(String path) {
+        return resource(path, READ_TIMEOUT);
+    }
+
+    /**
+     * Gets the cached {@link WebResource} for a fixed endpoint path with its own read timeout. The timeout is set
+     * when the resource is created, an endpoint must always be requested with the same timeout.
+     *
+     * @param path        endpoint path relative to the base url, without parameters
+     * @param readTimeout read timeout in ms
+     * @return the cached web resource
+     */
+    public WebResource resource(String path, int readTimeout) {
+        WebResource resource = resources.get(path);
+        if (resource == null) {
+            resource = getClient().resource(baseUrl + path);
+            if (readTimeout != READ_TIMEOUT) {
+                resource.setProperty(ClientConfig.PROPERTY_READ_TIMEOUT, readTimeout);
+            }
+            WebResource existing = resources.putIfAbsent(path, resource);
+            if (existing != null) {
+                resource = existing;
+            }
+        }
+        return resource;
+    }
+}
@@ -0,0 +1,496 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only index of the test case results of all builds of a job, stored in the directory of the job.
+ * <p>
+ * The results are stored in columns: the test id, the build number, the verdict and the duration of every result
+ * are appended to their own file. The test ids are numbers, their names are stored in a dictionary. Queries read
+ * only the columns they need, so they do not parse old junit reports. No file stays open or mapped between
+ * queries, so the job can be deleted or renamed at any time.
+ * <p>
+ * The results of a matrix session are stored with the system configuration in the test id, see
+ * {@link #getTestId(String, String)}, so the results of the same test case on different systems do not mix.
+ */
+public class ExamResultIndex {
+
+    /** name of the index directory in the directory of the job */
+    public static final String DIRECTORY = "exam-results";
+
+    private static final String NAMES = "names.txt";
+    private static final String TEST_COLUMN = "test.col";
+    private static final String BUILD_COLUMN = "build.col";
+    private static final String VERDICT_COLUMN = "verdict.col";
+    private static final String DURATION_COLUMN = "duration.col";
+
+    /** separates the system configuration from the name of the test case in the test id */
+    public static final char CONFIGURATION_SEPARATOR = '|';
+
+    private static final Map<File, ExamResultIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final File dir;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private int rows = -1;
+
+    ExamResultIndex(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param jobDir root directory of the job
+     * @return the index of the job
+     */
+    public static ExamResultIndex forJob(File jobDir) {
+        return INDEXES.computeIfAbsent(new File(jobDir, DIRECTORY), ExamResultIndex::new);
+    }
+
+    /**
+     * Forgets the indexes of the job directory and of all directories below it.
+     *
+     * @param rootDir root directory of a job or folder
+     */
+    static void evict(File rootDir) {
+        String prefix = rootDir.getAbsolutePath() + File.separator;
+        INDEXES.keySet().removeIf(dir -> dir.getAbsolutePath().startsWith(prefix));
+    }
+
+    /**
+     * Forgets the indexes whose job directory does not exist anymore.
+     */
+    static void evictMissing() {
+        INDEXES.keySet().removeIf(dir -> !dir.getParentFile().isDirectory());
+    }
+
+    /**
+     * @return number of indexes in memory
+     */
+    static int getIndexCount() {
+        return INDEXES.size();
+    }
+
+    /**
+     * @param systemConfiguration system configuration of a matrix session, null for other sessions
+     * @param name                name of the test case in the junit report
+     * @return the id of the test case in the index
+     */
+    public static String getTestId(String systemConfiguration, String name) {
+        if (systemConfiguration == null) {
+            return name;
+        }
+        return systemConfiguration.replace(CONFIGURATION_SEPARATOR, '_') + CONFIGURATION_SEPARATOR + name;
+    }
+
+    /**
+     * @param testId              id of the test case in the index
+     * @param systemConfiguration system configuration of a matrix session, null for other sessions
+     * @return the name of the test case, null if the test id belongs to another system configuration
+     */
+    static String getName(String testId, String systemConfiguration) {
+        int separator = testId.indexOf(CONFIGURATION_SEPARATOR);
+        if (systemConfiguration == null) {
+            return separator < 0 ? testId : null;
+        }
+        String prefix = getTestId(systemConfiguration, "");
+        return testId.startsWith(prefix) ? testId.substring(prefix.length()) : null;
+    }
+
+    /**
+     * One result of a test case.
+     */
+    public static class Entry {
+        private final int build;
+        private final byte verdict;
+        private final int duration;
+
+        Entry(int build, byte verdict, int duration) {
+            this.build = build;
+            this.verdict = verdict;
+            this.duration = duration;
+        }
+
+        public int getBuild() {
+            return build;
+        }
+
+        /**
+         * @return one of the verdicts of {@link ReportSummary}
+         */
+        public byte getVerdict() {
+            return verdict;
+        }
+
+        /**
+         * @return duration in ms
+         */
+        public int getDuration() {
+            return duration;
+        }
+    }
+
+    /**
+     * Appends the results of a build.
+     *
+     * @param build   number of the build
+     * @param results the results of the build
+     */
+    public void append(int build, ReportSummary.TestResults results) throws IOException {
+        append(build, null, results);
+    }
+
+    /**
+     * Appends the results of a session of a build.
+     *
+     * @param build               number of the build
+     * @param systemConfiguration system configuration of a matrix session, null for other sessions
+     * @param results             the results of the session
+     */
+    public synchronized void append(int build, String systemConfiguration, ReportSummary.TestResults results)
+            throws IOException {
+        open();
+        int count = results.size();
+        if (count == 0) {
+            return;
+        }
+        ByteBuffer test = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer builds = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer verdicts = ByteBuffer.allocate(count);
+        ByteBuffer durations = ByteBuffer.allocate(count * 4).order(ByteOrder.LITTLE_ENDIAN);
+        try (Writer names = Files.newBufferedWriter(new File(dir, NAMES).toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (int i = 0; i < count; i++) {
+                test.putInt(idOf(getTestId(systemConfiguration, results.getName(i)), names));
+                builds.putInt(build);
+                verdicts.put(results.getVerdict(i));
+                durations.putInt(results.getDuration(i));
+            }
+        }
+        write(TEST_COLUMN, test, 4);
+        write(BUILD_COLUMN, builds, 4);
+        write(VERDICT_COLUMN, verdicts, 1);
+        write(DURATION_COLUMN, durations, 4);
+        rows += count;
+    }
+
+    /**
+     * @return number of results in the index
+     */
+    public synchronized int getRowCount() throws IOException {
+        open();
+        return rows;
+    }
+
+    /**
+     * @return the ids of all test cases in the index
+     */
+    public synchronized List<String> getTestIds() throws IOException {
+        open();
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * @param testId id of the test case
+     * @param limit  maximum number of results
+     * @return the last results of the test case, the newest first
+     */
+    public synchronized List<Entry> getHistory(String testId, int limit) throws IOException {
+        open();
+        Integer id = ids.get(testId);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+        ByteBuffer testColumn = read(TEST_COLUMN, 4);
+        ByteBuffer buildColumn = read(BUILD_COLUMN, 4);
+        ByteBuffer verdictColumn = read(VERDICT_COLUMN, 1);
+        ByteBuffer durationColumn = read(DURATION_COLUMN, 4);
+        List<Entry> history = new ArrayList<>();
+        for (int row = rows - 1; row >= 0 && history.size() < limit; row--) {
+            if (testColumn.getInt(row * 4) == id) {
+                history.add(new Entry(buildColumn.getInt(row * 4), verdictColumn.get(row),
+                        durationColumn.getInt(row * 4)));
+            }
+        }
+        return history;
+    }
+
+    /**
+     * @param testId id of the test case
+     * @param limit  number of results considered
+     * @return the share of verdict changes between passed and failed in the last results, from 0 to 1
+     */
+    public double getFlakiness(String testId, int limit) throws IOException {
+        byte last = -1;
+        int runs = 0;
+        int flips = 0;
+        for (Entry entry : getHistory(testId, limit)) {
+            byte verdict = entry.getVerdict();
+            if (verdict == ReportSummary.SKIPPED) {
+                continue;
+            }
+            boolean passed = verdict == ReportSummary.PASSED;
+            if (last >= 0 && passed != (last == ReportSummary.PASSED)) {
+                flips++;
+            }
+            last = verdict;
+            runs++;
+        }
+        return runs < 2 ? 0 : (double) flips / (runs - 1);
+    }
+
+    /**
+     * Averages the durations of the last results of every test case in a single scan of the index.
+     *
+     * @param limit number of results averaged per test case
+     * @return the average duration in ms per test id
+     */
+    public Map<String, Long> getAverageDurations(int limit) throws IOException {
+        return getAverageDurations(limit, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Averages the durations like {@link #getAverageDurations(int)}, but only of the builds before the given build.
+     * Results added by the build itself or by later builds do not change the averages.
+     *
+     * @param limit       number of results averaged per test case
+     * @param beforeBuild number of the first build not considered
+     * @return the average duration in ms per test id
+     */
+    public Map<String, Long> getAverageDurations(int limit, int beforeBuild) throws IOException {
+        return getAverageDurations(limit, beforeBuild, null);
+    }
+
+    /**
+     * Averages the durations like {@link #getAverageDurations(int, int)}, but only of the test cases of one system
+     * configuration.
+     *
+     * @param limit               number of results averaged per test case
+     * @param beforeBuild         number of the first build not considered
+     * @param systemConfiguration system configuration of a matrix session, null for other sessions
+     * @return the average duration in ms per name of the test case
+     */
+    public synchronized Map<String, Long> getAverageDurations(int limit, int beforeBuild, String systemConfiguration)
+            throws IOException {
+        open();
+        String[] scope = getNames(systemConfiguration);
+        ByteBuffer testColumn = read(TEST_COLUMN, 4);
+        ByteBuffer buildColumn = read(BUILD_COLUMN, 4);
+        ByteBuffer verdictColumn = read(VERDICT_COLUMN, 1);
+        ByteBuffer durationColumn = read(DURATION_COLUMN, 4);
+        long[] sums = new long[names.size()];
+        int[] counts = new int[names.size()];
+        for (int row = rows - 1; row >= 0; row--) {
+            int id = testColumn.getInt(row * 4);
+            if (id < counts.length && scope[id] != null && counts[id] < limit
+                    && verdictColumn.get(row) != ReportSummary.SKIPPED
+                    && buildColumn.getInt(row * 4) < beforeBuild) {
+                sums[id] += durationColumn.getInt(row * 4);
+                counts[id]++;
+            }
+        }
+        Map<String, Long> averages = new HashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                averages.put(scope[id], sums[id] / counts[id]);
+            }
+        }
+        return averages;
+    }
+
+    /**
+     * Collects the verdicts of the last results of every test case in a single scan of the index.
+     *
+     * @param limit number of results per test case
+     * @return the verdicts per test id, the newest first, in the order of {@link #getTestIds()}
+     */
+    public Map<String, byte[]> getVerdictHistories(int limit) throws IOException {
+        return getVerdictHistories(limit, null);
+    }
+
+    /**
+     * Collects the verdicts like {@link #getVerdictHistories(int)}, but only of the test cases of one system
+     * configuration.
+     *
+     * @param limit               number of results per test case
+     * @param systemConfiguration system configuration of a matrix session, null for other sessions
+     * @return the verdicts per name of the test case, the newest first
+     */
+    public synchronized Map<String, byte[]> getVerdictHistories(int limit, String systemConfiguration)
+            throws IOException {
+        open();
+        String[] scope = getNames(systemConfiguration);
+        ByteBuffer testColumn = read(TEST_COLUMN, 4);
+        ByteBuffer verdictColumn = read(VERDICT_COLUMN, 1);
+        byte[][] verdicts = new byte[names.size()][];
+        int[] counts = new int[names.size()];
+        for (int row = rows - 1; row >= 0; row--) {
+            int id = testColumn.getInt(row * 4);
+            if (id < counts.length && scope[id] != null && counts[id] < limit) {
+                if (verdicts[id] == null) {
+                    verdicts[id] = new byte[limit];
+                }
+                verdicts[id][counts[id]++] = verdictColumn.get(row);
+            }
+        }
+        Map<String, byte[]> histories = new LinkedHashMap<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0) {
+                histories.put(scope[id], Arrays.copyOf(verdicts[id], counts[id]));
+            }
+        }
+        return histories;
+    }
+
+    /**
+     * @return the names of the test cases of the system configuration by id, null for the other test cases
+     */
+    private String[] getNames(String systemConfiguration) {
+        String[] scope = new String[names.size()];
+        for (int id = 0; id < scope.length; id++) {
+            scope[id] = getName(names.get(id), systemConfiguration);
+        }
+        return scope;
+    }
+
+    private int idOf(String name, Writer namesFile) throws IOException {
+        String key = name == null ? "" : name.replace('\n', ' ');
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = names.size();
+            namesFile.write(key);
+            namesFile.write('\n');
+            ids.put(key, id);
+            names.add(key);
+        }
+        return id;
+    }
+
+    /**
+     * Loads the dictionary and the number of complete rows. A row only partially written by an interrupted
+     * append is overwritten by the next append.
+     */
+    private void open() throws IOException {
+        if (rows >= 0) {
+            return;
+        }
+        Files.createDirectories(dir.toPath());
+        File namesFile = new File(dir, NAMES);
+        if (namesFile.isFile()) {
+            try (BufferedReader reader = Files.newBufferedReader(namesFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ids.put(line, names.size());
+                    names.add(line);
+                }
+            }
+        }
+        long complete = Math.min(Math.min(length(TEST_COLUMN) / 4, length(BUILD_COLUMN) / 4),
+                Math.min(length(VERDICT_COLUMN), length(DURATION_COLUMN) / 4));
+        rows = (int) complete;
+    }
+
+    private long length(String column) {
+        return new File(dir, column).length();
+    }
+
+    private void write(String column, ByteBuffer data, int width) throws IOException {
+        data.flip();
+        try (FileChannel channel = FileChannel.open(new File(dir, column).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            long position = (long) rows * width;
+            if (channel.size() > position) {
+                // drop the rest of an interrupted append
+                channel.truncate(position);
+            }
+            while (data.hasRemaining()) {
+                position += channel.write(data, position);
+            }
+        }
+    }
+
+    /**
+     * Reads the complete rows of a column. The file is closed again, so it can be deleted while the job is idle.
+     */
+    private ByteBuffer read(String column, int width) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(rows * width).order(ByteOrder.LITTLE_ENDIAN);
+        File file = new File(dir, column);
+        if (!file.isFile()) {
+            return buffer;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+                // read until the complete rows are in the buffer
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Forgets the index of a deleted or renamed job, the index of a renamed job is loaded again from its new
+     * directory.
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+
+        @Override
+        public void onDeleted(Item item) {
+            evict(item.getRootDir());
+        }
+
+        @Override
+        public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+            evictMissing();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import java.io.Serializable;
+
+/**
+ * Calculates the delay between two polls of the EXAM testrun status.
+ * <p>
+ * The status is polled fast at the start of the testrun and near its expected end, and slow in the middle of a
+ * long testrun. The delay is a tenth of the distance to the start or the expected end, bounded by the fast and the
+ * slow interval. If the expected duration is unknown, the delay only grows with the elapsed time.
+ * <p>
+ * The time and the waiting between two polls are taken from the {@link Clock} and the {@link Sleeper}, tests
+ * replace them to poll without waiting.
+ */
+public class PollingScheduler implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Source of the current time.
+     */
+    public interface Clock {
+        /**
+         * @return current time in ms
+         */
+        long millis();
+    }
+
+    /**
+     * Waits between two polls.
+     */
+    public interface Sleeper {
+        /**
+         * @param millis time to wait in ms
+         * @throws InterruptedException if the thread is interrupted while waiting
+         */
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /** default fast poll interval in seconds */
+    public static final int DEFAULT_FAST_INTERVAL = 1;
+    /** default slow poll interval in seconds */
+    public static final int DEFAULT_SLOW_INTERVAL = 30;
+    /** default time in seconds to wait for EXAM to report a running testrun */
+    public static final int DEFAULT_DETECT_TIMEOUT = 60;
+
+    private static final int RAMP_DIVISOR = 10;
+
+    private final long fastInterval;
+    private final long slowInterval;
+    private final long expectedDuration;
+    private final long detectTimeout;
+    /** not saved with the run state, the system clock is used after a restart */
+    private transient Clock clock;
+    private transient Sleeper sleeper;
+
+    public PollingScheduler() {
+        this(DEFAULT_FAST_INTERVAL * 1000L, DEFAULT_SLOW_INTERVAL * 1000L, -1, DEFAULT_DETECT_TIMEOUT * 1000L);
+    }
+
+    /**
+     * @param fastInterval     shortest delay in ms
+     * @param slowInterval     longest delay in ms
+     * @param expectedDuration expected duration of the testrun in ms, 0 or negative if unknown
+     * @param detectTimeout    time in ms to wait for EXAM to report a running testrun
+     */
+    public PollingScheduler(long fastInterval, long slowInterval, long expectedDuration, long detectTimeout) {
+        if (fastInterval <= 0 || slowInterval < fastInterval) {
+            throw new IllegalArgumentException(
+                    "invalid poll intervals: fast=" + fastInterval + "ms, slow=" + slowInterval + "ms");
+        }
+        this.fastInterval = fastInterval;
+        this.slowInterval = slowInterval;
+        this.expectedDuration = expectedDuration;
+        this.detectTimeout = detectTimeout;
+    }
+
+    public long getFastInterval() {
+        return fastInterval;
+    }
+
+    public long getSlowInterval() {
+        return slowInterval;
+    }
+
+    public long getExpectedDuration() {
+        return expectedDuration;
+    }
+
+    public long getDetectTimeout() {
+        return detectTimeout;
+    }
+
+    /**
+     * @param clock source of the current time, null for the system clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param sleeper waits between two polls, null for {@link Thread#sleep(long)}
+     */
+    public void setSleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * @return current time in ms
+     */
+    public long currentTimeMillis() {
+        return clock == null ? System.currentTimeMillis() : clock.millis();
+    }
+
+    /**
+     * Waits until the next poll.
+     *
+     * @param millis time to wait in ms
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void sleep(long millis) throws InterruptedException {
+        if (sleeper == null) {
+            Thread.sleep(millis);
+        } else {
+            sleeper.sleep(millis);
+        }
+    }
+
+    /**
+     * Gets the delay until the next poll.
+     *
+     * @param elapsed time since the testrun was started in ms
+     * @return delay in ms
+     */
+    public long nextDelay(long elapsed) {
+        long distance = Math.max(0, elapsed);
+        if (expectedDuration > 0) {
+            distance = Math.min(distance, Math.abs(expectedDuration - elapsed));
+        }
+        long delay = distance / RAMP_DIVISOR;
+        return Math.max(fastInterval, Math.min(slowInterval, delay));
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import hudson.Launcher;
+import hudson.util.ProcessTree;
+import jenkins.plugins.exam.ExamTool;
+import jenkins.security.MasterToSlaveCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects everything needed to launch EXAM on a node in a single remote call: the IP address, the EXAM
+ * executable, the configuration, the free REST API ports, the free disk space of the workspace and the running
+ * EXAM processes.
+ * <p>
+ * The tool translation of {@link ExamTool#forNode} needs the node properties of Jenkins and is done on the
+ * controller before the preflight.
+ */
+public class Preflight extends MasterToSlaveCallable<Preflight.Result, IOException> {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logger.getLogger(Preflight.class.getName());
+
+    private static final String PORT_ARGUMENT = "-DRESTAPI_PORT=";
+
+    private final ExamTool examTool;
+    private final String configurationFile;
+    private final String workspace;
+    private final ArrayList<Integer> ports;
+
+    /**
+     * @param examTool          the EXAM installation translated for the node, may be null
+     * @param configurationFile path of the config.ini of EXAM
+     * @param workspace         path of the workspace, may be null
+     * @param ports             REST API ports to check
+     */
+    public Preflight(ExamTool examTool, String configurationFile, String workspace, List<Integer> ports) {
+        this.examTool = examTool;
+        this.configurationFile = configurationFile;
+        this.workspace = workspace;
+        this.ports = new ArrayList<>(ports);
+    }
+
+    /**
+     * Runs the preflight on the node of the launcher.
+     */
+    public Result run(Launcher launcher) throws IOException, InterruptedException {
+        return launcher.getChannel().call(this);
+    }
+
+    @Override
+    public Result call() throws IOException {
+        Result result = new Result();
+        result.ip = InetAddress.getLocalHost().getHostAddress();
+        if (examTool != null) {
+            result.executable = examTool.findExecutable();
+            if (result.executable != null) {
+                result.executableModified = new File(result.executable).lastModified();
+            }
+        }
+        File config = new File(configurationFile);
+        result.configurationFileExists = config.exists() && !config.isDirectory();
+        result.freePorts = Remote.bindablePorts(ports);
+        result.usableSpace = workspace == null ? -1 : new File(workspace).getUsableSpace();
+        result.examProcesses = findExamProcesses();
+        return result;
+    }
+
+    private static ArrayList<ExamProcess> findExamProcesses() {
+        ArrayList<ExamProcess> processes = new ArrayList<>();
+        try {
+            for (ProcessTree.OSProcess process : ProcessTree.get()) {
+                List<String> arguments;
+                try {
+                    arguments = process.getArguments();
+                } catch (RuntimeException e) {
+                    // no access to the process
+                    continue;
+                }
+                if (arguments.isEmpty() || !isExamExecutable(arguments.get(0))) {
+                    continue;
+                }
+                int port = -1;
+                for (String argument : arguments) {
+                    if (argument.startsWith(PORT_ARGUMENT)) {
+                        try {
+                            port = Integer.parseInt(argument.substring(PORT_ARGUMENT.length()).trim());
+                        } catch (NumberFormatException e) {
+                            // unknown port
+                        }
+                    }
+                }
+                processes.add(new ExamProcess(process.getPid(), port));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.FINE, "listing the processes failed", e);
+        }
+        return processes;
+    }
+
+    private static boolean isExamExecutable(String command) {
+        String name = new File(command.replace('"', ' ').trim()).getName();
+        return name.equalsIgnoreCase("EXAM.exe") || name.equalsIgnoreCase("EXAM");
+    }
+
+    /**
+     * Result of the preflight.
+     */
+    public static class Result implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private String ip;
+        private String executable;
+        private long executableModified;
+        private boolean configurationFileExists;
+        private ArrayList<Integer> freePorts = new ArrayList<>();
+        private long usableSpace = -1;
+        private ArrayList<ExamProcess> examProcesses = new ArrayList<>();
+
+        /**
+         * @return the IP address of the node
+         */
+        public String getIp() {
+            return ip;
+        }
+
+        /**
+         * @return the path of the EXAM executable, or null if it does not exist
+         */
+        public String getExecutable() {
+            return executable;
+        }
+
+        /**
+         * @return the modification time of the EXAM executable, to validate cached information
+         */
+        public long getExecutableModified() {
+            return executableModified;
+        }
+
+        public boolean isConfigurationFileExists() {
+            return configurationFileExists;
+        }
+
+        /**
+         * @return the ports which could be bound
+         */
+        public List<Integer> getFreePorts() {
+            return freePorts;
+        }
+
+        /**
+         * @return the usable space of the workspace in bytes, -1 if unknown
+         */
+        public long getUsableSpace() {
+            return usableSpace;
+        }
+
+        /**
+         * @return the EXAM processes running on the node
+         */
+        public List<ExamProcess> getExamProcesses() {
+            return examProcesses;
+        }
+    }
+
+    /**
+     * EXAM process found on the node.
+     */
+    public static class ExamProcess implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int pid;
+        private final int port;
+
+        public ExamProcess(int pid, int port) {
+            this.pid = pid;
+            this.port = port;
+        }
+
+        public int getPid() {
+            return pid;
+        }
+
+        /**
+         * @return the REST API port of the process, -1 if unknown
+         */
+        public int getPort() {
+            return port;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Waits until a condition becomes true, e.g. until the EXAM REST API answers.
+ * <p>
+ * The condition is probed with an exponential backoff with jitter. The time between the start of two probes is
+ * never shorter than the minimum interval, so a condition that fails fast (connection refused) does not flood
+ * the starting EXAM. Waiting stops early if the abort condition becomes true, e.g. if the EXAM process exited.
+ */
+public class ReadinessProbe {
+
+    /**
+     * A condition to probe.
+     */
+    public interface Condition {
+        boolean test() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Result of {@link #await(Condition, Condition, long)}
+     */
+    public enum Result {
+        /** the condition became true */
+        READY,
+        /** the condition did not become true in time */
+        TIMEOUT,
+        /** the abort condition became true */
+        ABORTED
+    }
+
+    /** default delay after the first probe in ms */
+    public static final long DEFAULT_INITIAL_DELAY = 250;
+    /** default upper bound of the delay in ms */
+    public static final long DEFAULT_MAX_DELAY = 5000;
+    /** default minimum time between the start of two probes in ms */
+    public static final long DEFAULT_MIN_INTERVAL = 100;
+
+    private final long initialDelay;
+    private final long maxDelay;
+    private final double multiplier;
+    private final double jitter;
+    private final long minInterval;
+    private final Random random = new Random();
+
+    public ReadinessProbe() {
+        this(DEFAULT_INITIAL_DELAY, DEFAULT_MAX_DELAY, 2.0, 0.2, DEFAULT_MIN_INTERVAL);
+    }
+
+    /**
+     * @param initialDelay delay after the first probe in ms
+     * @param maxDelay     upper bound of the delay in ms
+     * @param multiplier   factor the delay grows by after each probe
+     * @param jitter       relative random variation of each delay, between 0 and 1
+     * @param minInterval  minimum time between the start of two probes in ms (caps the probe rate)
+     */
+    public ReadinessProbe(long initialDelay, long maxDelay, double multiplier, double jitter, long minInterval) {
+        if (initialDelay < 0 || maxDelay < initialDelay || multiplier < 1.0 || jitter < 0.0 || jitter > 1.0
+                || minInterval < 0) {
+            throw new IllegalArgumentException("invalid backoff configuration");
+        }
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.minInterval = minInterval;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    /**
+     * Probes the condition until it is true, the abort condition is true or the timeout is reached.
+     *
+     * @param condition condition to wait for
+     * @param abort     condition to stop waiting early, may be null
+     * @param timeout   timeout in ms
+     * @return the reason why waiting ended
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public Result await(Condition condition, Condition abort, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long delay = initialDelay;
+        while (true) {
+            long probeStart = System.currentTimeMillis();
+            if (test(condition)) {
+                return Result.READY;
+            }
+            if (abort != null && test(abort)) {
+                return Result.ABORTED;
+            }
+            long now = System.currentTimeMillis();
+            long remaining = deadline - now;
+            if (remaining <= 0) {
+                return Result.TIMEOUT;
+            }
+            long sleep = Math.max(nextDelay(delay), minInterval - (now - probeStart));
+            Thread.sleep(Math.max(0, Math.min(sleep, remaining)));
+            delay = (long) Math.min(maxDelay, delay * multiplier);
+        }
+    }
+
+    /**
+     * Applies the jitter to a delay.
+     *
+     * @param delay delay in ms
+     * @return delay in ms, randomly varied by the jitter
+     */
+    long nextDelay(long delay) {
+        double factor = 1.0 - jitter + 2.0 * jitter * random.nextDouble();
+        return Math.min(maxDelay, (long) (delay * factor));
+    }
+
+    private static boolean test(Condition condition) throws InterruptedException {
+        try {
+            return condition.test();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -7,8 +7,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 public class Remote implements Serializable {
 
@@ -37,4 +40,34 @@ public class Remote implements Serializable {
             }
         }).booleanValue();
     }
+
+    /**
+     * check which of the ports can be bound on the remote node.
+     */
+    public static List<Integer> freePorts(Launcher launcher, List<Integer> ports)
+            throws IOException, InterruptedException {
+
+        final ArrayList<Integer> candidates = new ArrayList<>(ports);
+        return launcher.getChannel().call(new MasterToSlaveCallable<ArrayList<Integer>,IOException>() {
+            private static final long serialVersionUID = 3284390219753601745L;
+            public ArrayList<Integer> call() throws IOException {
+                return bindablePorts(candidates);
+            }
+        });
+    }
+
+    /**
+     * check which of the ports can be bound on this system.
+     */
+    static ArrayList<Integer> bindablePorts(List<Integer> ports) {
+        ArrayList<Integer> free = new ArrayList<>();
+        for (Integer port : ports) {
+            try (ServerSocket socket = new ServerSocket(port)) {
+                free.add(port);
+            } catch (IOException e) {
+                // port in use
+            }
+        }
+        return free;
+    }
 }
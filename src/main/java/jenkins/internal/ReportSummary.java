@@ -0,0 +1,392 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Summary of the converted junit reports of a testrun: the number of passed, failed and skipped test cases, the
+ * total duration and the slowest test cases.
+ * <p>
+ * The reports are read with StAX on the node of the reports by {@link Summariser}, only this summary is sent to
+ * the controller. Unless the verdicts of the single test cases are collected, see {@link #getResults()}, the memory
+ * used does not depend on the size of the reports.
+ */
+public class ReportSummary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logger.getLogger(ReportSummary.class.getName());
+
+    /** verdicts of a test case */
+    public static final byte PASSED = 0;
+    public static final byte FAILED = 1;
+    public static final byte ERROR = 2;
+    public static final byte SKIPPED = 3;
+
+    /** default number of slowest test cases kept */
+    public static final int DEFAULT_TOP = 10;
+
+    private int tests;
+    private int failures;
+    private int errors;
+    private int skipped;
+    private double duration;
+    private int files;
+    private int unreadableFiles;
+    private List<TestTime> slowest = new ArrayList<>();
+    private TestResults results;
+
+    /**
+     * @return number of test cases
+     */
+    public int getTests() {
+        return tests;
+    }
+
+    /**
+     * @return number of passed test cases
+     */
+    public int getPassed() {
+        return tests - failures - errors - skipped;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return sum of the durations of the test cases in seconds
+     */
+    public double getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return number of report files read
+     */
+    public int getFiles() {
+        return files;
+    }
+
+    /**
+     * @return number of report files which could not be parsed
+     */
+    public int getUnreadableFiles() {
+        return unreadableFiles;
+    }
+
+    /**
+     * @return the slowest test cases, the slowest first
+     */
+    public List<TestTime> getSlowest() {
+        return Collections.unmodifiableList(slowest);
+    }
+
+    /**
+     * @return the verdicts and durations of all test cases, or null if they were not collected
+     */
+    public TestResults getResults() {
+        return results;
+    }
+
+    /**
+     * @return true if a test case failed
+     */
+    public boolean hasFailures() {
+        return failures > 0 || errors > 0;
+    }
+
+    @Override
+    public String toString() {
+        return tests + " tests, " + getPassed() + " passed, " + failures + " failed, " + errors + " errors, "
+                + skipped + " skipped in " + String.format("%.1f", duration) + "s";
+    }
+
+    /**
+     * Reads all junit reports of the directory.
+     *
+     * @param dir the junit directory
+     * @param top number of slowest test cases to keep
+     * @return the summary of the reports
+     */
+    public static ReportSummary summarise(File dir, int top) {
+        return summarise(dir, top, false);
+    }
+
+    /**
+     * Reads all junit reports of the directory.
+     *
+     * @param dir            the junit directory
+     * @param top            number of slowest test cases to keep
+     * @param collectResults true to keep the verdict and duration of every test case
+     * @return the summary of the reports
+     */
+    public static ReportSummary summarise(File dir, int top, boolean collectResults) {
+        ReportSummary summary = new ReportSummary();
+        TestResults results = collectResults ? new TestResults() : null;
+        PriorityQueue<TestTime> slowest = new PriorityQueue<>(Math.max(1, top),
+                Comparator.comparingDouble(TestTime::getTime));
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        if (dir.isDirectory()) {
+            for (String name : Util.createFileSet(dir, "**/*.xml").getDirectoryScanner().getIncludedFiles()) {
+                File file = new File(dir, name);
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    ReportSummary fileSummary = new ReportSummary();
+                    fileSummary.results = results;
+                    int resultCount = results == null ? 0 : results.size;
+                    try {
+                        fileSummary.read(factory.createXMLStreamReader(in), slowest, top);
+                    } catch (XMLStreamException e) {
+                        if (results != null) {
+                            results.size = resultCount;
+                        }
+                        throw e;
+                    }
+                    summary.add(fileSummary);
+                } catch (IOException | XMLStreamException e) {
+                    summary.unreadableFiles++;
+                    LOGGER.log(Level.FINE, "reading " + file + " failed", e);
+                }
+            }
+        }
+        if (results != null) {
+            results.trim();
+        }
+        summary.results = results;
+        summary.slowest = new ArrayList<>(slowest);
+        summary.slowest.sort(Comparator.comparingDouble(TestTime::getTime).reversed());
+        return summary;
+    }
+
+    private void add(ReportSummary other) {
+        tests += other.tests;
+        failures += other.failures;
+        errors += other.errors;
+        skipped += other.skipped;
+        duration += other.duration;
+        files++;
+    }
+
+    private void read(XMLStreamReader reader, PriorityQueue<TestTime> slowest, int top)
+            throws XMLStreamException {
+        try {
+            String testName = null;
+            double testTime = 0;
+            byte verdict = PASSED;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if ("testcase".equals(element)) {
+                        String className = reader.getAttributeValue(null, "classname");
+                        String name = reader.getAttributeValue(null, "name");
+                        testName = className == null || className.isEmpty() ? name : className + "." + name;
+                        testTime = parseTime(reader.getAttributeValue(null, "time"));
+                        tests++;
+                        duration += testTime;
+                        verdict = PASSED;
+                    } else if (testName != null) {
+                        if ("failure".equals(element)) {
+                            failures++;
+                            verdict = FAILED;
+                        } else if ("error".equals(element)) {
+                            errors++;
+                            verdict = ERROR;
+                        } else if ("skipped".equals(element)) {
+                            skipped++;
+                            verdict = SKIPPED;
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "testcase".equals(reader.getLocalName())) {
+                    if (top > 0 && (slowest.size() < top || slowest.peek().getTime() < testTime)) {
+                        slowest.add(new TestTime(testName, testTime));
+                        if (slowest.size() > top) {
+                            slowest.poll();
+                        }
+                    }
+                    if (results != null) {
+                        results.add(testName, verdict, testTime);
+                    }
+                    testName = null;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static double parseTime(String time) {
+        if (time == null || time.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(time.replace(",", ""));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Duration of a test case.
+     */
+    public static class TestTime implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String name;
+        private final double time;
+
+        public TestTime(String name, double time) {
+            this.name = name;
+            this.time = time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return duration in seconds
+         */
+        public double getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * Verdicts and durations of the test cases, stored in parallel arrays.
+     */
+    public static class TestResults implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String[] names = new String[256];
+        private byte[] verdicts = new byte[256];
+        private int[] durations = new int[256];
+        private int size;
+
+        void add(String name, byte verdict, double time) {
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+                verdicts = Arrays.copyOf(verdicts, size * 2);
+                durations = Arrays.copyOf(durations, size * 2);
+            }
+            names[size] = name;
+            verdicts[size] = verdict;
+            durations[size] = (int) Math.min(Integer.MAX_VALUE, Math.round(time * 1000));
+            size++;
+        }
+
+        void trim() {
+            names = Arrays.copyOf(names, size);
+            verdicts = Arrays.copyOf(verdicts, size);
+            durations = Arrays.copyOf(durations, size);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return id of the test case, the class name and the name
+         */
+        public String getName(int i) {
+            return names[i];
+        }
+
+        /**
+         * @return one of {@link #PASSED}, {@link #FAILED}, {@link #ERROR}, {@link #SKIPPED}
+         */
+        public byte getVerdict(int i) {
+            return verdicts[i];
+        }
+
+        /**
+         * @return duration in ms
+         */
+        public int getDuration(int i) {
+            return durations[i];
+        }
+    }
+
+    /**
+     * Summarises the junit reports on the node of the reports.
+     */
+    public static class Summariser extends MasterToSlaveFileCallable<ReportSummary> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int top;
+        private final boolean collectResults;
+
+        /**
+         * @param top            number of slowest test cases to keep
+         * @param collectResults true to keep the verdict and duration of every test case
+         */
+        public Summariser(int top, boolean collectResults) {
+            this.top = top;
+            this.collectResults = collectResults;
+        }
+
+        @Override
+        public ReportSummary invoke(File dir, VirtualChannel channel) {
+            return summarise(dir, top, collectResults);
+        }
+    }
+}
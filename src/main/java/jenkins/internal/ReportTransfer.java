@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.internal;
+
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.tools.ant.types.FileSet;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copies the junit reports of EXAM to their target directory on the node of the reports, in a single remote call.
+ * <p>
+ * Only the files matching the include and exclude patterns are copied. The content hash of every copied file is
+ * written to a manifest in the target directory. A file with the same hash in the manifest of the previous target
+ * directory of the same model is linked instead of copied, so unchanged reports are not written again.
+ */
+public class ReportTransfer extends MasterToSlaveFileCallable<ReportTransfer.Result> {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOGGER = Logger.getLogger(ReportTransfer.class.getName());
+
+    /** name of the manifest with the content hashes of a target directory */
+    public static final String MANIFEST = ".exam-report-hashes";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String target;
+    private final String includes;
+    private final String excludes;
+    private final String previousPrefix;
+
+    /**
+     * @param target         path of the target directory, on the node of the reports
+     * @param includes       Ant pattern of the files to copy, null for all files
+     * @param excludes       Ant pattern of the files not to copy, may be null
+     * @param previousPrefix name prefix of the previous target directories next to the target, may be null
+     */
+    public ReportTransfer(String target, String includes, String excludes, String previousPrefix) {
+        this.target = target;
+        this.includes = includes;
+        this.excludes = excludes;
+        this.previousPrefix = previousPrefix;
+    }
+
+    @Override
+    public Result invoke(File source, VirtualChannel channel) throws IOException, InterruptedException {
+        Result result = new Result();
+        File targetDir = new File(target);
+        File previous = findPrevious(targetDir);
+        Map<String, String> previousHashes = previous == null ? new HashMap<>() : readManifest(previous);
+        Map<String, String> hashes = new HashMap<>();
+        if (!source.isDirectory()) {
+            return result;
+        }
+        Files.createDirectories(targetDir.toPath());
+
+        FileSet fileSet = Util.createFileSet(source, includes == null ? "**" : includes, excludes);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        for (String name : fileSet.getDirectoryScanner().getIncludedFiles()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            name = name.replace('\\', '/');
+            Path from = new File(source, name).toPath();
+            Path to = new File(targetDir, name).toPath();
+            Files.createDirectories(to.getParent());
+
+            String hash = hash(from, buffer);
+            hashes.put(name, hash);
+            if (hash.equals(previousHashes.get(name)) && link(new File(previous, name).toPath(), to)) {
+                result.linked++;
+            } else {
+                Files.copy(from, to, StandardCopyOption.REPLACE_EXISTING);
+                result.copied++;
+                result.bytes += Files.size(to);
+            }
+        }
+        writeManifest(targetDir, hashes);
+        return result;
+    }
+
+    /**
+     * @return the newest other directory next to the target with the prefix and a manifest, or null
+     */
+    private File findPrevious(File targetDir) {
+        File parent = targetDir.getParentFile();
+        File[] candidates = previousPrefix == null || parent == null ? null
+                : parent.listFiles(f -> f.isDirectory() && f.getName().startsWith(previousPrefix)
+                && !f.equals(targetDir) && new File(f, MANIFEST).isFile());
+        File previous = null;
+        if (candidates != null) {
+            for (File candidate : candidates) {
+                if (previous == null || candidate.lastModified() > previous.lastModified()) {
+                    previous = candidate;
+                }
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Links the unchanged file of the previous directory, or copies it if links are not supported.
+     *
+     * @return false if the previous file is not available
+     */
+    private static boolean link(Path previous, Path to) {
+        if (!Files.isRegularFile(previous)) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(to);
+            Files.createLink(to, previous);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.log(Level.FINE, "linking " + previous + " failed", e);
+            try {
+                Files.copy(previous, to, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String hash(Path file, byte[] buffer) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return Util.toHexString(digest.digest());
+    }
+
+    static Map<String, String> readManifest(File dir) {
+        Map<String, String> hashes = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(new File(dir, MANIFEST).toPath(),
+                StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator > 0) {
+                    hashes.put(line.substring(separator + 1), line.substring(0, separator));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "reading the report manifest of " + dir + " failed", e);
+        }
+        return hashes;
+    }
+
+    static void writeManifest(File dir, Map<String, String> hashes) throws IOException {
+        try (OutputStream out = Files.newOutputStream(new File(dir, MANIFEST).toPath());
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, String> e : hashes.entrySet()) {
+                writer.write(e.getValue());
+                writer.write(' ');
+                writer.write(e.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Statistics of a transfer.
+     */
+    public static class Result implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int copied;
+        private int linked;
+        private long bytes;
+
+        /**
+         * @return number of copied files
+         */
+        public int getCopied() {
+            return copied;
+        }
+
+        /**
+         * @return number of unchanged files linked from the previous target
+         */
+        public int getLinked() {
+            return linked;
+        }
+
+        /**
+         * @return number of copied bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
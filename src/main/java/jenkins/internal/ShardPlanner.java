@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jenkins.internal;
+
+import jenkins.internal.data.TestrunFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Splits the test cases of the {@link ExamResultIndex} of a job into shards of about the same duration.
+ * <p>
+ * The test cases are assigned longest first to the shard with the least duration so far. Every shard of a build
+ * computes the same plan, because only the results of the builds before the current build are considered. Test
+ * cases without results, e.g. new test cases, run in the first shard.
+ * <p>
+ * The shards are planned by the names the filters match, see {@link TestrunBatchPlanner#getTestName(String)}, so
+ * test cases with the same name in different classes run in the same shard.
+ */
+public class ShardPlanner {
+
+    /** number of results averaged per test case */
+    public static final int HISTORY = 5;
+
+    /** maximum length of the regex of one filter, longer lists of test cases are split into several filters */
+    public static final int MAX_REGEX_LENGTH = 16 * 1024;
+
+    private final int shardCount;
+    private final List<List<String>> shards = new ArrayList<>();
+    private final long[] durations;
+
+    /**
+     * @param index       result index of the job
+     * @param shardCount  number of shards
+     * @param beforeBuild number of the current build
+     */
+    public ShardPlanner(ExamResultIndex index, int shardCount, int beforeBuild) throws IOException {
+        this(index, shardCount, beforeBuild, null);
+    }
+
+    /**
+     * @param index               result index of the job
+     * @param shardCount          number of shards
+     * @param beforeBuild         number of the current build
+     * @param systemConfiguration system configuration of a matrix session, null for other sessions
+     */
+    public ShardPlanner(ExamResultIndex index, int shardCount, int beforeBuild, String systemConfiguration)
+            throws IOException {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount must be at least 1");
+        }
+        this.shardCount = shardCount;
+        this.durations = new long[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(new ArrayList<>());
+        }
+
+        Map<String, Long> names = new HashMap<>();
+        for (Map.Entry<String, Long> test : index.getAverageDurations(HISTORY, beforeBuild, systemConfiguration)
+                .entrySet()) {
+            names.merge(TestrunBatchPlanner.getTestName(test.getKey()), test.getValue(), Long::sum);
+        }
+        List<Map.Entry<String, Long>> tests = new ArrayList<>(names.entrySet());
+        tests.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        PriorityQueue<Integer> free = new PriorityQueue<>(shardCount,
+                Comparator.<Integer>comparingLong(shard -> durations[shard]).thenComparing(shard -> shard));
+        for (int i = 0; i < shardCount; i++) {
+            free.add(i);
+        }
+        for (Map.Entry<String, Long> test : tests) {
+            int shard = free.poll();
+            shards.get(shard).add(test.getKey());
+            durations[shard] += test.getValue();
+            free.add(shard);
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * @param shardIndex index of the shard, from 0
+     * @return the names of the test cases assigned to the shard
+     */
+    public List<String> getTests(int shardIndex) {
+        return shards.get(shardIndex);
+    }
+
+    /**
+     * @param shardIndex index of the shard, from 0
+     * @return the expected duration of the assigned test cases in ms
+     */
+    public long getDuration(int shardIndex) {
+        return durations[shardIndex];
+    }
+
+    /**
+     * Creates the filters which deactivate the test cases of the other shards. The first shard deactivates the test
+     * cases assigned to the other shards and keeps the unknown test cases, split into filters of at most
+     * {@link #MAX_REGEX_LENGTH}. The other shards deactivate all test cases not assigned to them, this regex only
+     * grows with the share of the shard.
+     *
+     * @param shardIndex index of the shard, from 0
+     * @return the filters, empty if the shard runs all test cases
+     */
+    public List<TestrunFilter> createFilters(int shardIndex) {
+        List<TestrunFilter> filters = new ArrayList<>();
+        if (shardIndex == 0) {
+            List<String> others = new ArrayList<>();
+            for (int i = 1; i < shardCount; i++) {
+                others.addAll(shards.get(i));
+            }
+            for (String alternatives : toChunks(others, MAX_REGEX_LENGTH - "^(?:)$".length())) {
+                filters.add(new TestrunFilter(TestrunBatchPlanner.NAME_ATTRIBUTE, "^(?:" + alternatives + ")$",
+                        Boolean.FALSE, Boolean.FALSE));
+            }
+            return filters;
+        }
+        List<String> own = shards.get(shardIndex);
+        String regex = own.isEmpty() ? ".*" : "^(?!(?:" + TestrunBatchPlanner.toAlternatives(own) + ")$).*";
+        filters.add(new TestrunFilter(TestrunBatchPlanner.NAME_ATTRIBUTE, regex, Boolean.FALSE, Boolean.FALSE));
+        return filters;
+    }
+
+    /**
+     * @param names     names of test cases
+     * @param maxLength maximum length of one chunk, a longer single name gets a chunk of its own
+     * @return the escaped names as regex alternatives, split into chunks
+     */
+    static List<String> toChunks(Collection<String> names, int maxLength) {
+        if (names.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        for (String name : names) {
+            String escaped = TestrunBatchPlanner.escape(name);
+            if (chunk.length() > 0 && chunk.length() + 1 + escaped.length() > maxLength) {
+                chunks.add(chunk.toString());
+                chunk.setLength(0);
+            }
+            if (chunk.length() > 0) {
+                chunk.append('|');
+            }
+            chunk.append(escaped);
+        }
+        chunks.add(chunk.toString());
+        return chunks;
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jenkins.internal;
+
+import jenkins.internal.data.FilterConfiguration;
+import jenkins.internal.data.TestrunFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Splits a testrun into batches of testrun filters with the help of the {@link ExamResultIndex} of the job.
+ * <p>
+ * The first batch runs the test cases which failed in their last result or whose verdict changed in their recent
+ * results, the shortest first if there are more than {@link #MAX_PRIORITY_TESTS}. The second batch runs all other
+ * test cases. Both batches keep the filters of the job and add one filter which deactivates the test cases of the
+ * other batch, so EXAM still decides the order inside a batch.
+ */
+public class TestrunBatchPlanner {
+
+    /** attribute of the test cases matched by the added filters */
+    public static final String NAME_ATTRIBUTE = "name";
+
+    /** number of results of a test case considered */
+    public static final int HISTORY = 10;
+
+    /** number of results in which a changed verdict makes a test case run first */
+    public static final int CHANGED_WINDOW = 3;
+
+    /** maximum number of test cases in the first batch, the filter regex grows with every test case */
+    public static final int MAX_PRIORITY_TESTS = 200;
+
+    private final ExamResultIndex index;
+    private final List<TestrunFilter> filters;
+    private final String systemConfiguration;
+
+    /**
+     * @param index   result index of the job
+     * @param filters the testrun filters of the job
+     */
+    public TestrunBatchPlanner(ExamResultIndex index, List<TestrunFilter> filters) {
+        this(index, filters, null);
+    }
+
+    /**
+     * @param index               result index of the job
+     * @param filters             the testrun filters of the job
+     * @param systemConfiguration system configuration of a matrix session, null for other sessions
+     */
+    public TestrunBatchPlanner(ExamResultIndex index, List<TestrunFilter> filters, String systemConfiguration) {
+        this.index = index;
+        this.filters = filters;
+        this.systemConfiguration = systemConfiguration;
+    }
+
+    /**
+     * @return the test ids to run first, the failed test cases before the changed ones
+     */
+    public List<String> getPriorityTests() throws IOException {
+        Map<String, Long> durations = index.getAverageDurations(HISTORY, Integer.MAX_VALUE, systemConfiguration);
+        List<String> failed = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, byte[]> history : index.getVerdictHistories(HISTORY, systemConfiguration).entrySet()) {
+            String testId = history.getKey();
+            byte last = -1;
+            int results = 0;
+            boolean flipped = false;
+            for (byte verdict : history.getValue()) {
+                if (verdict == ReportSummary.SKIPPED) {
+                    continue;
+                }
+                if (last < 0) {
+                    last = verdict;
+                } else if (results < CHANGED_WINDOW && isFailure(verdict) != isFailure(last)) {
+                    flipped = true;
+                }
+                results++;
+            }
+            if (last >= 0 && isFailure(last)) {
+                failed.add(testId);
+            } else if (flipped) {
+                changed.add(testId);
+            }
+        }
+        Comparator<String> shortestFirst = Comparator.comparing(testId -> durations.getOrDefault(testId, 0L));
+        failed.sort(shortestFirst);
+        changed.sort(shortestFirst);
+        List<String> priority = new ArrayList<>(failed);
+        priority.addAll(changed);
+        return priority.size() > MAX_PRIORITY_TESTS ? priority.subList(0, MAX_PRIORITY_TESTS) : priority;
+    }
+
+    /**
+     * @return the filters of the batches in the order to run them, empty if there is nothing to run first
+     */
+    public List<FilterConfiguration> plan() throws IOException {
+        List<String> priority = getPriorityTests();
+        if (priority.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String alternatives = toAlternatives(priority);
+        List<FilterConfiguration> batches = new ArrayList<>();
+        batches.add(createBatch("^(?!(?:" + alternatives + ")$).*"));
+        batches.add(createBatch("^(?:" + alternatives + ")$"));
+        return batches;
+    }
+
+    private FilterConfiguration createBatch(String deactivate) {
+        FilterConfiguration batch = new FilterConfiguration();
+        for (TestrunFilter filter : filters) {
+            batch.addTestrunFilter(filter);
+        }
+        batch.addTestrunFilter(new TestrunFilter(NAME_ATTRIBUTE, deactivate, Boolean.FALSE, Boolean.FALSE));
+        return batch;
+    }
+
+    private static boolean isFailure(byte verdict) {
+        return verdict == ReportSummary.FAILED || verdict == ReportSummary.ERROR;
+    }
+
+    /**
+     * @param testIds ids of test cases in the result index
+     * @return the escaped names of the test cases as regex alternatives, without duplicates
+     */
+    static String toAlternatives(Collection<String> testIds) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String testId : testIds) {
+            names.add(getTestName(testId));
+        }
+        StringBuilder alternatives = new StringBuilder();
+        for (String name : names) {
+            if (alternatives.length() > 0) {
+                alternatives.append('|');
+            }
+            alternatives.append(escape(name));
+        }
+        return alternatives.toString();
+    }
+
+    /**
+     * @return the name of the test case without the class name of the junit report
+     */
+    static String getTestName(String testId) {
+        return testId.substring(testId.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Escapes the regex characters, EXAM evaluates the filters with python which does not know \Q...\E.
+     */
+    static String escape(String name) {
+        StringBuilder escaped = new StringBuilder(name.length());
+        for (char c : name.toCharArray()) {
+            if ("\\.^$|?*+()[]{}".indexOf(c) >= 0) {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -1,10 +1,13 @@
 package jenkins.internal.data;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-public class FilterConfiguration {
+public class FilterConfiguration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private List<TestrunFilter> testrunFilter;
 
@@ -7,11 +7,15 @@
  */
 package jenkins.internal.data;
 
+import java.io.Serializable;
+
 /**
  *
  * @author liu
  */
-public class ReportConfiguration {
+public class ReportConfiguration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String projectName = "";
     private String dbType = "";
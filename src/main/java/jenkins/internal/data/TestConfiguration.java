@@ -2,10 +2,14 @@ package jenkins.internal.data;
 
 import jenkins.internal.enumeration.RestAPILogLevelEnum;
 
+import java.io.Serializable;
+
 /**
  * @author liu
  */
-public class TestConfiguration {
+public class TestConfiguration implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private ModelConfiguration modelProject;
     private ReportConfiguration reportProject;
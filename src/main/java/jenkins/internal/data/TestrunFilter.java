@@ -29,7 +29,11 @@
  */
 package jenkins.internal.data;
 
-public class TestrunFilter {
+import java.io.Serializable;
+
+public class TestrunFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     protected String name;
     protected String value;
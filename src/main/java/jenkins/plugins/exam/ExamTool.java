@@ -176,14 +176,23 @@ public class ExamTool extends ToolInstallation implements NodeSpecific<ExamTool>
             private static final long serialVersionUID = 906341330603832653L;
 
             public String call() throws IOException {
-                File exe = getExeFile();
-                if (exe.exists())
-                    return exe.getPath();
-                return null;
+                return findExecutable();
             }
         });
     }
 
+    /**
+     * Gets the executable path of this EXAM on the system this method is called on.
+     *
+     * @return the path, or null if there is no executable
+     */
+    public String findExecutable() {
+        File exe = getExeFile();
+        if (exe.exists())
+            return exe.getPath();
+        return null;
+    }
+
     private File getExeFile() {
         String execName = "EXAM.exe";
         String home = Util.replaceMacro(getHome(), EnvVars.masterEnvVars);
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.plugins.exam;
+
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Saveable;
+import hudson.model.TaskListener;
+import hudson.model.listeners.SaveableListener;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.NodeSpecific;
+import hudson.tools.ToolDescriptor;
+import hudson.tools.ToolInstallation;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the translation of tool installations for the nodes and the EXAM executable found on the nodes.
+ * <p>
+ * The entries are keyed by node, tool type, tool name and home. They are invalidated when a tool configuration
+ * is saved, the node configuration changes or the agent reconnects. The executable is validated by its
+ * modification time, which the preflight returns with every build.
+ */
+public final class ToolResolutionCache {
+
+    private static final ConcurrentMap<Key, ToolInstallation> TRANSLATIONS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Key, Executable> EXECUTABLES = new ConcurrentHashMap<>();
+
+    private ToolResolutionCache() {
+    }
+
+    /**
+     * Translates the tool for the node, or returns the cached translation.
+     *
+     * @see NodeSpecific#forNode(Node, TaskListener)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ToolInstallation & NodeSpecific<T>> T forNode(T tool, Node node, TaskListener log)
+            throws IOException, InterruptedException {
+        Key key = new Key(node.getNodeName(), tool);
+        ToolInstallation cached = TRANSLATIONS.get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T translated = tool.forNode(node, log);
+        TRANSLATIONS.put(key, translated);
+        return translated;
+    }
+
+    /**
+     * @return the cached executable of the tool on the node, or null
+     */
+    public static Executable getExecutable(String nodeName, ToolInstallation tool) {
+        return EXECUTABLES.get(new Key(nodeName, tool));
+    }
+
+    /**
+     * Stores the executable found on the node. If the executable differs from the cached one, the installation was
+     * changed and all entries of the node are invalidated.
+     *
+     * @param nodeName     name of the node
+     * @param tool         the tool, not translated
+     * @param path         path of the executable, null if not found
+     * @param lastModified modification time of the executable
+     * @return true if the cached executable was still valid
+     */
+    public static boolean validateExecutable(String nodeName, ToolInstallation tool, String path,
+                                             long lastModified) {
+        Key key = new Key(nodeName, tool);
+        Executable current = new Executable(path, lastModified);
+        Executable cached = EXECUTABLES.put(key, current);
+        if (cached == null || cached.equals(current)) {
+            return cached != null;
+        }
+        invalidate(nodeName);
+        EXECUTABLES.put(key, current);
+        return false;
+    }
+
+    /**
+     * Removes all entries of the node.
+     */
+    public static void invalidate(String nodeName) {
+        TRANSLATIONS.keySet().removeIf(key -> key.nodeName.equals(nodeName));
+        EXECUTABLES.keySet().removeIf(key -> key.nodeName.equals(nodeName));
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public static void invalidateAll() {
+        TRANSLATIONS.clear();
+        EXECUTABLES.clear();
+    }
+
+    /**
+     * EXAM executable found on a node.
+     */
+    public static class Executable {
+
+        private final String path;
+        private final long lastModified;
+
+        public Executable(String path, long lastModified) {
+            this.path = path;
+            this.lastModified = lastModified;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Executable that = (Executable) o;
+            return lastModified == that.lastModified && Objects.equals(path, that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, lastModified);
+        }
+    }
+
+    private static final class Key {
+
+        private final String nodeName;
+        private final String type;
+        private final String name;
+        private final String home;
+
+        Key(String nodeName, ToolInstallation tool) {
+            this.nodeName = nodeName;
+            this.type = tool.getClass().getName();
+            this.name = tool.getName();
+            this.home = tool.getHome();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return nodeName.equals(key.nodeName) && type.equals(key.type) && Objects.equals(name, key.name)
+                    && Objects.equals(home, key.home);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nodeName, type, name, home);
+        }
+    }
+
+    /**
+     * Invalidates the cache when the agent reconnects or the node configuration changes.
+     */
+    @Extension
+    public static class NodeListener extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer c, TaskListener listener) {
+            invalidate(c.getName());
+        }
+
+        @Override
+        public void onConfigurationChange() {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Invalidates the cache when a tool configuration is saved.
+     */
+    @Extension
+    public static class ToolListener extends SaveableListener {
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof ToolDescriptor) {
+                invalidateAll();
+            }
+        }
+    }
+}
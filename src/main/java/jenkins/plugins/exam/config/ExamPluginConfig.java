@@ -31,8 +31,10 @@ package jenkins.plugins.exam.config;
 
 import hudson.Extension;
 import hudson.util.FormValidation;
-import jenkins.internal.DbFactory;
+import jenkins.internal.PollingScheduler;
+import jenkins.internal.enumeration.LogOverflowPolicy;
 import jenkins.model.GlobalConfiguration;
+import jenkins.task._exam.ExamEventPatterns;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
@@ -40,7 +42,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
-import javax.xml.soap.SOAPException;
 import java.util.*;
 
 /**
@@ -59,8 +60,30 @@ public class ExamPluginConfig extends GlobalConfiguration {
     private List<ExamModelConfig> modelConfigs = new ArrayList<ExamModelConfig>();
     private List<ExamReportConfig> reportConfigs = new ArrayList<ExamReportConfig>();
     private int port;
+    private int portRangeEnd;
+    private int queueTimeout;
     private int licensePort;
     private String licenseHost;
+    private int statusPollFastInterval;
+    private int statusPollSlowInterval;
+    private int testrunDetectTimeout;
+    private boolean daemonMode;
+    private int daemonMaxIdleTime;
+    private int daemonMaxRuns;
+    private int logBufferSize;
+    private LogOverflowPolicy logOverflowPolicy;
+    private String testcaseStartPattern;
+    private String testcaseFinishPattern;
+    private String testcaseVerdictPattern;
+
+    /** default time in minutes a build waits for a free EXAM */
+    public static final int DEFAULT_QUEUE_TIMEOUT = 60;
+    /** default time in minutes an unused EXAM daemon is kept running */
+    public static final int DEFAULT_DAEMON_MAX_IDLE_TIME = 30;
+    /** default number of testruns after which an EXAM daemon is restarted */
+    public static final int DEFAULT_DAEMON_MAX_RUNS = 20;
+    /** default size in KB of the buffer between EXAM and the console */
+    public static final int DEFAULT_LOG_BUFFER_SIZE = 1024;
 
     public int getPort() {
         return port;
@@ -70,6 +93,184 @@ public class ExamPluginConfig extends GlobalConfiguration {
         this.port = port;
     }
 
+    /**
+     * @return last port of the REST API port range, EXAM instances on the same node use different ports
+     */
+    public int getPortRangeEnd() {
+        return Math.max(port, portRangeEnd);
+    }
+
+    public void setPortRangeEnd(int portRangeEnd) {
+        this.portRangeEnd = portRangeEnd;
+    }
+
+    /**
+     * @return time in minutes a build waits for a free EXAM on its node
+     */
+    public int getQueueTimeout() {
+        return queueTimeout > 0 ? queueTimeout : DEFAULT_QUEUE_TIMEOUT;
+    }
+
+    public void setQueueTimeout(int queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+
+    /**
+     * @return shortest delay between two testrun status polls in seconds
+     */
+    public int getStatusPollFastInterval() {
+        return statusPollFastInterval > 0 ? statusPollFastInterval : PollingScheduler.DEFAULT_FAST_INTERVAL;
+    }
+
+    public void setStatusPollFastInterval(int statusPollFastInterval) {
+        this.statusPollFastInterval = statusPollFastInterval;
+    }
+
+    /**
+     * @return longest delay between two testrun status polls in seconds
+     */
+    public int getStatusPollSlowInterval() {
+        return statusPollSlowInterval > 0 ? statusPollSlowInterval : PollingScheduler.DEFAULT_SLOW_INTERVAL;
+    }
+
+    public void setStatusPollSlowInterval(int statusPollSlowInterval) {
+        this.statusPollSlowInterval = statusPollSlowInterval;
+    }
+
+    /**
+     * @return time in seconds to wait for EXAM to report a running testrun
+     */
+    public int getTestrunDetectTimeout() {
+        return testrunDetectTimeout > 0 ? testrunDetectTimeout : PollingScheduler.DEFAULT_DETECT_TIMEOUT;
+    }
+
+    public void setTestrunDetectTimeout(int testrunDetectTimeout) {
+        this.testrunDetectTimeout = testrunDetectTimeout;
+    }
+
+    /**
+     * @return true if EXAM is kept running on the nodes and reused by the next builds
+     */
+    public boolean isDaemonMode() {
+        return daemonMode;
+    }
+
+    public void setDaemonMode(boolean daemonMode) {
+        this.daemonMode = daemonMode;
+    }
+
+    /**
+     * @return time in minutes an unused EXAM daemon is kept running
+     */
+    public int getDaemonMaxIdleTime() {
+        return daemonMaxIdleTime > 0 ? daemonMaxIdleTime : DEFAULT_DAEMON_MAX_IDLE_TIME;
+    }
+
+    public void setDaemonMaxIdleTime(int daemonMaxIdleTime) {
+        this.daemonMaxIdleTime = daemonMaxIdleTime;
+    }
+
+    /**
+     * @return number of testruns after which an EXAM daemon is restarted
+     */
+    public int getDaemonMaxRuns() {
+        return daemonMaxRuns > 0 ? daemonMaxRuns : DEFAULT_DAEMON_MAX_RUNS;
+    }
+
+    public void setDaemonMaxRuns(int daemonMaxRuns) {
+        this.daemonMaxRuns = daemonMaxRuns;
+    }
+
+    /**
+     * @return size in KB of the buffer between the output of EXAM and the console
+     */
+    public int getLogBufferSize() {
+        return logBufferSize > 0 ? logBufferSize : DEFAULT_LOG_BUFFER_SIZE;
+    }
+
+    public void setLogBufferSize(int logBufferSize) {
+        this.logBufferSize = logBufferSize;
+    }
+
+    /**
+     * @return what to do with the output of EXAM if the console is too slow
+     */
+    public LogOverflowPolicy getLogOverflowPolicy() {
+        return logOverflowPolicy != null ? logOverflowPolicy : LogOverflowPolicy.SPILL;
+    }
+
+    public void setLogOverflowPolicy(LogOverflowPolicy logOverflowPolicy) {
+        this.logOverflowPolicy = logOverflowPolicy;
+    }
+
+    public LogOverflowPolicy[] getLogOverflowPolicies() {
+        return LogOverflowPolicy.values();
+    }
+
+    /**
+     * @return regular expression of the line starting a test case, see {@link ExamEventPatterns}
+     */
+    public String getTestcaseStartPattern() {
+        return testcaseStartPattern;
+    }
+
+    public void setTestcaseStartPattern(String testcaseStartPattern) {
+        this.testcaseStartPattern = testcaseStartPattern;
+    }
+
+    /**
+     * @return regular expression of the line finishing a test case, see {@link ExamEventPatterns}
+     */
+    public String getTestcaseFinishPattern() {
+        return testcaseFinishPattern;
+    }
+
+    public void setTestcaseFinishPattern(String testcaseFinishPattern) {
+        this.testcaseFinishPattern = testcaseFinishPattern;
+    }
+
+    /**
+     * @return regular expression of the line with the verdict of a test case, see {@link ExamEventPatterns}
+     */
+    public String getTestcaseVerdictPattern() {
+        return testcaseVerdictPattern;
+    }
+
+    public void setTestcaseVerdictPattern(String testcaseVerdictPattern) {
+        this.testcaseVerdictPattern = testcaseVerdictPattern;
+    }
+
+    /**
+     * @return the patterns of the test case lines, null if they are not set or invalid
+     */
+    public ExamEventPatterns getEventPatterns() {
+        try {
+            ExamEventPatterns patterns = new ExamEventPatterns(testcaseStartPattern, testcaseFinishPattern,
+                    testcaseVerdictPattern);
+            return patterns.isEmpty() ? null : patterns;
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("invalid test case patterns: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    public FormValidation doCheckTestcaseStartPattern(@QueryParameter String value) {
+        return checkPattern(value, ExamEventPatterns.NAME_GROUP);
+    }
+
+    public FormValidation doCheckTestcaseFinishPattern(@QueryParameter String value) {
+        return checkPattern(value, ExamEventPatterns.NAME_GROUP);
+    }
+
+    public FormValidation doCheckTestcaseVerdictPattern(@QueryParameter String value) {
+        return checkPattern(value, ExamEventPatterns.VERDICT_GROUP);
+    }
+
+    private static FormValidation checkPattern(String value, String group) {
+        String error = ExamEventPatterns.check(value, group);
+        return error == null ? FormValidation.ok() : FormValidation.error(error);
+    }
+
     public ExamPluginConfig() {
         load();
     }
@@ -132,14 +333,25 @@ public class ExamPluginConfig extends GlobalConfiguration {
     }
 
 
-    public FormValidation doVerifyModelConnections()
-            throws SOAPException {
+    /**
+     * Tests the connections of all models concurrently, the results are cached for a short time, see
+     * {@link ModelConnectionCheck}.
+     */
+    public FormValidation doVerifyModelConnections() {
 
         Map<String, List<String>> status = new HashMap<>();
 
-        for (ExamModelConfig mConfig : modelConfigs) {
-            String message = DbFactory.testModelConnection(mConfig.getModelName(), mConfig.getTargetEndpoint(),
-                    mConfig.getExamVersion());
+        List<ExamModelConfig> configs = new ArrayList<>(modelConfigs);
+        List<String> messages;
+        try {
+            messages = ModelConnectionCheck.get().check(configs, ModelConnectionCheck.TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FormValidation.error("interrupted");
+        }
+        for (int i = 0; i < configs.size(); i++) {
+            ExamModelConfig mConfig = configs.get(i);
+            String message = messages.get(i);
             if (!status.containsKey(message)) {
                 status.put(message, new ArrayList<String>());
             }
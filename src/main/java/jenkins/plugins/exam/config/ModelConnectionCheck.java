@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jenkins.plugins.exam.config;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.internal.DbFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests the connections of the model configurations for {@link ExamPluginConfig#doVerifyModelConnections()}.
+ * <p>
+ * The models of one target endpoint are tested one after the other in one task, the endpoints are tested
+ * concurrently on a bounded pool. If an endpoint is not reachable, its other models get the same result without
+ * connecting again. The results are cached for {@link #TTL} ms, so repeated checks return at once, and a check
+ * still running for an endpoint is joined instead of started twice. Models not covered by the running check are
+ * tested in a check of their own.
+ */
+final class ModelConnectionCheck {
+
+    /** time in ms a result is reused */
+    static final long TTL = TimeUnit.MINUTES.toMillis(1);
+
+    /** time in ms to wait for the results, slower endpoints are reported and their results cached later */
+    static final long TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    private static final int POOL_SIZE = 8;
+
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new NamingThreadFactory(new DaemonThreadFactory(),
+            "EXAM model connection check"));
+
+    static {
+        POOL.allowCoreThreadTimeOut(true);
+    }
+
+    private static final ModelConnectionCheck INSTANCE = new ModelConnectionCheck(DbFactory::testModelConnection,
+            TTL);
+
+    /**
+     * Tests the connection to one model.
+     */
+    interface Tester {
+
+        /**
+         * @return "OK" or the reason why the model is not available
+         */
+        String test(String modelName, String targetEndpoint, int examVersion) throws Exception;
+    }
+
+    private static class Result {
+        private final String message;
+        private final long time;
+
+        Result(String message, long time) {
+            this.message = message;
+            this.time = time;
+        }
+    }
+
+    /**
+     * The running check of an endpoint and the models it tests.
+     */
+    private static class RunningCheck {
+        private final Set<String> keys;
+        private final CompletableFuture<Void> future;
+
+        RunningCheck(Set<String> keys, CompletableFuture<Void> future) {
+            this.keys = keys;
+            this.future = future;
+        }
+    }
+
+    private final Tester tester;
+    private final long ttl;
+    private final Map<String, Result> results = new ConcurrentHashMap<>();
+    private final Map<String, RunningCheck> running = new ConcurrentHashMap<>();
+
+    ModelConnectionCheck(Tester tester, long ttl) {
+        this.tester = tester;
+        this.ttl = ttl;
+    }
+
+    static ModelConnectionCheck get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Tests the connections of the models, cached results are not tested again.
+     *
+     * @param configs the model configurations
+     * @param timeout time in ms to wait for the results
+     * @return the result per model configuration in the same order
+     */
+    List<String> check(List<ExamModelConfig> configs, long timeout) throws InterruptedException {
+        long now = System.currentTimeMillis();
+        Map<String, List<ExamModelConfig>> endpoints = new LinkedHashMap<>();
+        for (ExamModelConfig config : configs) {
+            if (getResult(config, now) == null) {
+                endpoints.computeIfAbsent(endpointOf(config), e -> new ArrayList<>()).add(config);
+            }
+        }
+
+        List<CompletableFuture<Void>> checks = new ArrayList<>();
+        for (Map.Entry<String, List<ExamModelConfig>> endpoint : endpoints.entrySet()) {
+            checks.add(running.compute(endpoint.getKey(), (key, check) -> join(check, endpoint.getValue())).future);
+        }
+        long deadline = now + timeout;
+        try {
+            for (CompletableFuture<Void> check : checks) {
+                check.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            // the missing results are reported below
+        }
+
+        List<String> messages = new ArrayList<>();
+        for (ExamModelConfig config : configs) {
+            Result result = getResult(config, now);
+            messages.add(result != null ? result.message
+                    : "no answer within " + TimeUnit.MILLISECONDS.toSeconds(timeout) + " s");
+        }
+        return messages;
+    }
+
+    /**
+     * @param check  the running check of the endpoint, or null
+     * @param models the models of the endpoint to test
+     * @return the running check if it tests all models, otherwise a check which also tests the other models
+     */
+    private RunningCheck join(RunningCheck check, List<ExamModelConfig> models) {
+        boolean active = check != null && !check.future.isDone();
+        List<ExamModelConfig> uncovered = new ArrayList<>();
+        Set<String> keys = active ? new HashSet<>(check.keys) : new HashSet<>();
+        for (ExamModelConfig config : models) {
+            if (keys.add(keyOf(config))) {
+                uncovered.add(config);
+            }
+        }
+        if (uncovered.isEmpty()) {
+            return check;
+        }
+        CompletableFuture<Void> future = CompletableFuture.runAsync(() -> checkEndpoint(uncovered), POOL);
+        return new RunningCheck(keys, active ? CompletableFuture.allOf(check.future, future) : future);
+    }
+
+    /**
+     * Drops the cached results.
+     */
+    void clear() {
+        results.clear();
+    }
+
+    private void checkEndpoint(List<ExamModelConfig> configs) {
+        String unreachable = null;
+        for (ExamModelConfig config : configs) {
+            String message = unreachable;
+            if (message == null) {
+                try {
+                    message = tester.test(config.getModelName(), config.getTargetEndpoint(), config.getExamVersion());
+                } catch (ClientHandlerException e) {
+                    // connect or read timeout, the other models of the endpoint are not tested
+                    unreachable = String.valueOf(e.getMessage());
+                    message = unreachable;
+                } catch (Exception e) {
+                    message = String.valueOf(e.getMessage());
+                }
+            }
+            results.put(keyOf(config), new Result(message, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * @return the cached result, or null if there is none or it is older than the TTL
+     */
+    private Result getResult(ExamModelConfig config, long now) {
+        Result result = results.get(keyOf(config));
+        return result == null || now - result.time >= ttl ? null : result;
+    }
+
+    private static String endpointOf(ExamModelConfig config) {
+        return config.getTargetEndpoint() == null ? "" : config.getTargetEndpoint();
+    }
+
+    private static String keyOf(ExamModelConfig config) {
+        return endpointOf(config) + "|" + config.getModelName() + "|" + config.getExamVersion();
+    }
+}
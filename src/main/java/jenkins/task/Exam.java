@@ -30,15 +30,23 @@
 package jenkins.task;
 
 import hudson.*;
-import hudson.Launcher.ProcStarter;
 import hudson.model.*;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.tools.ToolInstallation;
 import hudson.util.ArgumentListBuilder;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
 import jenkins.internal.ClientRequest;
+import jenkins.internal.ExamResultIndex;
+import jenkins.internal.PollingScheduler;
+import jenkins.internal.Preflight;
 import jenkins.internal.Remote;
+import jenkins.internal.ReportSummary;
+import jenkins.internal.ShardPlanner;
+import jenkins.internal.TestrunBatchPlanner;
 import jenkins.internal.data.FilterConfiguration;
 import jenkins.internal.data.ModelConfiguration;
 import jenkins.internal.data.ReportConfiguration;
@@ -47,15 +55,24 @@ import jenkins.internal.descriptor.ExamDescriptor;
 import jenkins.internal.enumeration.RestAPILogLevelEnum;
 import jenkins.model.Jenkins;
 import jenkins.plugins.exam.ExamTool;
+import jenkins.plugins.exam.ToolResolutionCache;
 import jenkins.plugins.exam.config.ExamModelConfig;
 import jenkins.plugins.exam.config.ExamPluginConfig;
 import jenkins.plugins.exam.config.ExamReportConfig;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
 import jenkins.task._exam.ExamConsoleAnnotator;
-import jenkins.task._exam.ExamConsoleErrorOut;
+import jenkins.task._exam.ExamConsolePrefix;
+import jenkins.task._exam.ExamDaemon;
+import jenkins.task._exam.ExamDaemonPool;
+import jenkins.task._exam.ExamEventPatterns;
+import jenkins.task._exam.ExamEventStream;
+import jenkins.task._exam.ExamOutputArchive;
+import jenkins.task._exam.ExamPortLeaseManager;
+import jenkins.task._exam.ExamProgressAction;
+import jenkins.task._exam.ExamResourceQueue;
+import jenkins.task._exam.ExamSession;
 import jenkins.task._exam.Messages;
 import jenkins.tasks.SimpleBuildStep;
-import org.apache.commons.lang.RandomStringUtils;
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
@@ -64,10 +81,22 @@ import org.kohsuke.stapler.QueryParameter;
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Ant launcher.
@@ -76,7 +105,9 @@ import java.util.List;
  */
 public class Exam extends Builder implements SimpleBuildStep {
 
-    private String hash = "";
+    /** free space in bytes below which a warning is shown */
+    private static final long MIN_USABLE_SPACE = 1024L * 1024 * 1024;
+
     /**
      * Identifies {@link ExamTool} to be used.
      */
@@ -133,9 +164,60 @@ public class Exam extends Builder implements SimpleBuildStep {
     private String loglevel_test_ctrl = getDescriptor().getDefaultLogLevel();
     private String loglevel_test_logic = getDescriptor().getDefaultLogLevel();
     private String loglevel_lib_ctrl = getDescriptor().getDefaultLogLevel();
+    /**
+     * Lowest log level of EXAM written to the console, null to write all lines.
+     */
+    private String loglevel_console;
 
     private boolean clearWorkspace;
 
+    /**
+     * Writes the full EXAM output to a compressed artifact instead of the console.
+     */
+    private boolean archiveOutput;
+
+    /**
+     * Ant patterns of the junit reports copied to the workspace, null to copy all reports.
+     */
+    private String reportIncludes;
+    private String reportExcludes;
+
+    /**
+     * Marks the build as unstable if a test case of the junit reports failed.
+     */
+    private boolean unstableOnFailure;
+
+    /**
+     * Shortest and longest delay between two testrun status polls in seconds, 0 to use the global configuration.
+     */
+    private int statusPollFastInterval;
+    private int statusPollSlowInterval;
+
+    /**
+     * Runs the test cases which failed or changed their verdict in the previous builds in a testrun of their own
+     * before the other test cases.
+     */
+    private boolean failedFirst;
+
+    /**
+     * Number of failed test cases after which the testrun is stopped, 0 to run all test cases.
+     */
+    private int failFastThreshold;
+
+    /**
+     * Number of shards the test cases are split into and the shard run by this step, from 0. A shard count below 2
+     * runs all test cases.
+     */
+    private int shardCount;
+    private int shardIndex;
+
+    /**
+     * Further system configurations run in EXAM instances of their own, one per line, and the maximum number of
+     * instances running at the same time, 0 for no limit.
+     */
+    private String systemConfigurations;
+    private int matrixConcurrency;
+
     public String getReportPrefix() {
         return reportPrefix;
     }
@@ -226,6 +308,15 @@ public class Exam extends Builder implements SimpleBuildStep {
         this.loglevel_lib_ctrl = loglevel_lib_ctrl;
     }
 
+    public String getLoglevel_console() {
+        return loglevel_console;
+    }
+
+    @DataBoundSetter
+    public void setLoglevel_console(String loglevel_console) {
+        this.loglevel_console = Util.fixEmpty(loglevel_console);
+    }
+
     @DataBoundSetter
     public void setClearWorkspace(boolean clearWorkspace) {
         this.clearWorkspace = clearWorkspace;
@@ -236,6 +327,98 @@ public class Exam extends Builder implements SimpleBuildStep {
         this.modelConfiguration = modelConfiguration;
     }
 
+    public int getStatusPollFastInterval() {
+        return statusPollFastInterval;
+    }
+
+    @DataBoundSetter
+    public void setStatusPollFastInterval(int statusPollFastInterval) {
+        this.statusPollFastInterval = Math.max(0, statusPollFastInterval);
+    }
+
+    public int getStatusPollSlowInterval() {
+        return statusPollSlowInterval;
+    }
+
+    @DataBoundSetter
+    public void setStatusPollSlowInterval(int statusPollSlowInterval) {
+        this.statusPollSlowInterval = Math.max(0, statusPollSlowInterval);
+    }
+
+    public boolean isFailedFirst() {
+        return failedFirst;
+    }
+
+    @DataBoundSetter
+    public void setFailedFirst(boolean failedFirst) {
+        this.failedFirst = failedFirst;
+    }
+
+    public int getFailFastThreshold() {
+        return failFastThreshold;
+    }
+
+    @DataBoundSetter
+    public void setFailFastThreshold(int failFastThreshold) {
+        this.failFastThreshold = Math.max(0, failFastThreshold);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    @DataBoundSetter
+    public void setShardCount(int shardCount) {
+        this.shardCount = Math.max(0, shardCount);
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    @DataBoundSetter
+    public void setShardIndex(int shardIndex) {
+        this.shardIndex = Math.max(0, shardIndex);
+    }
+
+    public String getSystemConfigurations() {
+        return systemConfigurations;
+    }
+
+    @DataBoundSetter
+    public void setSystemConfigurations(String systemConfigurations) {
+        this.systemConfigurations = Util.fixEmptyAndTrim(systemConfigurations);
+    }
+
+    /**
+     * @return the system configurations of the matrix, empty to run only the default system configuration
+     */
+    public List<String> getSystemConfigurationList() {
+        List<String> configurations = new ArrayList<>();
+        if (systemConfigurations == null) {
+            return configurations;
+        }
+        if (systemConfiguration != null) {
+            configurations.add(systemConfiguration);
+        }
+        for (String configuration : systemConfigurations.split("[\\r\\n,]+")) {
+            configuration = configuration.trim();
+            if (!configuration.isEmpty() && !configurations.contains(configuration)) {
+                configurations.add(configuration);
+            }
+        }
+        return configurations;
+    }
+
+    public int getMatrixConcurrency() {
+        return matrixConcurrency;
+    }
+
+    @DataBoundSetter
+    public void setMatrixConcurrency(int matrixConcurrency) {
+        this.matrixConcurrency = Math.max(0, matrixConcurrency);
+    }
+
     @DataBoundConstructor
     public Exam(String examName, String pythonName, String examModel, String examReport, String executionFile,
                 String systemConfiguration) {
@@ -279,6 +462,63 @@ public class Exam extends Builder implements SimpleBuildStep {
         return clearWorkspace;
     }
 
+    public boolean isArchiveOutput() {
+        return archiveOutput;
+    }
+
+    @DataBoundSetter
+    public void setArchiveOutput(boolean archiveOutput) {
+        this.archiveOutput = archiveOutput;
+    }
+
+    public String getReportIncludes() {
+        return reportIncludes;
+    }
+
+    @DataBoundSetter
+    public void setReportIncludes(String reportIncludes) {
+        this.reportIncludes = Util.fixEmptyAndTrim(reportIncludes);
+    }
+
+    public String getReportExcludes() {
+        return reportExcludes;
+    }
+
+    @DataBoundSetter
+    public void setReportExcludes(String reportExcludes) {
+        this.reportExcludes = Util.fixEmptyAndTrim(reportExcludes);
+    }
+
+    public boolean isUnstableOnFailure() {
+        return unstableOnFailure;
+    }
+
+    @DataBoundSetter
+    public void setUnstableOnFailure(boolean unstableOnFailure) {
+        this.unstableOnFailure = unstableOnFailure;
+    }
+
+    /**
+     * @return lowest log level shown in the console, or null to show all lines
+     */
+    private RestAPILogLevelEnum getConsoleLevel() {
+        if (loglevel_console == null || RestAPILogLevelEnum.INTERNAL.name().equals(loglevel_console)) {
+            return null;
+        }
+        return RestAPILogLevelEnum.valueOf(loglevel_console);
+    }
+
+    /**
+     * @return lowest log level shown in the console if the output is archived, at most WARNING
+     */
+    private RestAPILogLevelEnum getArchiveConsoleLevel() {
+        RestAPILogLevelEnum level = RestAPILogLevelEnum.WARNING;
+        if (loglevel_console != null && level.includesLogLevel(RestAPILogLevelEnum.valueOf(loglevel_console))) {
+            level = RestAPILogLevelEnum.valueOf(loglevel_console);
+        }
+        return level;
+    }
+
     /**
      * Gets the EXAM to invoke, or null to invoke the default one.
      */
@@ -323,24 +563,177 @@ public class Exam extends Builder implements SimpleBuildStep {
     public void perform(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, @Nonnull Launcher launcher,
                         @Nonnull TaskListener listener) throws InterruptedException, IOException {
 
-        ArgumentListBuilder args = new ArgumentListBuilder();
-
         EnvVars env = run.getEnvironment(listener);
+        if (!getSystemConfigurationList().isEmpty()) {
+            performMatrix(run, workspace, launcher, listener, env);
+            return;
+        }
+        ExamSession session = prepareSession(run, workspace, launcher, listener, env);
+        try {
+            runSession(session);
+        } catch (IOException e) {
+            Util.displayIOException(e, listener);
+
+            String errorMessage = Messages.EXAM_ExecFailed();
+            if (getExam() == null && (System.currentTimeMillis() - session.getStartTime()) < 1000) {
+                if (getDescriptor().getInstallations() == null)
+                // looks like the user didn't configure any EXAM
+                // installation
+                {
+                    errorMessage += Messages.EXAM_GlobalConfigNeeded();
+                } else
+                // There are EXAM installations configured but the project
+                // didn't pick it
+                {
+                    errorMessage += Messages.EXAM_ProjectConfigNeeded();
+                }
+            }
+            throw new AbortException(errorMessage);
+        }
+    }
+
+    /**
+     * Launches EXAM, waits for the testruns of the session, copies the reports and closes EXAM.
+     */
+    private void runSession(ExamSession session) throws IOException {
+        Run<?, ?> run = session.getRun();
+        boolean failed = true;
+        try {
+            launchSession(session);
+            if (session.isTestrunStarted()) {
+                ExamProgressAction progress = ExamProgressAction.start(run, UUID.randomUUID().toString(),
+                        executionFile, session.getTestrunStartTime());
+                progress.setTestIndex(session.getTestIndex());
+                try {
+                    do {
+                        session.getClientRequest().waitForTestrunEnds(run.getExecutor(),
+                                createPollingScheduler(run), progress::sample);
+                    } while (!isInterrupted(run) && session.startNextBatch());
+                } finally {
+                    progress.finish();
+                }
+                finishSession(session);
+            }
+            failed = false;
+        } catch (Exception e) {
+            throw new AbortException("ERROR: " + e.getMessage());
+        } finally {
+            try {
+                session.close();
+            } finally {
+                if (failed) {
+                    try {
+                        session.dumpErrorOut();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isInterrupted(Run<?, ?> run) {
+        Executor executor = run.getExecutor();
+        return Thread.currentThread().isInterrupted() || executor != null && executor.isInterrupted();
+    }
+
+    /**
+     * Runs the testrun with every system configuration of the matrix in its own EXAM instance, at most
+     * {@link #getMatrixConcurrency()} at the same time. The failed system configurations are listed after all
+     * testruns have ended.
+     */
+    public void performMatrix(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, @Nonnull Launcher launcher,
+                              @Nonnull TaskListener listener, @Nonnull EnvVars env)
+            throws InterruptedException, IOException {
+        List<String> configurations = getSystemConfigurationList();
+        int concurrency = matrixConcurrency > 0 ? Math.min(matrixConcurrency, configurations.size())
+                : configurations.size();
+        listener.getLogger().println("running " + configurations.size() + " system configurations, "
+                + concurrency + " at the same time");
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency,
+                new NamingThreadFactory(new DaemonThreadFactory(), "EXAM matrix " + run.getExternalizableId()));
+        Map<String, Future<ReportSummary>> results = new LinkedHashMap<>();
+        try {
+            for (String configuration : configurations) {
+                results.put(configuration, pool.submit(() -> runMatrixEntry(run, workspace, launcher, listener,
+                        new EnvVars(env), configuration)));
+            }
+            pool.shutdown();
+
+            int failed = 0;
+            listener.getLogger().println("EXAM matrix results:");
+            for (Map.Entry<String, Future<ReportSummary>> result : results.entrySet()) {
+                String status;
+                try {
+                    ReportSummary summary = result.getValue().get();
+                    status = summary == null ? "no reports" : summary.toString();
+                } catch (ExecutionException e) {
+                    failed++;
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    status = "FAILED " + cause.getMessage();
+                }
+                listener.getLogger().println("  " + result.getKey() + ": " + status);
+            }
+            if (failed > 0) {
+                throw new AbortException("ERROR: " + failed + " of " + configurations.size()
+                        + " system configurations failed");
+            }
+        } finally {
+            if (!pool.isTerminated()) {
+                // the build was aborted, the running testruns are stopped and EXAM is closed
+                pool.shutdownNow();
+                pool.awaitTermination(ExamSession.DISCONNECT_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Runs the testrun of one system configuration of the matrix. The console lines of the instance are prefixed
+     * with the system configuration.
+     *
+     * @return the summary of the junit reports, null if the testrun was not started
+     */
+    ReportSummary runMatrixEntry(Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener,
+                                 EnvVars env, String configuration) throws IOException, InterruptedException {
+        ExamConsolePrefix prefix = new ExamConsolePrefix(listener.getLogger(), "[" + configuration + "] ",
+                run.getCharset());
+        try {
+            TaskListener entryListener = new StreamTaskListener(prefix, run.getCharset());
+            ExamSession session = prepareSession(run, workspace, launcher, entryListener, env);
+            session.setSystemConfiguration(configuration);
+            runSession(session);
+            return session.getReportSummary();
+        } finally {
+            prefix.forceEol();
+        }
+    }
+
+    /**
+     * Resolves the EXAM and python installation on the node of the workspace and creates the command line.
+     *
+     * @return the session to launch EXAM
+     */
+    public ExamSession prepareSession(@Nonnull Run<?, ?> run, @Nonnull FilePath workspace, @Nonnull Launcher launcher,
+                                      @Nonnull TaskListener listener, @Nonnull EnvVars env)
+            throws InterruptedException, IOException {
+
+        if (shardCount > 1 && shardIndex >= shardCount) {
+            throw new AbortException("ERROR: shard index " + shardIndex + " is not below the shard count "
+                    + shardCount);
+        }
+        ArgumentListBuilder args = new ArgumentListBuilder();
 
         ExamTool examTool = getExam();
         PythonInstallation python = getPython();
         String exe = "EXAM.exe";
         String pythonexe = "";
         Node node = jenkins.internal.Util.workspaceToNode(workspace);
-        if (examTool == null) {
-            args.add("EXAM.exe");
-        } else {
+        if (examTool != null) {
             if (node == null) {
                 throw new AbortException(Messages.EXAM_NodeOffline());
             }
-            examTool = examTool.forNode(node, listener);
-            python = python.forNode(node, listener);
-            exe = examTool.getExecutable(launcher);
+            examTool = ToolResolutionCache.forNode(examTool, node, listener);
+            python = ToolResolutionCache.forNode(python, node, listener);
             pythonexe = python.getHome();
             if (!pythonexe.endsWith("exe")) {
                 if (!pythonexe.endsWith("\\") && !pythonexe.endsWith("/")) {
@@ -348,16 +741,8 @@ public class Exam extends Builder implements SimpleBuildStep {
                 }
                 pythonexe += "python.exe";
             }
-            if (exe == null) {
-                throw new AbortException(Messages.EXAM_ExecutableNotFound(examTool.getName()));
-            }
-            args.add(exe);
         }
 
-
-        File buildFile = new File(exe);
-        FilePath buildFilePath = new FilePath(buildFile);
-
         String dataPath = examTool.getHome();
         String configurationPath = null;
         String examWorkspace = null;
@@ -366,15 +751,76 @@ public class Exam extends Builder implements SimpleBuildStep {
             dataPath = examTool.getHome() + File.separator + relativeDataPath;
         }
         configurationPath = dataPath + File.separator + "configuration";
-        examWorkspace = workspace + File.separator + "workspace_exam_restApi";
-        FilePath source = workspace.child("workspace_exam_restApi");
-        FilePath target = workspace.child("target");
-        examWorkspace = examWorkspace.replaceAll("[\\/]]", File.separator);
         File configurationFile = new File(
                 dataPath + File.separator + "configuration" + File.separator + "config.ini");
-        if (!Remote.fileExists(launcher, configurationFile)) {
+
+        // everything needed from the node in one remote call
+        ExamPluginConfig config = Jenkins.getInstance().getDescriptorByType(ExamPluginConfig.class);
+        List<Integer> ports = new ArrayList<>();
+        for (int port = config.getPort(); port <= config.getPortRangeEnd(); port++) {
+            ports.add(port);
+        }
+        Preflight.Result preflight = new Preflight(examTool, configurationFile.getPath(),
+                workspace.getRemote(), ports).run(launcher);
+
+        if (examTool == null) {
+            args.add("EXAM.exe");
+        } else {
+            exe = preflight.getExecutable();
+            ToolResolutionCache.validateExecutable(node.getNodeName(), getExam(), exe,
+                    preflight.getExecutableModified());
+            if (exe == null) {
+                // translate the tools again with the next build
+                ToolResolutionCache.invalidate(node.getNodeName());
+                throw new AbortException(Messages.EXAM_ExecutableNotFound(examTool.getName()));
+            }
+            args.add(exe);
+        }
+        if (!preflight.isConfigurationFileExists()) {
             throw new AbortException(Messages.EXAM_NotExamConfigDirectory(configurationFile.getPath()));
         }
+        if (preflight.getUsableSpace() >= 0 && preflight.getUsableSpace() < MIN_USABLE_SPACE) {
+            listener.getLogger().println("WARNING: only " + preflight.getUsableSpace() / (1024 * 1024)
+                    + " MB free in " + workspace.getRemote());
+        }
+
+        File buildFile = new File(exe);
+        FilePath buildFilePath = new FilePath(buildFile);
+
+        String nodeName = node == null ? "" : node.getNodeName();
+        boolean daemonMode = config.isDaemonMode() && node != null && node.getRootPath() != null;
+        // the console level is filtered on the node, a running EXAM keeps the level it was started with
+        String daemonKey = exe + " " + configurationPath + " " + javaOpts + " " + getConsoleLevel();
+        warnStaleProcesses(nodeName, preflight, listener);
+
+        ExamSession session = new ExamSession(run, workspace, launcher, listener, env);
+        session.setPwd(buildFilePath.getParent());
+        session.setPythonExe(pythonexe);
+        session.setReportIncludes(reportIncludes);
+        session.setReportExcludes(reportExcludes);
+        session.setUnstableOnFailure(unstableOnFailure);
+        session.setDaemonMode(daemonMode);
+        session.setDaemonKey(daemonKey);
+        session.setNodeName(nodeName);
+        session.setHost(preflight.getIp());
+
+        // the first attempt uses the ports checked by the preflight
+        AtomicReference<List<Integer>> checkedPorts = new AtomicReference<>(preflight.getFreePorts());
+        long queueTimeout = TimeUnit.MINUTES.toMillis(config.getQueueTimeout());
+        int port = ExamResourceQueue.get().acquire(nodeName,
+                () -> leaseExam(session, launcher, config, checkedPorts.getAndSet(null)), queueTimeout,
+                listener.getLogger());
+        FilePath examWorkspacePath;
+        if (session.getDaemon() != null) {
+            examWorkspacePath = session.getDaemon().getExamWorkspace();
+        } else if (daemonMode) {
+            // a daemon outlives the workspace of the build which has launched it
+            examWorkspacePath = node.getRootPath().child("exam-daemon").child("workspace_exam_restApi_" + port);
+        } else {
+            // builds of the matrix or of concurrent jobs may share the workspace, each instance needs its own
+            examWorkspacePath = workspace.child("workspace_exam_restApi_" + port);
+        }
+        examWorkspace = examWorkspacePath.getRemote();
 
         if (workspace != null) {
             args.add("-data", examWorkspace);
@@ -387,7 +833,6 @@ public class Exam extends Builder implements SimpleBuildStep {
             examTool.buildEnvVars(env);
         }
 
-        int port = Jenkins.getInstance().getDescriptorByType(ExamPluginConfig.class).getPort();
         args.add("--launcher.appendVmargs", "-vmargs", "-DUSE_CONSOLE=true", "-DRESTAPI=true",
                 "-DRESTAPI_PORT=" + port);
         if (javaOpts != null) {
@@ -399,81 +844,237 @@ public class Exam extends Builder implements SimpleBuildStep {
             args = toWindowsCommand(args.toWindowsCommand());
         }
 
-        long startTime = System.currentTimeMillis();
-        try {
-            ExamConsoleAnnotator eca = new ExamConsoleAnnotator(listener.getLogger(), run.getCharset());
-            ExamConsoleErrorOut examErr = new ExamConsoleErrorOut(listener.getLogger(), run.getCharset());
-            boolean ret = true;
-            String slaveIp = Remote.getIP(launcher);
-            ClientRequest clientRequest = new ClientRequest(launcher, listener.getLogger(),
-                    "http://" + slaveIp + ":" + port + "/examRest");
-            try {
+        session.setArgs(args);
+        session.setPort(port);
+        session.setExamWorkspace(examWorkspacePath);
+        return session;
+    }
 
-                ProcStarter process = launcher.launch().cmds(args).envs(env).pwd(buildFilePath.getParent());
-                if (clientRequest.isApiAvailable()) {
-                    listener.getLogger().println("ERROR: EXAM is allready running");
-                    throw new AbortException("ERROR: EXAM is allready running");
-                }
-                process.stderr(examErr);
-                process.stdout(eca);
-                process.start();
-
-                ret = clientRequest.connectClient(5 * 60 * 1000);
-                if (ret) {
-                    TestConfiguration tc = createTestConfiguration();
-                    tc.setPythonPath(pythonexe);
-                    FilterConfiguration fc = new FilterConfiguration();
-
-                    for (TestrunFilter filter : testrunFilter) {
-                        fc.addTestrunFilter(new jenkins.internal.data.TestrunFilter(filter.name, filter.value,
-                                Boolean.valueOf(filter.adminCases), Boolean.valueOf(filter.activateTestcases)));
-                    }
+    /**
+     * Leases an idle daemon or a free port on the node of the session. If all ports are in use, an idle daemon the
+     * session can not use is shut down to free its port.
+     *
+     * @param freePorts ports known to be free on the node, or null to check the ports on the node
+     * @return the port of the REST API, or null if EXAM is busy
+     */
+    private Integer leaseExam(ExamSession session, Launcher launcher, ExamPluginConfig config,
+                              List<Integer> freePorts) throws IOException, InterruptedException {
+        if (session.isDaemonMode()) {
+            ExamDaemon daemon = ExamDaemonPool.get().lease(session.getNodeName(), session.getDaemonKey());
+            if (daemon != null) {
+                session.setDaemon(daemon);
+                return daemon.getPort();
+            }
+        }
+        int port = ExamPortLeaseManager.get().lease(session.getNodeName(), launcher, config.getPort(),
+                config.getPortRangeEnd(), freePorts);
+        if (port < 0 && ExamDaemonPool.get().evictIdle(session.getNodeName())) {
+            // an idle daemon of another command line held the port
+            session.getListener().getLogger().println("shut down an idle EXAM with another command line");
+            port = ExamPortLeaseManager.get().lease(session.getNodeName(), launcher, config.getPort(),
+                    config.getPortRangeEnd(), null);
+        }
+        if (port < 0) {
+            return null;
+        }
+        session.setPortLeased(true);
+        return port;
+    }
 
-                    if (isClearWorkspace()) {
-                        clientRequest.clearWorkspace(tc.getModelProject().getModelName());
-                    }
-                    clientRequest.clearWorkspace(tc.getReportProject().getProjectName());
-                    if (!testrunFilter.isEmpty()) {
-                        clientRequest.setTestrunFilter(fc);
-                    }
-                    clientRequest.startTestrun(tc);
+    /**
+     * Warns about EXAM processes on the node which are neither a daemon nor use a leased port, e.g. left over from
+     * an aborted build. They are not killed, they may be started outside of Jenkins.
+     */
+    private void warnStaleProcesses(String nodeName, Preflight.Result preflight, TaskListener listener) {
+        for (Preflight.ExamProcess process : preflight.getExamProcesses()) {
+            if (process.getPort() < 0 || !ExamPortLeaseManager.get().isLeased(nodeName, process.getPort())) {
+                listener.getLogger().println("WARNING: EXAM process " + process.getPid()
+                        + (process.getPort() < 0 ? "" : " on port " + process.getPort())
+                        + " is not controlled by this Jenkins");
+            }
+        }
+    }
 
-                    clientRequest.waitForTestrunEnds(run.getExecutor());
-                    clientRequest.convert(tc.getReportProject().getProjectName());
+    /**
+     * Launches EXAM, waits for the REST API and starts the testrun.
+     * If EXAM does not answer, the testrun is not started, see {@link ExamSession#isTestrunStarted()}.
+     */
+    public void launchSession(ExamSession session) throws InterruptedException, IOException {
+        Run<?, ?> run = session.getRun();
+        TaskListener listener = session.getListener();
+        Launcher launcher = session.getLauncher();
+
+        ExamConsoleAnnotator eca = new ExamConsoleAnnotator(listener.getLogger(), run.getCharset());
+        ExamPluginConfig config = Jenkins.getInstance().getDescriptorByType(ExamPluginConfig.class);
+        int pumpCapacity = config.getLogBufferSize() * 1024;
+        // the log level filter and the log pump run on the node of EXAM, only the kept lines reach the controller
+        ExamEventPatterns patterns = config.getEventPatterns();
+        ExamEventStream events = new ExamEventStream(eca, session.getTestIndex(), run.getCharset(), patterns);
+        session.setEventStream(events);
+        OutputStream examOut = events;
+        session.setAnnotator(eca);
+        String slaveIp = session.getHost() != null ? session.getHost() : Remote.getIP(launcher);
+        String baseUrl = "http://" + slaveIp + ":" + session.getPort() + "/examRest";
+        ClientRequest clientRequest = new ClientRequest(launcher, listener.getLogger(), baseUrl);
+        session.setHost(slaveIp);
+        session.setClientRequest(clientRequest);
+
+        ExamDaemon daemon = session.getDaemon();
+        if (archiveOutput && (daemon != null || session.isDaemonMode())) {
+            listener.getLogger().println("WARNING: the output of an EXAM kept running can not be archived");
+        }
+        boolean connected;
+        if (daemon != null) {
+            listener.getLogger().println("using running EXAM, " + daemon.getRuns() + " testruns since its start");
+            daemon.getOut().setTarget(examOut);
+            daemon.getProc().resetErrorOutput();
+            session.setProc(daemon.getProc());
+            connected = clientRequest.connectClient(ExamSession.CONNECT_TIMEOUT, daemon.getProc());
+            if (connected) {
+                clientRequest.clearWorkspace(null);
+            }
+        } else {
+            if (clientRequest.isApiAvailable()) {
+                listener.getLogger().println("ERROR: EXAM is allready running");
+                throw new AbortException("ERROR: EXAM is allready running");
+            }
+            if (session.isDaemonMode()) {
+                daemon = new ExamDaemon(session.getNodeName(), session.getDaemonKey(), slaveIp, session.getPort(),
+                        session.getExamWorkspace());
+                daemon.getOut().setTarget(examOut);
+                // keep the process tree killer from closing EXAM at the end of the build
+                EnvVars daemonEnv = new EnvVars(session.getEnv());
+                daemonEnv.put("BUILD_ID", "dontKillMe");
+                daemonEnv.put("JENKINS_NODE_COOKIE", "dontKillMe");
+                session.setProc(ExamOutputArchive.launch(launcher, session.getArgs(), daemonEnv, session.getPwd(),
+                        null, daemon.getOut(), patterns, getConsoleLevel(), pumpCapacity,
+                        config.getLogOverflowPolicy()));
+            } else if (archiveOutput) {
+                FilePath outputLog = session.getWorkspace().child("target")
+                        .child("exam-output-" + session.getPort() + ExamOutputArchive.EXTENSION);
+                listener.getLogger().println("writing the EXAM output to " + outputLog.getName()
+                        + ", only warnings and errors are shown");
+                session.setOutputLog(outputLog);
+                session.setProc(ExamOutputArchive.launch(launcher, session.getArgs(), session.getEnv(),
+                        session.getPwd(), outputLog, examOut, patterns, getArchiveConsoleLevel(), pumpCapacity,
+                        config.getLogOverflowPolicy()));
+            } else {
+                session.setProc(ExamOutputArchive.launch(launcher, session.getArgs(), session.getEnv(),
+                        session.getPwd(), null, examOut, patterns, getConsoleLevel(), pumpCapacity,
+                        config.getLogOverflowPolicy()));
+            }
+            if (daemon != null) {
+                daemon.setProc(session.getProc());
+                ExamDaemonPool.get().register(daemon);
+                session.setDaemon(daemon);
+            }
+            connected = clientRequest.connectClient(ExamSession.CONNECT_TIMEOUT, session.getProc());
+        }
 
-                    hash = "__" + RandomStringUtils.random(5, "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray());
-                    source = source.child("reports").child(tc.getReportProject().getProjectName()).child("junit");
-                    target = target.child("test-reports").child(tc.getModelProject().getProjectName() + hash);
-                    source.copyRecursiveTo(target);
-                }
-            } catch (Exception e) {
-                throw new AbortException("ERROR: " + e.getMessage());
-            } finally {
-                eca.forceEol();
-                clientRequest.disconnectClient(60 * 1000);
+        if (!connected) {
+            listener.getLogger().println("ERROR: EXAM REST API at " + baseUrl + " not available");
+            session.dumpErrorOut();
+        } else {
+            TestConfiguration tc = createTestConfiguration();
+            tc.setPythonPath(session.getPythonExe());
+            if (session.getSystemConfiguration() != null) {
+                tc.setSystemConfig(session.getSystemConfiguration());
+                tc.setReportPrefix(Util.fixNull(reportPrefix)
+                        + session.getSystemConfiguration().replaceAll("[^A-Za-z0-9_.-]", "_") + "_");
             }
-            return;
-        } catch (IOException e) {
-            Util.displayIOException(e, listener);
+            FilterConfiguration fc = new FilterConfiguration();
 
-            String errorMessage = Messages.EXAM_ExecFailed();
-            if (examTool == null && (System.currentTimeMillis() - startTime) < 1000) {
-                if (getDescriptor().getInstallations() == null)
-                // looks like the user didn't configure any EXAM
-                // installation
-                {
-                    errorMessage += Messages.EXAM_GlobalConfigNeeded();
-                } else
-                // There are EXAM installations configured but the project
-                // didn't pick it
-                {
-                    errorMessage += Messages.EXAM_ProjectConfigNeeded();
+            for (TestrunFilter filter : testrunFilter) {
+                fc.addTestrunFilter(new jenkins.internal.data.TestrunFilter(filter.name, filter.value,
+                        Boolean.valueOf(filter.adminCases), Boolean.valueOf(filter.activateTestcases)));
+            }
+            if (shardCount > 1) {
+                for (jenkins.internal.data.TestrunFilter shardFilter : planShard(session)) {
+                    fc.addTestrunFilter(shardFilter);
                 }
             }
-            throw new AbortException(errorMessage);
+            if (failedFirst) {
+                List<FilterConfiguration> batches = planBatches(session, fc);
+                if (!batches.isEmpty()) {
+                    fc = batches.get(0);
+                    session.setPendingBatches(batches.subList(1, batches.size()));
+                }
+            }
+
+            if (isClearWorkspace()) {
+                clientRequest.clearWorkspace(tc.getModelProject().getModelName());
+            }
+            clientRequest.clearWorkspace(tc.getReportProject().getProjectName());
+            if (!fc.getTestrunFilter().isEmpty()) {
+                clientRequest.setTestrunFilter(fc);
+            }
+            session.setFailFastThreshold(failFastThreshold);
+            clientRequest.startTestrun(tc);
+            session.setTestrunStartTime(System.currentTimeMillis());
+            session.setTestConfiguration(tc);
+        }
+    }
+
+    /**
+     * Assigns the test cases to the shards with the result index of the job.
+     *
+     * @return the filters deactivating the test cases of the other shards, empty to run all test cases
+     */
+    private List<jenkins.internal.data.TestrunFilter> planShard(ExamSession session) throws IOException {
+        Run<?, ?> run = session.getRun();
+        ShardPlanner planner = new ShardPlanner(ExamResultIndex.forJob(run.getParent().getRootDir()), shardCount,
+                run.getNumber(), session.getSystemConfiguration());
+        session.getListener().getLogger().println("running shard " + (shardIndex + 1) + " of " + shardCount + " with "
+                + planner.getTests(shardIndex).size() + " testcases of the previous builds, expected duration "
+                + Util.getTimeSpanString(planner.getDuration(shardIndex)));
+        return planner.createFilters(shardIndex);
+    }
+
+    /**
+     * Splits the testrun into the test cases to run first and the other test cases with the result index of the
+     * job.
+     *
+     * @return the filters of the testruns, empty to run all test cases in one testrun
+     */
+    private List<FilterConfiguration> planBatches(ExamSession session, FilterConfiguration filters) {
+        PrintStream logger = session.getListener().getLogger();
+        try {
+            ExamResultIndex index = ExamResultIndex.forJob(session.getRun().getParent().getRootDir());
+            List<FilterConfiguration> batches = new TestrunBatchPlanner(index, filters.getTestrunFilter(),
+                    session.getSystemConfiguration()).plan();
+            if (batches.isEmpty()) {
+                logger.println("no failed or changed testcases in the previous builds, running all testcases");
+            } else {
+                logger.println("running the failed or changed testcases of the previous builds first");
+            }
+            return batches;
+        } catch (IOException e) {
+            logger.println("WARNING: the result index could not be read, running all testcases: " + e.getMessage());
+            return Collections.emptyList();
         }
     }
 
+    /**
+     * Converts the results of the finished testrun to junit and copies them to the target directory of the
+     * workspace.
+     */
+    public void finishSession(ExamSession session) throws InterruptedException, IOException {
+        session.finish();
+    }
+
+    /**
+     * Creates the scheduler for the testrun status polls. The job settings override the global configuration,
+     * the expected duration is estimated from the previous builds.
+     */
+    public PollingScheduler createPollingScheduler(Run<?, ?> run) {
+        ExamPluginConfig config = Jenkins.getInstance().getDescriptorByType(ExamPluginConfig.class);
+        int fast = statusPollFastInterval > 0 ? statusPollFastInterval : config.getStatusPollFastInterval();
+        int slow = statusPollSlowInterval > 0 ? statusPollSlowInterval : config.getStatusPollSlowInterval();
+        long expectedDuration = run.getEstimatedDuration();
+        return new PollingScheduler(fast * 1000L, Math.max(fast, slow) * 1000L, expectedDuration,
+                config.getTestrunDetectTimeout() * 1000L);
+    }
+
     private ExamModelConfig getModel(String name) {
         for (ExamModelConfig mConfig : getDescriptor().getModelConfigs()) {
             if (mConfig.getName().equalsIgnoreCase(name)) {
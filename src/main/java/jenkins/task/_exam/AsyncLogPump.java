@@ -0,0 +1,347 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.console.LineTransformationOutputStream;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.internal.enumeration.LogOverflowPolicy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decouples the output of EXAM from the console of the build.
+ * <p>
+ * The pump runs on the node of EXAM, see {@link ExamOutputArchive}, so the output pipe of EXAM is drained there
+ * even if the controller is slow. The lines written to the pump are stored in a bounded ring buffer and written to
+ * the console by a separate thread. If the console is too slow and the buffer is full, the
+ * {@link LogOverflowPolicy} decides whether EXAM waits, DEBUG lines are dropped or the output is spilled to a
+ * temporary file. The order of the lines is kept.
+ */
+public class AsyncLogPump extends LineTransformationOutputStream {
+
+    private static final Logger LOGGER = Logger.getLogger(AsyncLogPump.class.getName());
+    private static final ThreadFactory THREAD_FACTORY = new NamingThreadFactory(new DaemonThreadFactory(),
+            "EXAM log pump");
+
+    /** default size of the ring buffer in bytes */
+    public static final int DEFAULT_CAPACITY = 1024 * 1024;
+
+    /** maximum time to wait for the console when the pump is closed */
+    private static final long CLOSE_TIMEOUT = 60;
+
+    private static final byte[][] DEBUG_MARKERS = {"DEBUG".getBytes(), "INTERNAL".getBytes()};
+    /** the level is expected at the start of a line */
+    private static final int DEBUG_MARKER_RANGE = 64;
+
+    private final OutputStream out;
+    private final LogOverflowPolicy policy;
+    private final Object lock = new Object();
+    private final byte[] buffer;
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    private int head;
+    private int size;
+    private boolean closed;
+    /** a chunk taken from the buffer is being written to the console */
+    private boolean writing;
+
+    private File spillFile;
+    private RandomAccessFile spill;
+    private long spillRead;
+    private long spillWrite;
+    private boolean spilling;
+
+    private long droppedLines;
+    private long spilledBytes;
+
+    /**
+     * @param out      the console of the build
+     * @param capacity size of the ring buffer in bytes
+     * @param policy   what to do if the buffer is full
+     */
+    public AsyncLogPump(OutputStream out, int capacity, LogOverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("invalid capacity: " + capacity);
+        }
+        this.out = out;
+        this.policy = policy == null ? LogOverflowPolicy.BLOCK : policy;
+        this.buffer = new byte[capacity];
+        THREAD_FACTORY.newThread(this::drain).start();
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            if (spilling) {
+                appendSpill(b, 0, len);
+                return;
+            }
+            if (len > buffer.length - size) {
+                if (policy == LogOverflowPolicy.SPILL) {
+                    appendSpill(b, 0, len);
+                    return;
+                }
+                if (policy == LogOverflowPolicy.DROP_DEBUG && isDebugLine(b, len)) {
+                    droppedLines++;
+                    return;
+                }
+            }
+            int off = 0;
+            while (off < len) {
+                while (size == buffer.length && !closed) {
+                    waitForConsole();
+                }
+                if (closed) {
+                    return;
+                }
+                int n = Math.min(len - off, buffer.length - size);
+                put(b, off, n);
+                off += n;
+            }
+        }
+    }
+
+    private void waitForConsole() throws IOException {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the console", e);
+        }
+    }
+
+    private void put(byte[] b, int off, int len) {
+        int tail = (head + size) % buffer.length;
+        int first = Math.min(len, buffer.length - tail);
+        System.arraycopy(b, off, buffer, tail, first);
+        System.arraycopy(b, off + first, buffer, 0, len - first);
+        size += len;
+        lock.notifyAll();
+    }
+
+    private int take(byte[] chunk) {
+        int n = Math.min(chunk.length, size);
+        int first = Math.min(n, buffer.length - head);
+        System.arraycopy(buffer, head, chunk, 0, first);
+        System.arraycopy(buffer, 0, chunk, first, n - first);
+        head = (head + n) % buffer.length;
+        size -= n;
+        lock.notifyAll();
+        return n;
+    }
+
+    private void appendSpill(byte[] b, int off, int len) throws IOException {
+        if (spill == null) {
+            spillFile = File.createTempFile("exam-log", ".spill");
+            spill = new RandomAccessFile(spillFile, "rw");
+        }
+        spill.seek(spillWrite);
+        spill.write(b, off, len);
+        spillWrite += len;
+        spilledBytes += len;
+        spilling = true;
+        lock.notifyAll();
+    }
+
+    private int readSpill(byte[] chunk) throws IOException {
+        spill.seek(spillRead);
+        int n = spill.read(chunk, 0, (int) Math.min(chunk.length, spillWrite - spillRead));
+        spillRead += Math.max(n, 0);
+        if (spillRead >= spillWrite) {
+            // the console has caught up, new lines go to the buffer again
+            spill.setLength(0);
+            spillRead = 0;
+            spillWrite = 0;
+            spilling = false;
+            lock.notifyAll();
+        }
+        return n;
+    }
+
+    /**
+     * Writes the buffered output to the console until the pump is closed.
+     */
+    private void drain() {
+        byte[] chunk = new byte[Math.min(buffer.length, 8192)];
+        boolean consoleFailed = false;
+        try {
+            while (true) {
+                int n;
+                synchronized (lock) {
+                    while (size == 0 && !spilling && !closed) {
+                        lock.wait();
+                    }
+                    if (size > 0) {
+                        n = take(chunk);
+                    } else if (spilling) {
+                        n = readSpill(chunk);
+                    } else {
+                        break;
+                    }
+                    writing = true;
+                }
+                if (n > 0 && !consoleFailed) {
+                    try {
+                        out.write(chunk, 0, n);
+                        if (isEmpty()) {
+                            out.flush();
+                        }
+                    } catch (IOException e) {
+                        // keep draining, EXAM must not stall
+                        consoleFailed = true;
+                        LOGGER.log(Level.WARNING, "writing the EXAM output to the console failed", e);
+                    }
+                }
+                synchronized (lock) {
+                    writing = false;
+                    lock.notifyAll();
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            LOGGER.log(Level.WARNING, "EXAM log pump failed", e);
+        } finally {
+            synchronized (lock) {
+                closed = true;
+                size = 0;
+                lock.notifyAll();
+            }
+            drained.countDown();
+        }
+    }
+
+    /**
+     * Waits until the lines written so far have reached the console.
+     *
+     * @param timeout maximum time to wait in ms
+     * @return true if the console has taken all lines
+     */
+    public boolean awaitEmpty(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (lock) {
+            while ((size > 0 || spilling || writing) && !closed) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+            return size == 0 && !spilling;
+        }
+    }
+
+    private boolean isEmpty() {
+        synchronized (lock) {
+            return size == 0 && !spilling;
+        }
+    }
+
+    /**
+     * @return true if the line contains DEBUG or INTERNAL near its start
+     */
+    static boolean isDebugLine(byte[] b, int len) {
+        int range = Math.min(len, DEBUG_MARKER_RANGE);
+        for (byte[] marker : DEBUG_MARKERS) {
+            for (int i = 0; i + marker.length <= range; i++) {
+                int j = 0;
+                while (j < marker.length && b[i + j] == marker[j]) {
+                    j++;
+                }
+                if (j == marker.length) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of lines dropped because the buffer was full
+     */
+    public long getDroppedLines() {
+        synchronized (lock) {
+            return droppedLines;
+        }
+    }
+
+    /**
+     * @return number of bytes written to the spill file
+     */
+    public long getSpilledBytes() {
+        synchronized (lock) {
+            return spilledBytes;
+        }
+    }
+
+    /**
+     * Writes the remaining output to the console. The console itself is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed && drained.getCount() == 0) {
+                return;
+            }
+        }
+        forceEol();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            if (!drained.await(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                LOGGER.warning("the console did not take the EXAM output in " + CLOSE_TIMEOUT + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (lock) {
+                if (spill != null) {
+                    spill.close();
+                    spill = null;
+                    if (!spillFile.delete()) {
+                        spillFile.deleteOnExit();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -34,39 +34,50 @@ import hudson.console.LineTransformationOutputStream;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Filter {@link OutputStream} that places an annotation that marks Exam target
  * execution.
+ * <p>
+ * The lines are not decoded, the prefix is encoded once and empty lines are detected on the bytes, so no objects
+ * are created per line. The charset must encode CR and LF as single bytes, which all ASCII compatible charsets do.
  *
  * @since 1.349
  */
 public class ExamConsoleAnnotator extends LineTransformationOutputStream {
+    private static final String PREFIX = "EXAM: ";
+
     private final OutputStream out;
     private final Charset charset;
+    private final byte[] prefix;
 
     private boolean seenEmptyLine;
 
     public ExamConsoleAnnotator(OutputStream out, Charset charset) {
         this.out = out;
         this.charset = charset;
+        this.prefix = PREFIX.getBytes(charset == null ? Charset.defaultCharset() : charset);
     }
 
     @Override protected void eol(byte[] b, int len) throws IOException {
-        String line = charset.decode(ByteBuffer.wrap(b, 0, len)).toString();
-
-        // trim off CR/LF from the end
-        line = trimEOL(line);
-
-        seenEmptyLine = line.length() == 0;
-        out.write("EXAM: ".getBytes());
+        seenEmptyLine = isEmptyLine(b, len);
+        out.write(prefix);
         out.write(b, 0, len);
     }
 
+    /**
+     * @return true if the line contains nothing but CR/LF
+     */
+    static boolean isEmptyLine(byte[] b, int len) {
+        for (int i = 0; i < len; i++) {
+            if (b[i] != '\n' && b[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean endsWith(String line, char c) {
         int len = line.length();
         return len > 0 && line.charAt(len - 1) == c;
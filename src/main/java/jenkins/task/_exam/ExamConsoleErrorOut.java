@@ -34,25 +34,90 @@ import hudson.console.LineTransformationOutputStream;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 /**
- * Filter {@link OutputStream} that places an annotation that marks Exam target
- * execution.
+ * Filter {@link OutputStream} that keeps the last lines of the Exam error output.
+ * <p>
+ * The lines are not written to the console, they are kept in a ring buffer outside the heap which is allocated
+ * with the first line. The buffer lives on the node of EXAM, see {@link ExamOutputArchive}, and is fetched and
+ * dumped only if the build fails, see {@link ExamSession#dumpErrorOut()}.
  *
  * @since 1.349
  */
 public class ExamConsoleErrorOut extends LineTransformationOutputStream {
+
+    /** default number of bytes kept */
+    public static final int DEFAULT_CAPACITY = 256 * 1024;
+
     private final OutputStream out;
     private final Charset charset;
+    private final int capacity;
+    private ByteBuffer ring;
+    private long written;
 
     public ExamConsoleErrorOut(OutputStream out, Charset charset) {
+        this(out, charset, DEFAULT_CAPACITY);
+    }
+
+    public ExamConsoleErrorOut(OutputStream out, Charset charset, int capacity) {
         this.out = out;
         this.charset = charset;
+        this.capacity = capacity;
+    }
+
+    @Override protected synchronized void eol(byte[] b, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (ring == null) {
+            ring = ByteBuffer.allocateDirect(capacity);
+        }
+        // only the end of a line longer than the buffer is kept
+        int off = Math.max(0, len - capacity);
+        written += off;
+        while (off < len) {
+            int pos = (int) (written % capacity);
+            int n = Math.min(len - off, capacity - pos);
+            ring.position(pos);
+            ring.put(b, off, n);
+            off += n;
+            written += n;
+        }
+    }
+
+    /**
+     * @return number of bytes written to the error output
+     */
+    public synchronized long getWritten() {
+        return written;
     }
 
-    @Override protected void eol(byte[] b, int len) throws IOException {
-        return;
+    /**
+     * Forgets the error output written so far.
+     */
+    public synchronized void reset() {
+        written = 0;
+    }
+
+    /**
+     * @return the last bytes of the error output, at most the capacity of the buffer
+     */
+    public synchronized byte[] getTail() {
+        int size = (int) Math.min(written, capacity);
+        byte[] tail = new byte[size];
+        if (size == 0) {
+            return tail;
+        }
+        ByteBuffer view = ring.duplicate();
+        int start = written > capacity ? (int) (written % capacity) : 0;
+        int first = Math.min(size, capacity - start);
+        view.position(start);
+        view.get(tail, 0, first);
+        view.position(0);
+        view.get(tail, first, size - first);
+        return tail;
     }
 
     private boolean endsWith(String line, char c) {
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.console.LineTransformationOutputStream;
+import jenkins.internal.enumeration.RestAPILogLevelEnum;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Filter {@link OutputStream} that drops the lines of EXAM below the log level of the console.
+ * <p>
+ * The log level is detected on the raw bytes of a line, the line is not decoded. Lines without a log level, like
+ * stack traces, belong to the previous message and are kept or dropped with it. The test case lines matching the
+ * {@link ExamEventPatterns} are always kept, the {@link ExamEventStream} on the controller needs them. Only lines
+ * which would be dropped are decoded to match them.
+ * <p>
+ * The filter runs on the node of EXAM, see {@link ExamOutputArchive}, so the dropped lines never cross the remoting
+ * channel.
+ */
+public class ExamConsoleLevelFilter extends LineTransformationOutputStream {
+
+    /** the log level is expected at the start of a line */
+    private static final int LEVEL_RANGE = 64;
+
+    private static final RestAPILogLevelEnum[] LEVELS = {RestAPILogLevelEnum.ERROR, RestAPILogLevelEnum.WARNING,
+            RestAPILogLevelEnum.INFO, RestAPILogLevelEnum.DEBUG, RestAPILogLevelEnum.INTERNAL};
+    private static final byte[][] TOKENS = new byte[LEVELS.length][];
+
+    static {
+        for (int i = 0; i < LEVELS.length; i++) {
+            TOKENS[i] = LEVELS[i].name().getBytes();
+        }
+    }
+
+    private final OutputStream out;
+    private final RestAPILogLevelEnum threshold;
+    private final ExamEventPatterns patterns;
+    private boolean passing = true;
+    private long droppedLines;
+
+    /**
+     * @param out       the next stream of the console chain
+     * @param threshold lowest log level written to the console
+     */
+    public ExamConsoleLevelFilter(OutputStream out, RestAPILogLevelEnum threshold) {
+        this(out, threshold, null);
+    }
+
+    /**
+     * @param out       the next stream of the console chain
+     * @param threshold lowest log level written to the console
+     * @param patterns  patterns of the test case lines kept at every log level, may be null
+     */
+    public ExamConsoleLevelFilter(OutputStream out, RestAPILogLevelEnum threshold, ExamEventPatterns patterns) {
+        this.out = out;
+        this.threshold = threshold;
+        this.patterns = patterns == null || patterns.isEmpty() ? null : patterns;
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        RestAPILogLevelEnum level = detectLevel(b, len);
+        if (level != null) {
+            passing = threshold.includesLogLevel(level);
+        }
+        if (passing || isEvent(b, len)) {
+            out.write(b, 0, len);
+        } else {
+            droppedLines++;
+        }
+    }
+
+    private boolean isEvent(byte[] b, int len) {
+        return patterns != null && patterns.matches(new String(b, 0, len, Charset.defaultCharset()));
+    }
+
+    /**
+     * @return number of lines below the log level of the console
+     */
+    public long getDroppedLines() {
+        return droppedLines;
+    }
+
+    /**
+     * Finds the first log level token at the start of the line. A token must not be part of a longer word.
+     *
+     * @return the log level of the line, or null if the line has no log level
+     */
+    static RestAPILogLevelEnum detectLevel(byte[] b, int len) {
+        int range = Math.min(len, LEVEL_RANGE);
+        for (int i = 0; i < range; i++) {
+            if (!isWordByte(b[i]) || (i > 0 && isWordByte(b[i - 1]))) {
+                continue;
+            }
+            for (int t = 0; t < TOKENS.length; t++) {
+                byte[] token = TOKENS[t];
+                int end = i + token.length;
+                if (end > len || (end < len && isWordByte(b[end]))) {
+                    continue;
+                }
+                int j = 0;
+                while (j < token.length && b[i + j] == token[j]) {
+                    j++;
+                }
+                if (j == token.length) {
+                    return LEVELS[t];
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWordByte(byte c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Writes the last line, the next stream is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        forceEol();
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package jenkins.task._exam;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Filter {@link OutputStream} that prefixes every line, e.g. with the system configuration of an EXAM instance of
+ * a matrix whose lines are written to the same console as the lines of the other instances.
+ * <p>
+ * The prefix and the line are written with one call, so the lines of concurrent writers to the same
+ * {@link java.io.PrintStream} are not mixed. The stream below is not closed.
+ */
+public class ExamConsolePrefix extends LineTransformationOutputStream {
+
+    private final OutputStream out;
+    private final byte[] prefix;
+    private byte[] line = new byte[256];
+
+    public ExamConsolePrefix(OutputStream out, String prefix, Charset charset) {
+        this.out = out;
+        this.prefix = prefix.getBytes(charset == null ? Charset.defaultCharset() : charset);
+    }
+
+    @Override protected void eol(byte[] b, int len) throws IOException {
+        int size = prefix.length + len;
+        if (line.length < size) {
+            line = new byte[Math.max(size, line.length * 2)];
+        }
+        System.arraycopy(prefix, 0, line, 0, prefix.length);
+        System.arraycopy(b, 0, line, prefix.length, len);
+        out.write(line, 0, size);
+    }
+
+    @Override public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.FilePath;
+import jenkins.internal.ClientRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * EXAM instance which is kept running on a node and reused by the following builds.
+ * <p>
+ * The console output of EXAM is written to the build which has leased the daemon and is discarded while the
+ * daemon is idle.
+ */
+public class ExamDaemon {
+
+    private final String nodeName;
+    private final String key;
+    private final String host;
+    private final int port;
+    private final FilePath examWorkspace;
+    private final DaemonOutputStream out = new DaemonOutputStream();
+    private final long created = System.currentTimeMillis();
+
+    private ExamProc proc;
+    private volatile long lastUsed = created;
+    private volatile int runs;
+    private volatile boolean leased = true;
+
+    /**
+     * @param nodeName      name of the node running EXAM
+     * @param key           EXAM installation and options, only builds with the same key reuse the daemon
+     * @param host          IP address of the node
+     * @param port          leased port of the REST API, see {@link ExamPortLeaseManager}
+     * @param examWorkspace the -data directory of EXAM
+     */
+    public ExamDaemon(String nodeName, String key, String host, int port, FilePath examWorkspace) {
+        this.nodeName = nodeName;
+        this.key = key;
+        this.host = host;
+        this.port = port;
+        this.examWorkspace = examWorkspace;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public FilePath getExamWorkspace() {
+        return examWorkspace;
+    }
+
+    public String getBaseUrl() {
+        return "http://" + host + ":" + port + "/examRest";
+    }
+
+    /**
+     * @return stream for the standard output of the EXAM process
+     */
+    public DaemonOutputStream getOut() {
+        return out;
+    }
+
+    public ExamProc getProc() {
+        return proc;
+    }
+
+    public void setProc(ExamProc proc) {
+        this.proc = proc;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * @return number of finished testruns
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    public boolean isLeased() {
+        return leased;
+    }
+
+    void setLeased(boolean leased) {
+        this.leased = leased;
+    }
+
+    /**
+     * Counts a finished testrun.
+     */
+    void finishRun() {
+        runs++;
+        lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks that the process is alive and the REST API answers.
+     *
+     * @return true if the daemon can be used for a testrun
+     */
+    public boolean isHealthy() {
+        try {
+            if (proc != null && !proc.isAlive()) {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return new ClientRequest(null, new PrintStream(out, true), getBaseUrl()).isApiAvailable();
+    }
+
+    /**
+     * Shuts EXAM down, the process is killed if it does not exit in time.
+     *
+     * @param timeout time to wait for the shutdown in ms
+     */
+    public void shutdown(int timeout) {
+        ClientRequest clientRequest = new ClientRequest(null, new PrintStream(out, true), getBaseUrl());
+        if (clientRequest.connectClient(1000)) {
+            clientRequest.disconnectClient(timeout);
+        }
+        try {
+            if (proc != null && proc.isAlive()) {
+                proc.kill();
+            }
+        } catch (IOException e) {
+            // the node is gone, so is EXAM
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EXAM daemon " + getBaseUrl() + " on " + nodeName;
+    }
+
+    /**
+     * Output stream which forwards to the stream of the current build. The output is discarded while no build is
+     * attached.
+     */
+    public static class DaemonOutputStream extends OutputStream {
+
+        private volatile OutputStream target;
+
+        /**
+         * @param target stream of the current build, or null to discard the output
+         */
+        public void setTarget(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            OutputStream current = target;
+            if (current != null) {
+                current.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            OutputStream current = target;
+            if (current != null) {
+                current.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            OutputStream current = target;
+            if (current != null) {
+                current.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import jenkins.plugins.exam.config.ExamPluginConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of the running {@link ExamDaemon}s of all nodes.
+ * <p>
+ * A build leases an idle daemon with the same command line on its node, or launches EXAM and registers the new
+ * daemon. After the testrun the daemon is released and kept for the next build, unless it is broken or has
+ * reached the maximum number of testruns. Daemons which are idle for too long are shut down by
+ * {@link IdleDaemonReaper}. If a build finds no free port on its node, it shuts down the idle daemon used least
+ * recently instead of waiting for the reaper, see {@link #evictIdle(String)}.
+ */
+public final class ExamDaemonPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ExamDaemonPool.class.getName());
+    private static final ExamDaemonPool INSTANCE = new ExamDaemonPool();
+
+    private final List<ExamDaemon> daemons = new ArrayList<>();
+
+    ExamDaemonPool() {
+    }
+
+    public static ExamDaemonPool get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Leases an idle and healthy daemon. Broken daemons found on the way are shut down.
+     *
+     * @param nodeName name of the node
+     * @param key      command line of EXAM
+     * @return the leased daemon, or null if there is none
+     */
+    public ExamDaemon lease(String nodeName, String key) {
+        while (true) {
+            ExamDaemon candidate = null;
+            synchronized (daemons) {
+                for (ExamDaemon daemon : daemons) {
+                    if (!daemon.isLeased() && daemon.getNodeName().equals(nodeName) && daemon.getKey().equals(key)) {
+                        daemon.setLeased(true);
+                        candidate = daemon;
+                        break;
+                    }
+                }
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.isHealthy()) {
+                return candidate;
+            }
+            LOGGER.log(Level.INFO, "{0} is not healthy", candidate);
+            discard(candidate);
+        }
+    }
+
+    /**
+     * Shuts down the idle daemon of the node which was used least recently, to free its port for a build which can
+     * not use it, e.g. because it needs another command line. The caller leases the port again.
+     *
+     * @param nodeName name of the node
+     * @return true if a daemon was shut down
+     */
+    public boolean evictIdle(String nodeName) {
+        ExamDaemon oldest = null;
+        synchronized (daemons) {
+            for (ExamDaemon daemon : daemons) {
+                if (!daemon.isLeased() && daemon.getNodeName().equals(nodeName)
+                        && (oldest == null || daemon.getLastUsed() < oldest.getLastUsed())) {
+                    oldest = daemon;
+                }
+            }
+            if (oldest == null) {
+                return false;
+            }
+            oldest.setLeased(true);
+        }
+        LOGGER.log(Level.INFO, "{0} is evicted for a build of another command line", oldest);
+        discard(oldest);
+        return true;
+    }
+
+    /**
+     * Adds a newly launched daemon, it is leased by the build which has launched it.
+     */
+    public void register(ExamDaemon daemon) {
+        daemon.setLeased(true);
+        synchronized (daemons) {
+            daemons.add(daemon);
+        }
+    }
+
+    /**
+     * Returns a daemon after the testrun. It is shut down if it is broken or has reached the maximum number of
+     * testruns.
+     *
+     * @param daemon  the leased daemon
+     * @param healthy false if the daemon must not be reused
+     */
+    public void release(ExamDaemon daemon, boolean healthy) {
+        daemon.finishRun();
+        daemon.getOut().setTarget(null);
+        ExamPluginConfig config = ExamPluginConfig.configuration();
+        if (!healthy || !config.isDaemonMode() || daemon.getRuns() >= config.getDaemonMaxRuns()) {
+            discard(daemon);
+        } else {
+            daemon.setLeased(false);
+            ExamResourceQueue.get().resourceReleased();
+        }
+    }
+
+    /**
+     * Removes the daemon from the pool and shuts EXAM down.
+     */
+    public void discard(ExamDaemon daemon) {
+        synchronized (daemons) {
+            daemons.remove(daemon);
+        }
+        LOGGER.log(Level.INFO, "shutting down {0} after {1} testruns", new Object[]{daemon, daemon.getRuns()});
+        daemon.shutdown(ExamSession.DISCONNECT_TIMEOUT);
+        ExamPortLeaseManager.get().release(daemon.getNodeName(), daemon.getPort());
+        ExamResourceQueue.get().resourceReleased();
+    }
+
+    /**
+     * @return a snapshot of all daemons
+     */
+    public List<ExamDaemon> getDaemons() {
+        synchronized (daemons) {
+            return new ArrayList<>(daemons);
+        }
+    }
+
+    /**
+     * Shuts down idle daemons which exceeded the maximum idle time or are broken. If the daemon mode is switched
+     * off, all idle daemons are shut down.
+     */
+    void reap() {
+        ExamPluginConfig config = ExamPluginConfig.configuration();
+        long maxIdle = TimeUnit.MINUTES.toMillis(config.getDaemonMaxIdleTime());
+        long now = System.currentTimeMillis();
+        List<ExamDaemon> expired = new ArrayList<>();
+        List<ExamDaemon> idle = new ArrayList<>();
+        synchronized (daemons) {
+            for (ExamDaemon daemon : daemons) {
+                if (daemon.isLeased()) {
+                    continue;
+                }
+                daemon.setLeased(true);
+                if (!config.isDaemonMode() || now - daemon.getLastUsed() >= maxIdle) {
+                    expired.add(daemon);
+                } else {
+                    idle.add(daemon);
+                }
+            }
+        }
+        for (ExamDaemon daemon : idle) {
+            if (daemon.isHealthy()) {
+                daemon.setLeased(false);
+            } else {
+                expired.add(daemon);
+            }
+        }
+        for (ExamDaemon daemon : expired) {
+            discard(daemon);
+        }
+    }
+
+    /**
+     * Checks the idle EXAM daemons every minute.
+     */
+    @Extension
+    public static class IdleDaemonReaper extends AsyncPeriodicWork {
+
+        public IdleDaemonReaper() {
+            super("EXAM daemon reaper");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void execute(TaskListener listener) {
+            get().reap();
+        }
+    }
+}
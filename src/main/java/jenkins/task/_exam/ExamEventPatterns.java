@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import java.io.Serializable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The regular expressions which recognise the test case lines in the output of EXAM, see {@link ExamEventStream}.
+ * <p>
+ * The format of these lines depends on the version and the logging configuration of EXAM, so the expressions are
+ * set in the global configuration. The start and the finish expression capture the name of the test case in the
+ * group {@value #NAME_GROUP}, the verdict expression and optionally the finish expression capture the verdict in
+ * the group {@value #VERDICT_GROUP}. The expressions are searched in each line, they do not have to match the time
+ * stamp and log level. Without expressions no test case is recognised.
+ */
+public class ExamEventPatterns implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** name of the group with the name of the test case */
+    public static final String NAME_GROUP = "name";
+    /** name of the group with the verdict of the test case */
+    public static final String VERDICT_GROUP = "verdict";
+
+    private final String start;
+    private final String finish;
+    private final String verdict;
+    private transient Pattern startPattern;
+    private transient Pattern finishPattern;
+    private transient Pattern verdictPattern;
+
+    /**
+     * @param start   expression of the line starting a test case, may be empty
+     * @param finish  expression of the line finishing a test case, may be empty
+     * @param verdict expression of the line with the verdict of the running test case, may be empty
+     * @throws IllegalArgumentException if an expression is invalid or misses its group
+     */
+    public ExamEventPatterns(String start, String finish, String verdict) {
+        this.start = fixEmpty(start);
+        this.finish = fixEmpty(finish);
+        this.verdict = fixEmpty(verdict);
+        validate(this.start, NAME_GROUP);
+        validate(this.finish, NAME_GROUP);
+        validate(this.verdict, VERDICT_GROUP);
+    }
+
+    /**
+     * @return true if no test case line can be recognised
+     */
+    public boolean isEmpty() {
+        return start == null && finish == null && verdict == null;
+    }
+
+    /**
+     * @return true if the finish expression captures the verdict
+     */
+    boolean isVerdictOnFinish() {
+        return finish != null && finish.contains("(?<" + VERDICT_GROUP + ">");
+    }
+
+    /**
+     * @return matcher of the start expression on the line, null if the expression is not set
+     */
+    Matcher matchStart(CharSequence line) {
+        if (start == null) {
+            return null;
+        }
+        if (startPattern == null) {
+            startPattern = Pattern.compile(start);
+        }
+        return startPattern.matcher(line);
+    }
+
+    /**
+     * @return matcher of the finish expression on the line, null if the expression is not set
+     */
+    Matcher matchFinish(CharSequence line) {
+        if (finish == null) {
+            return null;
+        }
+        if (finishPattern == null) {
+            finishPattern = Pattern.compile(finish);
+        }
+        return finishPattern.matcher(line);
+    }
+
+    /**
+     * @return matcher of the verdict expression on the line, null if the expression is not set
+     */
+    Matcher matchVerdict(CharSequence line) {
+        if (verdict == null) {
+            return null;
+        }
+        if (verdictPattern == null) {
+            verdictPattern = Pattern.compile(verdict);
+        }
+        return verdictPattern.matcher(line);
+    }
+
+    /**
+     * Tells if one of the expressions is found in the line.
+     */
+    boolean matches(CharSequence line) {
+        return find(matchStart(line)) || find(matchFinish(line)) || find(matchVerdict(line));
+    }
+
+    static boolean find(Matcher matcher) {
+        return matcher != null && matcher.find();
+    }
+
+    /**
+     * Checks an expression entered in the global configuration.
+     *
+     * @param regex expression, may be empty
+     * @param group group the expression has to capture
+     * @return the error message, or null if the expression is valid
+     */
+    public static String check(String regex, String group) {
+        try {
+            validate(fixEmpty(regex), group);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static void validate(String regex, String group) {
+        if (regex == null) {
+            return;
+        }
+        try {
+            Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("invalid regular expression: " + e.getDescription(), e);
+        }
+        if (!regex.contains("(?<" + group + ">")) {
+            throw new IllegalArgumentException("the regular expression has no group (?<" + group + ">...)");
+        }
+    }
+
+    private static String fixEmpty(String s) {
+        return s == null || s.trim().isEmpty() ? null : s.trim();
+    }
+}
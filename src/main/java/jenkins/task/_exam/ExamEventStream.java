@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.regex.Matcher;
+
+/**
+ * Filter {@link OutputStream} that recognises the test case lines of EXAM and records them in the
+ * {@link ExamTestIndex} of the build. All lines are passed on unchanged.
+ * <p>
+ * The test case lines are recognised by the {@link ExamEventPatterns} of the global configuration. A verdict line
+ * sets the verdict of the running test case, the finish line may carry the verdict itself. A test case finished
+ * without a verdict is recorded as {@link ExamTestIndex.Verdict#ERROR}. Lines are only decoded if patterns are set.
+ * <p>
+ * The index is a live view for the progress page. It depends on the console output of EXAM, the junit reports
+ * converted at the end of the testrun are the result of the build.
+ */
+public class ExamEventStream extends LineTransformationOutputStream {
+
+    private final OutputStream out;
+    private final ExamTestIndex index;
+    private final Charset charset;
+    private final ExamEventPatterns patterns;
+    private ExamTestIndex.Verdict verdict;
+
+    /**
+     * @param out      the next stream of the console chain
+     * @param index    the index of the build
+     * @param charset  charset of the EXAM output, or null for the default charset
+     * @param patterns patterns of the test case lines, or null to recognise no test case
+     */
+    public ExamEventStream(OutputStream out, ExamTestIndex index, Charset charset, ExamEventPatterns patterns) {
+        this.out = out;
+        this.index = index;
+        this.charset = charset == null ? Charset.defaultCharset() : charset;
+        this.patterns = patterns == null || patterns.isEmpty() ? null : patterns;
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        parse(b, len, System.currentTimeMillis());
+        out.write(b, 0, len);
+    }
+
+    /**
+     * Records the test case event of the line, if any.
+     */
+    void parse(byte[] b, int len, long time) {
+        if (patterns == null) {
+            return;
+        }
+        String line = trimEol(new String(b, 0, len, charset));
+        Matcher m = patterns.matchStart(line);
+        if (ExamEventPatterns.find(m)) {
+            verdict = null;
+            index.testStarted(m.group(ExamEventPatterns.NAME_GROUP).trim(), time);
+            return;
+        }
+        m = patterns.matchFinish(line);
+        if (ExamEventPatterns.find(m)) {
+            if (patterns.isVerdictOnFinish()) {
+                ExamTestIndex.Verdict v = parseVerdict(m.group(ExamEventPatterns.VERDICT_GROUP));
+                if (v != null) {
+                    verdict = v;
+                }
+            }
+            ExamTestIndex.Verdict finished = verdict == null ? ExamTestIndex.Verdict.ERROR : verdict;
+            index.testFinished(m.group(ExamEventPatterns.NAME_GROUP).trim(), finished, time);
+            verdict = null;
+            return;
+        }
+        m = patterns.matchVerdict(line);
+        if (ExamEventPatterns.find(m)) {
+            ExamTestIndex.Verdict v = parseVerdict(m.group(ExamEventPatterns.VERDICT_GROUP));
+            if (v != null) {
+                verdict = v;
+            }
+        }
+    }
+
+    private static String trimEol(String line) {
+        int len = line.length();
+        while (len > 0 && (line.charAt(len - 1) == '\n' || line.charAt(len - 1) == '\r')) {
+            len--;
+        }
+        return line.substring(0, len);
+    }
+
+    /**
+     * @return the verdict, or null if the text is no verdict
+     */
+    private static ExamTestIndex.Verdict parseVerdict(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return ExamTestIndex.Verdict.valueOf(text.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the last line, the next stream is not closed.
+     */
+    @Override
+    public void close() throws IOException {
+        forceEol();
+    }
+}
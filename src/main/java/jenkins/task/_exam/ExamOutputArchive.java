@@ -0,0 +1,403 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.CloseProofOutputStream;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.model.TaskListener;
+import hudson.remoting.Channel;
+import hudson.remoting.RemoteOutputStream;
+import hudson.remoting.VirtualChannel;
+import hudson.util.ArgumentListBuilder;
+import jenkins.internal.enumeration.LogOverflowPolicy;
+import jenkins.internal.enumeration.RestAPILogLevelEnum;
+import jenkins.security.MasterToSlaveCallable;
+import org.apache.commons.io.output.TeeOutputStream;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Launches EXAM, filters its output on the node of EXAM by log level and can write the full output to a compressed
+ * log file next to the process.
+ * <p>
+ * The output of EXAM is written to a chain of streams created on the node of EXAM, only the lines at or above the
+ * console log level are sent to the console of the build. The kept lines pass an {@link AsyncLogPump} on the node,
+ * so a slow controller never stalls EXAM. The error output is kept in an {@link ExamConsoleErrorOut} on the node and
+ * is only fetched if it is dumped. If the launcher of the build is not decorated, EXAM is
+ * started by the chain itself, like the launcher would do, so the dropped lines and the full output never cross the
+ * remoting channel. A decorated launcher, e.g. of a container or a build wrapper, starts EXAM itself and its output
+ * is sent to the chain.
+ */
+public class ExamOutputArchive {
+
+    /** file extension of the compressed log */
+    public static final String EXTENSION = ".log.gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** maximum time in ms to wait for the console when the output of a testrun is drained */
+    private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toMillis(60);
+
+    /** the open chains on this node by id */
+    private static final Map<String, Chain> CHAINS = new ConcurrentHashMap<>();
+
+    private ExamOutputArchive() {
+    }
+
+    /**
+     * Starts EXAM with the launcher of the build.
+     *
+     * @param launcher     launcher of the build
+     * @param args         command line of EXAM
+     * @param env          environment of EXAM
+     * @param pwd          working directory of EXAM
+     * @param logFile      the compressed log file, on the node of the launcher, or null to not archive the output
+     * @param console      the console of the build
+     * @param patterns     patterns of the test case lines, kept at every console log level, may be null
+     * @param consoleLevel lowest log level sent to the console, or null to send all lines
+     * @param pumpCapacity size of the buffer of the {@link AsyncLogPump} in bytes
+     * @param policy       what the pump does if its buffer is full
+     * @return the running EXAM
+     */
+    public static ExamProc launch(Launcher launcher, ArgumentListBuilder args, EnvVars env, FilePath pwd,
+                                  FilePath logFile, OutputStream console, ExamEventPatterns patterns,
+                                  RestAPILogLevelEnum consoleLevel, int pumpCapacity, LogOverflowPolicy policy)
+            throws IOException, InterruptedException {
+        VirtualChannel channel = launcher.getChannel();
+        if (channel == null) {
+            throw new IOException("node of " + pwd + " is offline");
+        }
+        if (logFile != null) {
+            logFile.getParent().mkdirs();
+        }
+        Output output = channel.call(new Open(logFile == null ? null : logFile.getRemote(),
+                new RemoteOutputStream(new CloseProofOutputStream(console)), patterns, consoleLevel, pumpCapacity,
+                policy));
+        try {
+            Proc proc;
+            if (isPlain(launcher)) {
+                launcher.getListener().getLogger().println("[" + pwd.getRemote() + "] $ " + args);
+                proc = new Proc.RemoteProc(channel.callAsync(new Launch(args.toList(), env, pwd.getRemote(),
+                        output.id)));
+            } else {
+                proc = launcher.launch().cmds(args).envs(env).pwd(pwd).stdout(output.out).stderr(output.err)
+                        .start();
+            }
+            return new ExamProc(proc, output.handle);
+        } catch (IOException | RuntimeException e) {
+            output.handle.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if the launcher starts the process on its node without any decoration
+     */
+    static boolean isPlain(Launcher launcher) {
+        return launcher.getClass() == Launcher.LocalLauncher.class
+                || launcher.getClass() == Launcher.RemoteLauncher.class;
+    }
+
+    /**
+     * Closes the chain of an EXAM process, called by the controller.
+     */
+    public interface Handle {
+
+        /**
+         * Waits until the output written so far has reached the console of the build.
+         *
+         * @return the lines dropped and the bytes spilled by the pump since the last call
+         */
+        PumpStatus drain() throws IOException, InterruptedException;
+
+        /**
+         * @return the last lines of the error output
+         */
+        ErrorOutput getErrorOutput() throws IOException;
+
+        /**
+         * Forgets the error output so far, e.g. of the previous build of a daemon.
+         */
+        void resetErrorOutput() throws IOException;
+
+        /**
+         * Writes the rest of the output and closes the log file, the console of the build is not closed.
+         */
+        void close() throws IOException;
+    }
+
+    /**
+     * What the {@link AsyncLogPump} did because the console was too slow.
+     */
+    public static class PumpStatus implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long droppedLines;
+        private final long spilledBytes;
+
+        PumpStatus(long droppedLines, long spilledBytes) {
+            this.droppedLines = droppedLines;
+            this.spilledBytes = spilledBytes;
+        }
+
+        /**
+         * @return number of DEBUG lines dropped
+         */
+        public long getDroppedLines() {
+            return droppedLines;
+        }
+
+        /**
+         * @return number of bytes buffered in the spill file
+         */
+        public long getSpilledBytes() {
+            return spilledBytes;
+        }
+    }
+
+    /**
+     * The last lines of the error output of EXAM.
+     */
+    public static class ErrorOutput implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] tail;
+        private final long written;
+
+        ErrorOutput(byte[] tail, long written) {
+            this.tail = tail;
+            this.written = written;
+        }
+
+        /**
+         * @return the last bytes, at most {@link ExamConsoleErrorOut#DEFAULT_CAPACITY}
+         */
+        public byte[] getTail() {
+            return tail;
+        }
+
+        /**
+         * @return number of bytes written to the error output
+         */
+        public long getWritten() {
+            return written;
+        }
+    }
+
+    /**
+     * The streams of a chain, sent to the controller.
+     */
+    private static class Output implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String id;
+        private final OutputStream out;
+        private final OutputStream err;
+        private final Handle handle;
+
+        Output(String id, OutputStream out, OutputStream err, Handle handle) {
+            this.id = id;
+            this.out = out;
+            this.err = err;
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * The streams between EXAM and the console of the build on the node of EXAM.
+     */
+    private static class Chain implements Handle {
+
+        private final String id;
+        private final OutputStream console;
+        private final ExamConsoleErrorOut err;
+        private final OutputStream log;
+        private final AsyncLogPump pump;
+        private final OutputStream filter;
+        private final OutputStream out;
+        private long reportedLines;
+        private long reportedBytes;
+        private boolean closed;
+
+        Chain(String id, String logFile, OutputStream console, ExamEventPatterns patterns,
+              RestAPILogLevelEnum consoleLevel, int pumpCapacity, LogOverflowPolicy policy) throws IOException {
+            this.id = id;
+            this.console = console;
+            this.err = new ExamConsoleErrorOut(null, Charset.defaultCharset());
+            this.log = logFile == null ? null : new GZIPOutputStream(new FileOutputStream(logFile), BUFFER_SIZE);
+            this.pump = new AsyncLogPump(console, pumpCapacity, policy);
+            this.filter = consoleLevel == null ? null : new ExamConsoleLevelFilter(pump, consoleLevel, patterns);
+            OutputStream kept = filter == null ? pump : filter;
+            this.out = log == null ? kept : new TeeOutputStream(log, kept);
+        }
+
+        @Override
+        public PumpStatus drain() throws InterruptedException {
+            pump.awaitEmpty(DRAIN_TIMEOUT);
+            synchronized (this) {
+                long lines = pump.getDroppedLines();
+                long bytes = pump.getSpilledBytes();
+                PumpStatus status = new PumpStatus(lines - reportedLines, bytes - reportedBytes);
+                reportedLines = lines;
+                reportedBytes = bytes;
+                return status;
+            }
+        }
+
+        @Override
+        public ErrorOutput getErrorOutput() throws IOException {
+            err.forceEol();
+            return new ErrorOutput(err.getTail(), err.getWritten());
+        }
+
+        @Override
+        public void resetErrorOutput() {
+            err.reset();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            CHAINS.remove(id);
+            try {
+                if (filter != null) {
+                    filter.close();
+                }
+                pump.close();
+            } finally {
+                try {
+                    if (log != null) {
+                        log.close();
+                    }
+                } finally {
+                    console.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the chain on the node of EXAM.
+     */
+    private static class Open extends MasterToSlaveCallable<Output, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String logFile;
+        private final OutputStream console;
+        private final ExamEventPatterns patterns;
+        private final RestAPILogLevelEnum consoleLevel;
+        private final int pumpCapacity;
+        private final LogOverflowPolicy policy;
+
+        Open(String logFile, OutputStream console, ExamEventPatterns patterns, RestAPILogLevelEnum consoleLevel,
+             int pumpCapacity, LogOverflowPolicy policy) {
+            this.logFile = logFile;
+            this.console = console;
+            this.patterns = patterns;
+            this.consoleLevel = consoleLevel;
+            this.pumpCapacity = pumpCapacity;
+            this.policy = policy;
+        }
+
+        @Override
+        public Output call() throws IOException {
+            String id = UUID.randomUUID().toString();
+            Chain chain = new Chain(id, logFile, console, patterns, consoleLevel, pumpCapacity, policy);
+            CHAINS.put(id, chain);
+            Channel channel = Channel.current();
+            if (channel == null) {
+                // called on the controller itself
+                return new Output(id, chain.out, chain.err, chain);
+            }
+            return new Output(id, new RemoteOutputStream(chain.out), new RemoteOutputStream(chain.err),
+                    channel.export(Handle.class, chain));
+        }
+    }
+
+    /**
+     * Runs EXAM on the node with the chain created by {@link Open} until it exits. The chain is closed by
+     * {@link ExamProc}, so EXAM is not reported alive while the pump still waits for the console.
+     */
+    private static class Launch extends MasterToSlaveCallable<Integer, IOException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> cmds;
+        private final EnvVars env;
+        private final String pwd;
+        private final String id;
+
+        Launch(List<String> cmds, EnvVars env, String pwd, String id) {
+            this.cmds = cmds;
+            this.env = env;
+            this.pwd = pwd;
+            this.id = id;
+        }
+
+        @Override
+        public Integer call() throws IOException {
+            Chain chain = CHAINS.get(id);
+            if (chain == null) {
+                throw new IOException("the output of EXAM is already closed");
+            }
+            try {
+                Proc proc = new Launcher.LocalLauncher(TaskListener.NULL).launch().cmds(cmds).envs(env)
+                        .pwd(new File(pwd)).stdout(chain.out).stderr(chain.err).start();
+                // an interrupted join kills EXAM
+                return proc.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("EXAM was killed");
+            }
+        }
+    }
+}
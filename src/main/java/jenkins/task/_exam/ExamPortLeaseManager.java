@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.Launcher;
+import jenkins.internal.Remote;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Leases the ports of the EXAM REST API, so several EXAM instances can run on one node.
+ * <p>
+ * A port is leased if it is not leased by another build on the same node and it can be bound on the node.
+ * The lease is released when EXAM is closed, or when the {@link ExamDaemon} using the port is shut down.
+ */
+public final class ExamPortLeaseManager {
+
+    private static final ExamPortLeaseManager INSTANCE = new ExamPortLeaseManager();
+
+    private final Map<String, Set<Integer>> leases = new HashMap<>();
+
+    ExamPortLeaseManager() {
+    }
+
+    public static ExamPortLeaseManager get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Leases the first free port of the range.
+     *
+     * @param nodeName  name of the node
+     * @param launcher  launcher of the node, used to check if the ports can be bound
+     * @param firstPort first port of the range
+     * @param lastPort  last port of the range
+     * @return the leased port, or -1 if all ports are in use
+     */
+    public int lease(String nodeName, Launcher launcher, int firstPort, int lastPort)
+            throws IOException, InterruptedException {
+        return lease(nodeName, launcher, firstPort, lastPort, null);
+    }
+
+    /**
+     * Leases the first free port of the range.
+     *
+     * @param nodeName  name of the node
+     * @param launcher  launcher of the node, used to check if the ports can be bound
+     * @param firstPort first port of the range
+     * @param lastPort  last port of the range
+     * @param freePorts ports which are known to be bindable, e.g. from the {@link jenkins.internal.Preflight},
+     *                  or null to check the ports on the node
+     * @return the leased port, or -1 if all ports are in use
+     */
+    public int lease(String nodeName, Launcher launcher, int firstPort, int lastPort, List<Integer> freePorts)
+            throws IOException, InterruptedException {
+        List<Integer> candidates = new ArrayList<>();
+        synchronized (leases) {
+            Set<Integer> leased = getLeases(nodeName);
+            for (int port = firstPort; port <= lastPort; port++) {
+                if (!leased.contains(port)) {
+                    candidates.add(port);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return -1;
+        }
+        List<Integer> free = candidates;
+        if (freePorts != null) {
+            free = new ArrayList<>(candidates);
+            free.retainAll(freePorts);
+        } else if (launcher != null) {
+            free = Remote.freePorts(launcher, candidates);
+        }
+        synchronized (leases) {
+            Set<Integer> leased = getLeases(nodeName);
+            for (Integer port : free) {
+                if (leased.add(port)) {
+                    return port;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Leases the port of an EXAM which is already running, e.g. a testrun reattached after a restart of Jenkins.
+     * The port is not checked on the node, it is bound by EXAM.
+     *
+     * @return true if the port was leased, false if it is leased by another build
+     */
+    public boolean leaseRunning(String nodeName, int port) {
+        synchronized (leases) {
+            return getLeases(nodeName).add(port);
+        }
+    }
+
+    /**
+     * Releases a leased port.
+     */
+    public void release(String nodeName, int port) {
+        synchronized (leases) {
+            Set<Integer> leased = leases.get(nodeName);
+            if (leased != null) {
+                leased.remove(port);
+                if (leased.isEmpty()) {
+                    leases.remove(nodeName);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the port of the node is leased
+     */
+    public boolean isLeased(String nodeName, int port) {
+        synchronized (leases) {
+            Set<Integer> leased = leases.get(nodeName);
+            return leased != null && leased.contains(port);
+        }
+    }
+
+    /**
+     * @return the number of leased ports of the node
+     */
+    public int getLeaseCount(String nodeName) {
+        synchronized (leases) {
+            Set<Integer> leased = leases.get(nodeName);
+            return leased == null ? 0 : leased.size();
+        }
+    }
+
+    private Set<Integer> getLeases(String nodeName) {
+        Set<Integer> leased = leases.get(nodeName);
+        if (leased == null) {
+            leased = new HashSet<>();
+            leases.put(nodeName, leased);
+        }
+        return leased;
+    }
+}
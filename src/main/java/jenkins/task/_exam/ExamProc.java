@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.Proc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The running EXAM process together with the chain of its output on the node of EXAM, see
+ * {@link ExamOutputArchive}. The chain is closed when the process has exited.
+ */
+public class ExamProc extends Proc {
+
+    private final Proc proc;
+    private final ExamOutputArchive.Handle output;
+
+    ExamProc(Proc proc, ExamOutputArchive.Handle output) {
+        this.proc = proc;
+        this.output = output;
+    }
+
+    @Override
+    public boolean isAlive() throws IOException, InterruptedException {
+        return proc.isAlive();
+    }
+
+    @Override
+    public void kill() throws IOException, InterruptedException {
+        try {
+            proc.kill();
+        } finally {
+            output.close();
+        }
+    }
+
+    @Override
+    public int join() throws IOException, InterruptedException {
+        int exitCode = proc.join();
+        output.close();
+        return exitCode;
+    }
+
+    /**
+     * Waits until the output written so far has reached the console of the build.
+     *
+     * @return what the log pump did since the last call because the console was too slow
+     */
+    public ExamOutputArchive.PumpStatus drainOutput() throws IOException, InterruptedException {
+        return output.drain();
+    }
+
+    /**
+     * @return the last lines of the error output, fetched from the node of EXAM
+     */
+    public ExamOutputArchive.ErrorOutput getErrorOutput() throws IOException {
+        return output.getErrorOutput();
+    }
+
+    /**
+     * Forgets the error output so far, a daemon keeps it for the build which has leased it.
+     */
+    public void resetErrorOutput() throws IOException {
+        output.resetErrorOutput();
+    }
+
+    @Override
+    public InputStream getStdout() {
+        return proc.getStdout();
+    }
+
+    @Override
+    public InputStream getStderr() {
+        return proc.getStderr();
+    }
+
+    @Override
+    public OutputStream getStdin() {
+        return proc.getStdin();
+    }
+}
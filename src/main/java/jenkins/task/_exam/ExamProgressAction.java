@@ -0,0 +1,456 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.model.Api;
+import hudson.model.Run;
+import jenkins.internal.data.ExamStatus;
+import jenkins.model.RunAction2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Live progress of an EXAM testrun, shown at {@code <build>/exam-progress}.
+ * <p>
+ * Every polled {@link ExamStatus} is recorded in a compact in-memory time series. The series is encoded into a short
+ * string and saved with the build every {@link #SAVE_INTERVAL} seconds while the testrun is running and when it
+ * ends, so after a restart of Jenkins only the samples of the last interval are lost. The expected duration is
+ * taken from the previous builds which ran the same execution file.
+ */
+@ExportedBean
+public class ExamProgressAction implements RunAction2 {
+
+    private static final Logger LOGGER = Logger.getLogger(ExamProgressAction.class.getName());
+
+    /** number of previous builds searched for the expected duration */
+    private static final int HISTORY_BUILDS = 20;
+    /** number of previous testruns averaged for the expected duration */
+    private static final int HISTORY_RUNS = 5;
+    /** seconds between two saves of the series while the testrun is running */
+    static final int SAVE_INTERVAL = 300;
+
+    private final String id;
+    private final int number;
+    private final String executionFile;
+    private final long startTime;
+    private volatile long endTime;
+    /** the encoded series, saved while the testrun is running and when it ends */
+    private String series;
+
+    /** pairs of seconds since the start and state code */
+    private transient int[] samples;
+    private transient int sampleCount;
+    /** seconds since the start at which the series was saved */
+    private transient int savedTime;
+    private transient Run<?, ?> run;
+    private transient volatile ExamTestIndex testIndex;
+
+    ExamProgressAction(String id, int number, String executionFile, long startTime) {
+        this.id = id;
+        this.number = number;
+        this.executionFile = executionFile;
+        this.startTime = startTime;
+        this.samples = new int[64];
+    }
+
+    /**
+     * Adds the progress of a testrun to the build. If the build already has the progress of the execution, it is
+     * returned instead, for example after a restart of Jenkins.
+     *
+     * @param id            id of the execution
+     * @param executionFile the execution file of the testrun
+     * @param startTime     start time of the testrun in ms
+     * @return the progress of the testrun
+     */
+    public static ExamProgressAction start(Run<?, ?> run, String id, String executionFile, long startTime) {
+        synchronized (run) {
+            ExamProgressAction action = get(run, id);
+            if (action == null) {
+                action = new ExamProgressAction(id, run.getActions(ExamProgressAction.class).size(), executionFile,
+                        startTime);
+                run.addAction(action);
+            }
+            return action;
+        }
+    }
+
+    /**
+     * @param id id of the execution
+     * @return the progress of the execution, or null
+     */
+    public static ExamProgressAction get(Run<?, ?> run, String id) {
+        for (ExamProgressAction action : run.getActions(ExamProgressAction.class)) {
+            if (action.id.equals(id)) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return number == 0 ? "EXAM Progress" : "EXAM Progress " + (number + 1);
+    }
+
+    @Override
+    public String getUrlName() {
+        return number == 0 ? "exam-progress" : "exam-progress-" + (number + 1);
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> r) {
+        this.run = r;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Exported
+    public String getExecutionFile() {
+        return executionFile;
+    }
+
+    @Exported
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return end time of the testrun in ms, 0 while it is running
+     */
+    @Exported
+    public long getEndTime() {
+        return endTime;
+    }
+
+    @Exported
+    public boolean isRunning() {
+        return endTime == 0;
+    }
+
+    /**
+     * @return duration of the testrun up to now in ms
+     */
+    @Exported
+    public long getElapsed() {
+        return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+    }
+
+    /**
+     * Records a polled status.
+     */
+    public void sample(ExamStatus status) {
+        boolean save;
+        synchronized (this) {
+            int[] s = getSamples();
+            if (sampleCount * 2 == s.length) {
+                // the samples loaded after a restart may be empty
+                s = Arrays.copyOf(s, Math.max(64, s.length * 2));
+                samples = s;
+            }
+            int time = (int) ((System.currentTimeMillis() - startTime) / 1000);
+            s[sampleCount * 2] = time;
+            s[sampleCount * 2 + 1] = encodeState(status);
+            sampleCount++;
+            save = time - savedTime >= SAVE_INTERVAL;
+            if (save) {
+                savedTime = time;
+                series = encode(s, sampleCount);
+            }
+        }
+        if (save) {
+            save();
+        }
+    }
+
+    /**
+     * Marks the testrun as finished and saves the series with the build.
+     */
+    public void finish() {
+        synchronized (this) {
+            if (endTime != 0) {
+                return;
+            }
+            endTime = System.currentTimeMillis();
+            series = encode(getSamples(), sampleCount);
+        }
+        save();
+    }
+
+    private void save() {
+        if (run != null) {
+            try {
+                run.save();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "saving " + run + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * @return number of polled states
+     */
+    @Exported
+    public synchronized int getSampleCount() {
+        getSamples();
+        return sampleCount;
+    }
+
+    /**
+     * @return the polled states in the order they were polled
+     */
+    public synchronized List<Sample> getSampleList() {
+        int[] s = getSamples();
+        List<Sample> list = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            list.add(new Sample(s[i * 2], s[i * 2 + 1]));
+        }
+        return list;
+    }
+
+    /**
+     * @return the polled states at which the state changed
+     */
+    public List<Sample> getStateChanges() {
+        List<Sample> changes = new ArrayList<>();
+        Sample last = null;
+        for (Sample sample : getSampleList()) {
+            if (last == null || last.code != sample.code) {
+                changes.add(sample);
+            }
+            last = sample;
+        }
+        return changes;
+    }
+
+    /**
+     * @return the last polled state, or null before the first poll
+     */
+    @Exported
+    public synchronized Sample getCurrentState() {
+        int[] s = getSamples();
+        return sampleCount == 0 ? null : new Sample(s[sampleCount * 2 - 2], s[sampleCount * 2 - 1]);
+    }
+
+    /**
+     * @return the average duration in ms of the last testruns of the same execution file, or -1 if unknown
+     */
+    @Exported
+    public long getExpectedDuration() {
+        if (run == null) {
+            return -1;
+        }
+        long sum = 0;
+        int count = 0;
+        Run<?, ?> build = run.getPreviousBuild();
+        for (int i = 0; build != null && i < HISTORY_BUILDS && count < HISTORY_RUNS; i++) {
+            for (ExamProgressAction action : build.getActions(ExamProgressAction.class)) {
+                if (action.endTime != 0 && action.executionFile != null
+                        && action.executionFile.equals(executionFile)) {
+                    sum += action.endTime - action.startTime;
+                    count++;
+                }
+            }
+            build = build.getPreviousBuild();
+        }
+        return count == 0 ? -1 : sum / count;
+    }
+
+    /**
+     * @return the expected remaining time in ms, or -1 if unknown
+     */
+    @Exported
+    public long getRemaining() {
+        long expected = getExpectedDuration();
+        if (expected < 0 || endTime != 0) {
+            return -1;
+        }
+        return Math.max(0, expected - getElapsed());
+    }
+
+    /**
+     * @return progress of the testrun in percent, or -1 if unknown
+     */
+    @Exported
+    public int getPercentage() {
+        if (endTime != 0) {
+            return 100;
+        }
+        long expected = getExpectedDuration();
+        if (expected <= 0) {
+            return -1;
+        }
+        return (int) Math.min(99, getElapsed() * 100 / expected);
+    }
+
+    /**
+     * @return the test cases recorded in the console output, or null if they are not available, e.g. after a restart
+     */
+    public ExamTestIndex getTestIndex() {
+        return testIndex;
+    }
+
+    /**
+     * @param testIndex the test index of the session running the testrun
+     */
+    public void setTestIndex(ExamTestIndex testIndex) {
+        this.testIndex = testIndex;
+    }
+
+    private int[] getSamples() {
+        if (samples == null) {
+            // loaded from disk
+            samples = decode(series);
+            sampleCount = samples.length / 2;
+        }
+        return samples;
+    }
+
+    /**
+     * @return the job running flag in bit 0 and the testrun state + 1 in the other bits
+     */
+    static int encodeState(ExamStatus status) {
+        int running = Boolean.TRUE.equals(status.getJobRunning()) ? 1 : 0;
+        int state = status.getTestRunState() == null ? -1 : status.getTestRunState();
+        return ((state + 1) << 1) | running;
+    }
+
+    /**
+     * Encodes the samples as variable length deltas of the time and the state code.
+     */
+    static String encode(int[] samples, int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(count * 2);
+        int lastTime = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarInt(out, samples[i * 2] - lastTime);
+            writeVarInt(out, samples[i * 2 + 1]);
+            lastTime = samples[i * 2];
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    static int[] decode(String series) {
+        if (series == null || series.isEmpty()) {
+            return new int[0];
+        }
+        byte[] b = Base64.getDecoder().decode(series);
+        int[] values = new int[b.length];
+        int count = 0;
+        int value = 0;
+        int shift = 0;
+        for (byte x : b) {
+            value |= (x & 0x7f) << shift;
+            shift += 7;
+            if ((x & 0x80) == 0) {
+                values[count++] = value;
+                value = 0;
+                shift = 0;
+            }
+        }
+        count -= count % 2;
+        int time = 0;
+        for (int i = 0; i < count; i += 2) {
+            time += values[i];
+            values[i] = time;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * A polled status.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Sample {
+        private final int time;
+        private final int code;
+
+        Sample(int time, int code) {
+            this.time = time;
+            this.code = code;
+        }
+
+        /**
+         * @return seconds since the start of the testrun
+         */
+        @Exported
+        public int getTime() {
+            return time;
+        }
+
+        @Exported
+        public boolean isJobRunning() {
+            return (code & 1) != 0;
+        }
+
+        /**
+         * @return the testrun state of EXAM, or -1 if unknown
+         */
+        @Exported
+        public int getTestRunState() {
+            return (code >> 1) - 1;
+        }
+    }
+}
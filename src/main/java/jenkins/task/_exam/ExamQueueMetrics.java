@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.Extension;
+import hudson.model.Api;
+import hudson.model.RootAction;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.Map;
+
+/**
+ * Exposes the metrics of the {@link ExamResourceQueue} at {@code /exam-queue/api/json}.
+ */
+@Extension
+@ExportedBean
+public class ExamQueueMetrics implements RootAction {
+
+    private ExamResourceQueue getQueue() {
+        return ExamResourceQueue.get();
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @Exported
+    public int getQueueDepth() {
+        return getQueue().getQueueDepth();
+    }
+
+    @Exported
+    public Map<String, Integer> getQueueDepths() {
+        return getQueue().getQueueDepths();
+    }
+
+    @Exported
+    public long getWaitCount() {
+        return getQueue().getWaitCount();
+    }
+
+    @Exported
+    public long getAverageWaitTime() {
+        return getQueue().getAverageWaitTime();
+    }
+
+    @Exported
+    public long getMaxWaitTime() {
+        return getQueue().getMaxWaitTime();
+    }
+
+    @Exported
+    public long getTimeouts() {
+        return getQueue().getTimeouts();
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return null;
+    }
+
+    @Override
+    public String getUrlName() {
+        return "exam-queue";
+    }
+}
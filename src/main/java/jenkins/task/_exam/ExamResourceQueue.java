@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.AbortException;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fair queue for the EXAM instances of the nodes.
+ * <p>
+ * Builds which find no free EXAM on their node wait in first in, first out order until a port or a daemon is
+ * released, instead of failing. Only the head of the queue of a node tries to acquire an instance, so a build
+ * cannot be overtaken by builds arriving later.
+ */
+public final class ExamResourceQueue {
+
+    /** interval to retry the head of the queue, the port may be freed by a process outside of Jenkins */
+    private static final long RETRY_INTERVAL = 5000;
+
+    private static final ExamResourceQueue INSTANCE = new ExamResourceQueue();
+
+    /**
+     * Tries to acquire an EXAM instance.
+     *
+     * @param <T> the acquired resource
+     */
+    public interface Attempt<T> {
+
+        /**
+         * @return the acquired resource, or null if EXAM is busy
+         */
+        T tryAcquire() throws IOException, InterruptedException;
+    }
+
+    private final Map<String, LinkedList<Object>> queues = new HashMap<>();
+    private long version;
+
+    private long waitCount;
+    private long totalWaitTime;
+    private long maxWaitTime;
+    private long timeouts;
+
+    ExamResourceQueue() {
+    }
+
+    public static ExamResourceQueue get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Acquires an EXAM instance on the node, waiting in the queue of the node while EXAM is busy.
+     *
+     * @param nodeName name of the node
+     * @param attempt  tries to acquire the instance
+     * @param timeout  maximum time to wait in ms
+     * @param logger   console of the build to show the queue position
+     * @param <T>      the acquired resource
+     * @return the acquired resource
+     * @throws AbortException       if the timeout elapsed
+     * @throws InterruptedException if the build was aborted while waiting
+     */
+    public <T> T acquire(String nodeName, Attempt<T> attempt, long timeout, PrintStream logger)
+            throws IOException, InterruptedException {
+        Object ticket = new Object();
+        long start = System.currentTimeMillis();
+        int lastPosition = -1;
+        synchronized (this) {
+            getQueue(nodeName).add(ticket);
+        }
+        try {
+            while (true) {
+                int position;
+                long seen;
+                synchronized (this) {
+                    position = getQueue(nodeName).indexOf(ticket);
+                    seen = version;
+                }
+                if (position == 0) {
+                    T resource = attempt.tryAcquire();
+                    if (resource != null) {
+                        if (lastPosition >= 0) {
+                            long waited = System.currentTimeMillis() - start;
+                            logger.println("EXAM available after " + TimeUnit.MILLISECONDS.toSeconds(waited) + "s");
+                            recordWait(waited);
+                        }
+                        return resource;
+                    }
+                }
+                if (position != lastPosition) {
+                    logger.println("waiting for EXAM on " + displayName(nodeName) + ", position " + (position + 1)
+                            + " in queue");
+                    lastPosition = position;
+                }
+                long remaining = start + timeout - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    synchronized (this) {
+                        timeouts++;
+                    }
+                    throw new AbortException("ERROR: no EXAM available on " + displayName(nodeName) + " after "
+                            + TimeUnit.MILLISECONDS.toMinutes(timeout) + " min");
+                }
+                synchronized (this) {
+                    if (version == seen) {
+                        wait(Math.min(RETRY_INTERVAL, remaining));
+                    }
+                }
+            }
+        } finally {
+            synchronized (this) {
+                LinkedList<Object> queue = getQueue(nodeName);
+                queue.remove(ticket);
+                if (queue.isEmpty()) {
+                    queues.remove(nodeName);
+                }
+                version++;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wakes up the builds waiting for an EXAM instance.
+     */
+    public synchronized void resourceReleased() {
+        version++;
+        notifyAll();
+    }
+
+    /**
+     * @return number of builds waiting on the node
+     */
+    public synchronized int getQueueDepth(String nodeName) {
+        LinkedList<Object> queue = queues.get(nodeName);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return number of builds waiting on all nodes
+     */
+    public synchronized int getQueueDepth() {
+        int depth = 0;
+        for (LinkedList<Object> queue : queues.values()) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return number of builds waiting per node
+     */
+    public synchronized Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new HashMap<>();
+        for (Map.Entry<String, LinkedList<Object>> entry : queues.entrySet()) {
+            depths.put(displayName(entry.getKey()), entry.getValue().size());
+        }
+        return depths;
+    }
+
+    /**
+     * @return number of builds which had to wait and got EXAM
+     */
+    public synchronized long getWaitCount() {
+        return waitCount;
+    }
+
+    /**
+     * @return average wait time of the builds which had to wait in ms
+     */
+    public synchronized long getAverageWaitTime() {
+        return waitCount == 0 ? 0 : totalWaitTime / waitCount;
+    }
+
+    /**
+     * @return longest wait time in ms
+     */
+    public synchronized long getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    /**
+     * @return number of builds which gave up waiting
+     */
+    public synchronized long getTimeouts() {
+        return timeouts;
+    }
+
+    private synchronized void recordWait(long waited) {
+        waitCount++;
+        totalWaitTime += waited;
+        maxWaitTime = Math.max(maxWaitTime, waited);
+    }
+
+    private LinkedList<Object> getQueue(String nodeName) {
+        LinkedList<Object> queue = queues.get(nodeName);
+        if (queue == null) {
+            queue = new LinkedList<>();
+            queues.put(nodeName, queue);
+        }
+        return queue;
+    }
+
+    private static String displayName(String nodeName) {
+        return nodeName == null || nodeName.isEmpty() ? "master" : nodeName;
+    }
+}
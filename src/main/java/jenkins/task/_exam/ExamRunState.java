@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.util.Secret;
+import jenkins.internal.PollingScheduler;
+import jenkins.internal.data.FilterConfiguration;
+import jenkins.internal.data.TestConfiguration;
+import org.apache.commons.lang.SerializationUtils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persisted state of a started EXAM testrun.
+ * <p>
+ * EXAM keeps running on the agent if Jenkins is restarted. The state contains everything to reattach to the
+ * REST API of EXAM, to wait for the end of the testrun and to copy the reports. It is saved again whenever one of
+ * the pending testruns is started, with the start time and the filters of the testruns still to start.
+ * <p>
+ * The port stays leased by the node name of the state, so no other build starts EXAM on it while the reattached
+ * testrun is running.
+ */
+public class ExamRunState implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final String host;
+    private final int port;
+    private final String reportProject;
+    private final String modelProject;
+    private final String examWorkspace;
+    private final long startTime;
+    private final PollingScheduler pollingScheduler;
+    private String nodeName;
+    private String reportIncludes;
+    private String reportExcludes;
+    private ArrayList<FilterConfiguration> pendingBatches;
+    private TestConfiguration testConfiguration;
+    private Secret dbPassword;
+    private int failFastThreshold;
+
+    /**
+     * @param id               id of the execution the testrun belongs to
+     * @param host             IP address of the agent running EXAM
+     * @param port             port of the EXAM REST API
+     * @param reportProject    name of the report project
+     * @param modelProject     name of the model project
+     * @param examWorkspace    remote path of the -data directory of EXAM
+     * @param startTime        start time of the testrun in ms
+     * @param pollingScheduler scheduler for the status polls
+     */
+    public ExamRunState(String id, String host, int port, String reportProject, String modelProject,
+                        String examWorkspace, long startTime, PollingScheduler pollingScheduler) {
+        this.id = id;
+        this.host = host;
+        this.port = port;
+        this.reportProject = reportProject;
+        this.modelProject = modelProject;
+        this.examWorkspace = examWorkspace;
+        this.startTime = startTime;
+        this.pollingScheduler = pollingScheduler;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getReportProject() {
+        return reportProject;
+    }
+
+    public String getModelProject() {
+        return modelProject;
+    }
+
+    public String getExamWorkspace() {
+        return examWorkspace;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public PollingScheduler getPollingScheduler() {
+        return pollingScheduler;
+    }
+
+    /**
+     * @return name of the node running EXAM, null for a state saved by an older version
+     */
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public void setNodeName(String nodeName) {
+        this.nodeName = nodeName;
+    }
+
+    public String getReportIncludes() {
+        return reportIncludes;
+    }
+
+    public void setReportIncludes(String reportIncludes) {
+        this.reportIncludes = reportIncludes;
+    }
+
+    public String getReportExcludes() {
+        return reportExcludes;
+    }
+
+    public void setReportExcludes(String reportExcludes) {
+        this.reportExcludes = reportExcludes;
+    }
+
+    /**
+     * @return the filters of the testruns started after the running one
+     */
+    public List<FilterConfiguration> getPendingBatches() {
+        return pendingBatches == null ? new ArrayList<>() : pendingBatches;
+    }
+
+    public void setPendingBatches(List<FilterConfiguration> pendingBatches) {
+        this.pendingBatches = new ArrayList<>(pendingBatches);
+    }
+
+    /**
+     * @return the test configuration to start the pending testruns, null for a state saved by an older version
+     */
+    public TestConfiguration getTestConfiguration() {
+        if (testConfiguration == null) {
+            return null;
+        }
+        TestConfiguration tc = (TestConfiguration) SerializationUtils.clone(testConfiguration);
+        if (tc.getReportProject() != null) {
+            tc.getReportProject().setDbPassword(Secret.toString(dbPassword));
+        }
+        return tc;
+    }
+
+    /**
+     * Keeps a copy of the test configuration, the password of the report database is saved encrypted.
+     */
+    public void setTestConfiguration(TestConfiguration testConfiguration) {
+        TestConfiguration tc = (TestConfiguration) SerializationUtils.clone(testConfiguration);
+        if (tc.getReportProject() != null) {
+            dbPassword = Secret.fromString(tc.getReportProject().getDbPassword());
+            tc.getReportProject().setDbPassword("");
+        }
+        this.testConfiguration = tc;
+    }
+
+    /**
+     * @return number of failed test cases after which the testruns are stopped, 0 to run all test cases
+     */
+    public int getFailFastThreshold() {
+        return failFastThreshold;
+    }
+
+    public void setFailFastThreshold(int failFastThreshold) {
+        this.failFastThreshold = failFastThreshold;
+    }
+
+    /**
+     * @return the URL of the EXAM REST API
+     */
+    public String getBaseUrl() {
+        return "http://" + host + ":" + port + "/examRest";
+    }
+}
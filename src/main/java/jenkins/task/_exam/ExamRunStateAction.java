@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the states of the running EXAM testruns of a build in build.xml, so they can be resumed after a restart
+ * of Jenkins. A state is removed when its testrun is finished.
+ */
+public class ExamRunStateAction extends InvisibleAction {
+
+    private final List<ExamRunState> states = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param id id of the execution
+     * @return the state of the execution, or null
+     */
+    public ExamRunState getState(String id) {
+        for (ExamRunState state : states) {
+            if (state.getId().equals(id)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    public List<ExamRunState> getStates() {
+        return states;
+    }
+
+    /**
+     * Adds the state to the build, replacing the previous state of the execution, and saves the build.
+     */
+    public static void save(Run<?, ?> run, ExamRunState state) throws IOException {
+        ExamRunStateAction action;
+        synchronized (run) {
+            action = run.getAction(ExamRunStateAction.class);
+            if (action == null) {
+                action = new ExamRunStateAction();
+                run.addAction(action);
+            }
+        }
+        synchronized (action) {
+            ExamRunState previous = action.getState(state.getId());
+            if (previous != null) {
+                action.states.remove(previous);
+            }
+            action.states.add(state);
+        }
+        run.save();
+    }
+
+    /**
+     * Removes the state of the execution from the build and saves the build.
+     */
+    public static void remove(Run<?, ?> run, String id) throws IOException {
+        ExamRunStateAction action = run.getAction(ExamRunStateAction.class);
+        if (action == null) {
+            return;
+        }
+        ExamRunState state = action.getState(id);
+        if (state != null) {
+            action.states.remove(state);
+            run.save();
+        }
+    }
+}
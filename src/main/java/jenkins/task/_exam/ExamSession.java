@@ -0,0 +1,725 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+import jenkins.internal.AsyncClientRequest;
+import jenkins.internal.ClientRequest;
+import jenkins.internal.ExamResultIndex;
+import jenkins.internal.PollingScheduler;
+import jenkins.internal.ReportSummary;
+import jenkins.internal.ReportTransfer;
+import jenkins.internal.data.FilterConfiguration;
+import jenkins.internal.data.ModelConfiguration;
+import jenkins.internal.data.ReportConfiguration;
+import jenkins.internal.data.TestConfiguration;
+import jenkins.util.BuildListenerAdapter;
+import org.apache.commons.lang.RandomStringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * State of one EXAM execution, from the launch of EXAM until EXAM is closed.
+ * <p>
+ * Created by {@link jenkins.task.Exam#prepareSession} and shared by the build step and the pipeline step.
+ */
+public class ExamSession {
+
+    /** timeout to wait for the EXAM REST API after the launch in ms */
+    public static final int CONNECT_TIMEOUT = 5 * 60 * 1000;
+    /** timeout to wait for EXAM to shutdown in ms */
+    public static final int DISCONNECT_TIMEOUT = 60 * 1000;
+
+    private final Run<?, ?> run;
+    private final FilePath workspace;
+    private final Launcher launcher;
+    private final TaskListener listener;
+    private final EnvVars env;
+    private final long startTime = System.currentTimeMillis();
+
+    private ArgumentListBuilder args;
+    private FilePath pwd;
+    private String pythonExe;
+    private String host;
+    private int port;
+    private String nodeName;
+    private boolean daemonMode;
+    private String daemonKey;
+    private ExamDaemon daemon;
+    private boolean portLeased;
+    private FilePath examWorkspace;
+    private FilePath reportTarget;
+    private String reportIncludes;
+    private String reportExcludes;
+    private ReportSummary reportSummary;
+    private boolean unstableOnFailure;
+    private FilePath outputLog;
+    private long testrunStartTime;
+    private String systemConfiguration;
+    private final Deque<FilterConfiguration> pendingBatches = new ArrayDeque<>();
+    private int failFastThreshold;
+    private boolean failFastReached;
+
+    private ClientRequest clientRequest;
+    private ExamConsoleAnnotator annotator;
+    private ExamEventStream eventStream;
+    private final ExamTestIndex testIndex = new ExamTestIndex();
+    private boolean errorOutDumped;
+    private ExamProc proc;
+    private TestConfiguration testConfiguration;
+
+    public ExamSession(Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener, EnvVars env) {
+        this.run = run;
+        this.workspace = workspace;
+        this.launcher = launcher;
+        this.listener = listener;
+        this.env = env;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    public FilePath getWorkspace() {
+        return workspace;
+    }
+
+    public Launcher getLauncher() {
+        return launcher;
+    }
+
+    public TaskListener getListener() {
+        return listener;
+    }
+
+    public EnvVars getEnv() {
+        return env;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public ArgumentListBuilder getArgs() {
+        return args;
+    }
+
+    public void setArgs(ArgumentListBuilder args) {
+        this.args = args;
+    }
+
+    public FilePath getPwd() {
+        return pwd;
+    }
+
+    public void setPwd(FilePath pwd) {
+        this.pwd = pwd;
+    }
+
+    public String getPythonExe() {
+        return pythonExe;
+    }
+
+    public void setPythonExe(String pythonExe) {
+        this.pythonExe = pythonExe;
+    }
+
+    /**
+     * @return the IP address of the node running EXAM
+     */
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public void setNodeName(String nodeName) {
+        this.nodeName = nodeName;
+    }
+
+    /**
+     * @return true if EXAM is kept running after the testrun, see {@link ExamDaemonPool}
+     */
+    public boolean isDaemonMode() {
+        return daemonMode;
+    }
+
+    public void setDaemonMode(boolean daemonMode) {
+        this.daemonMode = daemonMode;
+    }
+
+    /**
+     * @return the EXAM installation and options, used to find a matching daemon
+     */
+    public String getDaemonKey() {
+        return daemonKey;
+    }
+
+    public void setDaemonKey(String daemonKey) {
+        this.daemonKey = daemonKey;
+    }
+
+    /**
+     * @return true if the port was leased for this session, see {@link ExamPortLeaseManager}
+     */
+    public boolean isPortLeased() {
+        return portLeased;
+    }
+
+    public void setPortLeased(boolean portLeased) {
+        this.portLeased = portLeased;
+    }
+
+    /**
+     * @return the leased EXAM daemon, or null if EXAM is closed after the testrun
+     */
+    public ExamDaemon getDaemon() {
+        return daemon;
+    }
+
+    public void setDaemon(ExamDaemon daemon) {
+        this.daemon = daemon;
+    }
+
+    /**
+     * @return the -data directory of EXAM
+     */
+    public FilePath getExamWorkspace() {
+        return examWorkspace;
+    }
+
+    public void setExamWorkspace(FilePath examWorkspace) {
+        this.examWorkspace = examWorkspace;
+    }
+
+    /**
+     * @return the compressed log of the full EXAM output, null if the output is written to the console
+     */
+    public FilePath getOutputLog() {
+        return outputLog;
+    }
+
+    public void setOutputLog(FilePath outputLog) {
+        this.outputLog = outputLog;
+    }
+
+    /**
+     * @return the directory the junit reports are copied to, null until the reports are copied
+     */
+    public FilePath getReportTarget() {
+        return reportTarget;
+    }
+
+    public void setReportTarget(FilePath reportTarget) {
+        this.reportTarget = reportTarget;
+    }
+
+    /**
+     * @return Ant pattern of the junit reports to copy, null for all reports
+     */
+    public String getReportIncludes() {
+        return reportIncludes;
+    }
+
+    public void setReportIncludes(String reportIncludes) {
+        this.reportIncludes = reportIncludes;
+    }
+
+    /**
+     * @return Ant pattern of the junit reports not to copy, may be null
+     */
+    public String getReportExcludes() {
+        return reportExcludes;
+    }
+
+    public void setReportExcludes(String reportExcludes) {
+        this.reportExcludes = reportExcludes;
+    }
+
+    /**
+     * @return the summary of the junit reports, null until the reports are copied
+     */
+    public ReportSummary getReportSummary() {
+        return reportSummary;
+    }
+
+    /**
+     * @return true if the build is marked unstable when a test case failed
+     */
+    public boolean isUnstableOnFailure() {
+        return unstableOnFailure;
+    }
+
+    public void setUnstableOnFailure(boolean unstableOnFailure) {
+        this.unstableOnFailure = unstableOnFailure;
+    }
+
+    /**
+     * @return the time the testrun was started in ms
+     */
+    public long getTestrunStartTime() {
+        return testrunStartTime;
+    }
+
+    public void setTestrunStartTime(long testrunStartTime) {
+        this.testrunStartTime = testrunStartTime;
+    }
+
+    /**
+     * @return the system configuration of the matrix run by this session, null for the system configuration of the
+     * job
+     */
+    public String getSystemConfiguration() {
+        return systemConfiguration;
+    }
+
+    public void setSystemConfiguration(String systemConfiguration) {
+        this.systemConfiguration = systemConfiguration;
+    }
+
+    /**
+     * Sets the filters of the testruns started after the current one, see {@link #startNextBatch()}.
+     */
+    public synchronized void setPendingBatches(Collection<FilterConfiguration> batches) {
+        pendingBatches.clear();
+        pendingBatches.addAll(batches);
+    }
+
+    /**
+     * @return number of testruns still to start
+     */
+    public synchronized int getPendingBatches() {
+        return pendingBatches.size();
+    }
+
+    /**
+     * Sets the number of failed test cases after which no further testrun is started, see {@link #checkFailFast()}.
+     *
+     * @param failFastThreshold number of failed test cases, 0 to run all test cases
+     */
+    public synchronized void setFailFastThreshold(int failFastThreshold) {
+        this.failFastThreshold = failFastThreshold;
+    }
+
+    /**
+     * @return true if the fail fast threshold was reached
+     */
+    public synchronized boolean isFailFastReached() {
+        return failFastReached;
+    }
+
+    /**
+     * Checks the failed test cases of the finished testruns against the fail fast threshold. The reports of the
+     * report project are converted and the failures and errors of the junit reports are counted, the report project
+     * is cleared when the session starts, so only this session is counted. The check runs between two testruns,
+     * a running testrun is not stopped. The pending testruns are dropped when the threshold is reached.
+     *
+     * @return true if the threshold is reached
+     */
+    public boolean checkFailFast() throws IOException, InterruptedException {
+        synchronized (this) {
+            if (failFastReached || failFastThreshold <= 0 || pendingBatches.isEmpty() || !isTestrunStarted()) {
+                return failFastReached;
+            }
+        }
+        String reportProject = testConfiguration.getReportProject().getProjectName();
+        clientRequest.convert(reportProject);
+        ReportSummary summary = examWorkspace.child("reports").child(reportProject).child("junit")
+                .act(new ReportSummary.Summariser(0, false));
+        int failed = summary.getFailures() + summary.getErrors();
+        synchronized (this) {
+            if (failed < failFastThreshold) {
+                return false;
+            }
+            failFastReached = true;
+            listener.getLogger().println("fail fast: " + failed + " testcases failed, " + pendingBatches.size()
+                    + " pending testruns skipped");
+            pendingBatches.clear();
+            return true;
+        }
+    }
+
+    /**
+     * Starts the next pending testrun with the test configuration of the finished one.
+     *
+     * @return true if a testrun was started, false if no testrun is pending or the fail fast threshold was reached
+     */
+    public boolean startNextBatch() throws IOException, InterruptedException {
+        if (checkFailFast()) {
+            return false;
+        }
+        FilterConfiguration batch;
+        synchronized (this) {
+            if (pendingBatches.isEmpty() || !isTestrunStarted()) {
+                return false;
+            }
+            batch = pendingBatches.poll();
+        }
+        clientRequest.setTestrunFilter(batch);
+        clientRequest.startTestrun(testConfiguration);
+        testrunStartTime = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * @return the test cases of this session recorded in the output of EXAM
+     */
+    public ExamTestIndex getTestIndex() {
+        return testIndex;
+    }
+
+    public ClientRequest getClientRequest() {
+        return clientRequest;
+    }
+
+    public void setClientRequest(ClientRequest clientRequest) {
+        this.clientRequest = clientRequest;
+    }
+
+    public AsyncClientRequest getAsyncClientRequest() {
+        return new AsyncClientRequest(clientRequest);
+    }
+
+    public ExamConsoleAnnotator getAnnotator() {
+        return annotator;
+    }
+
+    public void setAnnotator(ExamConsoleAnnotator annotator) {
+        this.annotator = annotator;
+    }
+
+    /**
+     * @return the first stage of the console chain, it records the test cases in the {@link ExamTestIndex}
+     */
+    public ExamEventStream getEventStream() {
+        return eventStream;
+    }
+
+    public void setEventStream(ExamEventStream eventStream) {
+        this.eventStream = eventStream;
+    }
+
+    public ExamProc getProc() {
+        return proc;
+    }
+
+    public void setProc(ExamProc proc) {
+        this.proc = proc;
+    }
+
+    public TestConfiguration getTestConfiguration() {
+        return testConfiguration;
+    }
+
+    public void setTestConfiguration(TestConfiguration testConfiguration) {
+        this.testConfiguration = testConfiguration;
+    }
+
+    /**
+     * @return true if EXAM is connected and the testrun is started
+     */
+    public boolean isTestrunStarted() {
+        return testConfiguration != null;
+    }
+
+    /**
+     * Converts the results of the finished testrun to junit and copies them to the target directory of the
+     * workspace.
+     */
+    public void finish() throws IOException, InterruptedException {
+        String reportProject = testConfiguration.getReportProject().getProjectName();
+        clientRequest.convert(reportProject);
+
+        String reportHash = "__" + RandomStringUtils.random(5, "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray());
+        String modelProject = testConfiguration.getModelProject().getProjectName();
+        FilePath source = examWorkspace.child("reports").child(reportProject).child("junit");
+        FilePath target = workspace.child("target").child("test-reports").child(modelProject + reportHash);
+        if (source.getChannel() == target.getChannel()) {
+            ReportTransfer.Result result = source.act(new ReportTransfer(target.getRemote(), reportIncludes,
+                    reportExcludes, modelProject + "__"));
+            listener.getLogger().println("copied " + result.getCopied() + " reports (" + result.getBytes() / 1024
+                    + " KB), " + result.getLinked() + " unchanged reports linked");
+        } else {
+            source.copyRecursiveTo(reportIncludes == null ? "**" : reportIncludes, reportExcludes, target);
+        }
+        reportTarget = target;
+
+        reportSummary = target.act(new ReportSummary.Summariser(ReportSummary.DEFAULT_TOP, true));
+        listener.getLogger().println("EXAM results: " + reportSummary);
+        for (ReportSummary.TestTime test : reportSummary.getSlowest()) {
+            listener.getLogger().println(String.format("  %8.1fs %s", test.getTime(), test.getName()));
+        }
+        if (reportSummary.getResults() != null) {
+            try {
+                ExamResultIndex.forJob(run.getParent().getRootDir()).append(run.getNumber(),
+                        systemConfiguration, reportSummary.getResults());
+            } catch (IOException e) {
+                listener.getLogger().println("WARNING: the results could not be added to the result index: "
+                        + e.getMessage());
+            }
+        }
+        if (unstableOnFailure && reportSummary.hasFailures()) {
+            listener.getLogger().println("marking the build as unstable, testcases failed");
+            run.setResult(Result.UNSTABLE);
+        }
+    }
+
+    /**
+     * Creates the state to reattach to this session after a restart of Jenkins.
+     *
+     * @param id        id of the execution
+     * @param scheduler scheduler for the status polls
+     * @return the state of the started testrun
+     */
+    public ExamRunState createRunState(String id, PollingScheduler scheduler) {
+        if (!isTestrunStarted()) {
+            throw new IllegalStateException("testrun not started");
+        }
+        ExamRunState state = new ExamRunState(id, host, port, testConfiguration.getReportProject().getProjectName(),
+                testConfiguration.getModelProject().getProjectName(), examWorkspace.getRemote(), testrunStartTime,
+                scheduler);
+        state.setNodeName(nodeName);
+        state.setTestConfiguration(testConfiguration);
+        state.setReportIncludes(reportIncludes);
+        state.setReportExcludes(reportExcludes);
+        synchronized (this) {
+            state.setPendingBatches(pendingBatches);
+            state.setFailFastThreshold(failFastThreshold);
+        }
+        return state;
+    }
+
+    /**
+     * Creates a session for a testrun which was started before a restart of Jenkins. The client is not connected
+     * and the console output of EXAM is not available. The port of EXAM is leased again, it is released when the
+     * session is closed.
+     *
+     * @param state the persisted state of the testrun
+     * @return the session of the started testrun
+     */
+    public static ExamSession reattach(Run<?, ?> run, FilePath workspace, Launcher launcher, TaskListener listener,
+                                       EnvVars env, ExamRunState state) {
+        ExamSession session = new ExamSession(run, workspace, launcher, listener, env);
+        session.setHost(state.getHost());
+        session.setPort(state.getPort());
+        session.setExamWorkspace(new FilePath(workspace.getChannel(), state.getExamWorkspace()));
+        session.setTestrunStartTime(state.getStartTime());
+        session.setClientRequest(new ClientRequest(launcher, listener.getLogger(), state.getBaseUrl()));
+        session.setReportIncludes(state.getReportIncludes());
+        session.setReportExcludes(state.getReportExcludes());
+        session.setPendingBatches(state.getPendingBatches());
+        session.setFailFastThreshold(state.getFailFastThreshold());
+        if (state.getNodeName() != null) {
+            session.setNodeName(state.getNodeName());
+            if (ExamPortLeaseManager.get().leaseRunning(state.getNodeName(), state.getPort())) {
+                session.setPortLeased(true);
+            } else {
+                listener.getLogger().println("WARNING: port " + state.getPort()
+                        + " of the reattached EXAM is leased by another build");
+            }
+        }
+
+        TestConfiguration tc = state.getTestConfiguration();
+        if (tc == null) {
+            ReportConfiguration reportProject = new ReportConfiguration();
+            reportProject.setProjectName(state.getReportProject());
+            ModelConfiguration modelProject = new ModelConfiguration();
+            modelProject.setProjectName(state.getModelProject());
+            tc = new TestConfiguration();
+            tc.setReportProject(reportProject);
+            tc.setModelProject(modelProject);
+        }
+        session.setTestConfiguration(tc);
+        return session;
+    }
+
+    /**
+     * Flushes the console output and closes EXAM. A leased daemon is returned to the {@link ExamDaemonPool}
+     * instead, it keeps the port until it is shut down.
+     *
+     * @throws IOException if the console output could not be written
+     */
+    public void close() throws IOException {
+        try {
+            if (daemon != null) {
+                try {
+                    drainOutput();
+                } finally {
+                    ExamDaemonPool.get().release(daemon, clientRequest != null && clientRequest.isApiAvailable());
+                }
+            } else {
+                try {
+                    if (clientRequest != null) {
+                        clientRequest.disconnectClient(DISCONNECT_TIMEOUT);
+                    }
+                } finally {
+                    try {
+                        joinProc();
+                        drainOutput();
+                        archiveOutputLog();
+                    } finally {
+                        if (portLeased) {
+                            ExamPortLeaseManager.get().release(nodeName, port);
+                            portLeased = false;
+                            ExamResourceQueue.get().resourceReleased();
+                        }
+                    }
+                }
+            }
+        } finally {
+            try {
+                if (eventStream != null) {
+                    eventStream.forceEol();
+                }
+            } finally {
+                if (annotator != null) {
+                    annotator.forceEol();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the captured error output of EXAM to the console and archives it as artifact. Called if the build
+     * fails or EXAM does not answer, the error output is dumped only once.
+     */
+    public void dumpErrorOut() throws IOException, InterruptedException {
+        if (proc == null || errorOutDumped) {
+            return;
+        }
+        errorOutDumped = true;
+        ExamOutputArchive.ErrorOutput errorOut = proc.getErrorOutput();
+        byte[] tail = errorOut.getTail();
+        if (tail.length == 0) {
+            return;
+        }
+        listener.getLogger().println("----- EXAM error output"
+                + (errorOut.getWritten() > tail.length ? ", last " + tail.length + " bytes" : "") + " -----");
+        listener.getLogger().write(tail);
+        listener.getLogger().println("----- end of EXAM error output -----");
+
+        String name = "exam-stderr-" + port + ".log";
+        FilePath log = workspace.child("target").child(name);
+        log.getParent().mkdirs();
+        try (OutputStream out = log.write()) {
+            out.write(tail);
+        }
+        run.getArtifactManager().archive(workspace, launcher, BuildListenerAdapter.wrap(listener),
+                Collections.singletonMap(name, "target/" + name));
+    }
+
+    /**
+     * Waits for the end of EXAM, EXAM is killed if it does not exit in time. Its output on the node is closed.
+     */
+    private void joinProc() throws IOException {
+        if (proc == null) {
+            return;
+        }
+        try {
+            proc.joinWithTimeout(DISCONNECT_TIMEOUT, TimeUnit.MILLISECONDS, listener);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Archives the compressed log of the output of the exited EXAM.
+     */
+    private void archiveOutputLog() throws IOException {
+        if (outputLog == null || proc == null) {
+            return;
+        }
+        FilePath log = outputLog;
+        outputLog = null;
+        try {
+            if (!log.exists()) {
+                return;
+            }
+            listener.getLogger().println("archiving the EXAM output " + log.getName() + " ("
+                    + log.length() / 1024 + " KB)");
+            run.getArtifactManager().archive(workspace, launcher, BuildListenerAdapter.wrap(listener),
+                    Collections.singletonMap(log.getName(), "target/" + log.getName()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.getLogger().println("WARNING: EXAM output not archived, the build was interrupted");
+        }
+    }
+
+    /**
+     * Waits until the output of EXAM has reached the console and reports the lines which did not fit into the
+     * buffer of the log pump on the node of EXAM.
+     */
+    private void drainOutput() throws IOException {
+        if (proc == null) {
+            return;
+        }
+        ExamOutputArchive.PumpStatus status;
+        try {
+            status = proc.drainOutput();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (status.getDroppedLines() > 0) {
+            listener.getLogger().println("WARNING: " + status.getDroppedLines()
+                    + " DEBUG lines of EXAM dropped, the console was too slow");
+        }
+        if (status.getSpilledBytes() > 0) {
+            listener.getLogger().println("INFO: " + status.getSpilledBytes()
+                    + " bytes of EXAM output were buffered in a temporary file, the console was too slow");
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task._exam;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory index of the test cases of an {@link ExamSession}, filled while EXAM is running by
+ * {@link ExamEventStream}.
+ * <p>
+ * The index gives live pass/fail counters, the durations of the finished test cases and the test case currently
+ * running, before the reports are converted at the end of the testrun. Every session has its own index, so the
+ * sessions of a matrix running in parallel do not mix their test cases. It is not persisted.
+ * <p>
+ * The index is only as complete as the {@link ExamEventPatterns} recognise the console lines of EXAM. It is shown
+ * as live progress, the result of the build is taken from the junit reports.
+ */
+public class ExamTestIndex {
+
+    /**
+     * Verdict of a finished test case.
+     */
+    public enum Verdict {
+        PASSED, FAILED, ERROR, SKIPPED
+    }
+
+    /**
+     * A finished test case.
+     */
+    public static class TestResult {
+        private final String name;
+        private final Verdict verdict;
+        private final long duration;
+
+        TestResult(String name, Verdict verdict, long duration) {
+            this.name = name;
+            this.verdict = verdict;
+            this.duration = duration;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Verdict getVerdict() {
+            return verdict;
+        }
+
+        /**
+         * @return duration of the test case in ms
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+
+    private final int[] counts = new int[Verdict.values().length];
+    private final List<TestResult> results = new ArrayList<>();
+    private String currentTest;
+    private long currentTestStart;
+
+    synchronized void testStarted(String name, long time) {
+        currentTest = name;
+        currentTestStart = time;
+    }
+
+    synchronized void testFinished(String name, Verdict verdict, long time) {
+        long duration = name.equals(currentTest) ? time - currentTestStart : 0;
+        results.add(new TestResult(name, verdict, duration));
+        counts[verdict.ordinal()]++;
+        currentTest = null;
+    }
+
+    /**
+     * @return number of finished test cases with the verdict
+     */
+    public synchronized int getCount(Verdict verdict) {
+        return counts[verdict.ordinal()];
+    }
+
+    /**
+     * @return number of finished test cases
+     */
+    public synchronized int getFinished() {
+        return results.size();
+    }
+
+    /**
+     * @return name of the running test case, or null between two test cases
+     */
+    public synchronized String getCurrentTest() {
+        return currentTest;
+    }
+
+    /**
+     * @return start time of the running test case in ms
+     */
+    public synchronized long getCurrentTestStart() {
+        return currentTestStart;
+    }
+
+    /**
+     * @return the finished test cases in the order they finished
+     */
+    public synchronized List<TestResult> getResults() {
+        return new ArrayList<>(results);
+    }
+}
@@ -0,0 +1,727 @@
+/**
+ * Copyright (c) 2018 MicroNova AG
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ *
+ *     1. Redistributions of source code must retain the above copyright notice, this
+ *        list of conditions and the following disclaimer.
+ *
+ *     2. Redistributions in binary form must reproduce the above copyright notice, this
+ *        list of conditions and the following disclaimer in the documentation and/or
+ *        other materials provided with the distribution.
+ *
+ *     3. Neither the name of MicroNova AG nor the names of its
+ *        contributors may be used to endorse or promote products derived from
+ *        this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jenkins.task.pipeline;
+
+import hudson.AbortException;
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Computer;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
+import jenkins.internal.PollingScheduler;
+import jenkins.internal.data.ExamStatus;
+import jenkins.internal.descriptor.ExamDescriptor;
+import jenkins.internal.enumeration.RestAPILogLevelEnum;
+import jenkins.model.Jenkins;
+import jenkins.plugins.exam.ExamTool;
+import jenkins.plugins.exam.config.ExamModelConfig;
+import jenkins.plugins.exam.config.ExamReportConfig;
+import jenkins.plugins.shiningpanda.tools.PythonInstallation;
+import jenkins.task.Exam;
+import jenkins.task.TestrunFilter;
+import jenkins.task._exam.ExamProgressAction;
+import jenkins.task._exam.ExamRunState;
+import jenkins.task._exam.ExamRunStateAction;
+import jenkins.task._exam.ExamSession;
+import jenkins.task._exam.Messages;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pipeline step to execute an EXAM testrun.
+ * <p>
+ * Unlike the {@link Exam} build step wrapped by the generic step, this step does not block a thread while the
+ * testrun is in progress: EXAM is launched and connected on a pooled thread, the testrun status is polled
+ * asynchronously and the step completes when the reports are copied.
+ */
+public class ExamStep extends Step {
+
+    private final Exam exam;
+
+    @DataBoundConstructor
+    public ExamStep(String examName, String pythonName, String examModel, String examReport, String executionFile,
+                    String systemConfiguration) {
+        exam = new Exam(examName, pythonName, examModel, examReport, executionFile, systemConfiguration);
+    }
+
+    /**
+     * @return the build step with the configuration of this step
+     */
+    public Exam getExam() {
+        return exam;
+    }
+
+    public String getExamName() {
+        return exam.getExamName();
+    }
+
+    public String getPythonName() {
+        return exam.getPythonName();
+    }
+
+    public String getExamModel() {
+        return exam.getExamModel();
+    }
+
+    public String getExamReport() {
+        return exam.getExamReport();
+    }
+
+    public String getExecutionFile() {
+        return exam.getExecutionFile();
+    }
+
+    public String getSystemConfiguration() {
+        return exam.getSystemConfiguration();
+    }
+
+    public String getReportPrefix() {
+        return exam.getReportPrefix();
+    }
+
+    @DataBoundSetter
+    public void setReportPrefix(String reportPrefix) {
+        exam.setReportPrefix(reportPrefix);
+    }
+
+    public boolean getPdfReport() {
+        return exam.getPdfReport();
+    }
+
+    @DataBoundSetter
+    public void setPdfReport(boolean pdfReport) {
+        exam.setPdfReport(pdfReport);
+    }
+
+    public String getPdfReportTemplate() {
+        return exam.getPdfReportTemplate();
+    }
+
+    @DataBoundSetter
+    public void setPdfReportTemplate(String pdfReportTemplate) {
+        exam.setPdfReportTemplate(pdfReportTemplate);
+    }
+
+    public String getPdfSelectFilter() {
+        return exam.getPdfSelectFilter();
+    }
+
+    @DataBoundSetter
+    public void setPdfSelectFilter(String pdfSelectFilter) {
+        exam.setPdfSelectFilter(pdfSelectFilter);
+    }
+
+    public boolean getPdfMeasureImages() {
+        return exam.getPdfMeasureImages();
+    }
+
+    @DataBoundSetter
+    public void setPdfMeasureImages(boolean pdfMeasureImages) {
+        exam.setPdfMeasureImages(pdfMeasureImages);
+    }
+
+    public boolean getLogging() {
+        return exam.getLogging();
+    }
+
+    @DataBoundSetter
+    public void setLogging(boolean logging) {
+        exam.setLogging(logging);
+    }
+
+    public List<TestrunFilter> getTestrunFilter() {
+        return exam.getTestrunFilter();
+    }
+
+    @DataBoundSetter
+    public void setTestrunFilter(List<TestrunFilter> testrunFilter) {
+        exam.setTestrunFilter(testrunFilter);
+    }
+
+    public String getLoglevel_test_ctrl() {
+        return exam.getLoglevel_test_ctrl();
+    }
+
+    @DataBoundSetter
+    public void setLoglevel_test_ctrl(String loglevel_test_ctrl) {
+        exam.setLoglevel_test_ctrl(loglevel_test_ctrl);
+    }
+
+    public String getLoglevel_test_logic() {
+        return exam.getLoglevel_test_logic();
+    }
+
+    @DataBoundSetter
+    public void setLoglevel_test_logic(String loglevel_test_logic) {
+        exam.setLoglevel_test_logic(loglevel_test_logic);
+    }
+
+    public String getLoglevel_lib_ctrl() {
+        return exam.getLoglevel_lib_ctrl();
+    }
+
+    @DataBoundSetter
+    public void setLoglevel_lib_ctrl(String loglevel_lib_ctrl) {
+        exam.setLoglevel_lib_ctrl(loglevel_lib_ctrl);
+    }
+
+    public String getLoglevel_console() {
+        return exam.getLoglevel_console();
+    }
+
+    @DataBoundSetter
+    public void setLoglevel_console(String loglevel_console) {
+        exam.setLoglevel_console(loglevel_console);
+    }
+
+    public boolean isClearWorkspace() {
+        return exam.isClearWorkspace();
+    }
+
+    @DataBoundSetter
+    public void setClearWorkspace(boolean clearWorkspace) {
+        exam.setClearWorkspace(clearWorkspace);
+    }
+
+    public boolean isArchiveOutput() {
+        return exam.isArchiveOutput();
+    }
+
+    @DataBoundSetter
+    public void setArchiveOutput(boolean archiveOutput) {
+        exam.setArchiveOutput(archiveOutput);
+    }
+
+    public String getReportIncludes() {
+        return exam.getReportIncludes();
+    }
+
+    @DataBoundSetter
+    public void setReportIncludes(String reportIncludes) {
+        exam.setReportIncludes(reportIncludes);
+    }
+
+    public String getReportExcludes() {
+        return exam.getReportExcludes();
+    }
+
+    @DataBoundSetter
+    public void setReportExcludes(String reportExcludes) {
+        exam.setReportExcludes(reportExcludes);
+    }
+
+    public boolean isUnstableOnFailure() {
+        return exam.isUnstableOnFailure();
+    }
+
+    @DataBoundSetter
+    public void setUnstableOnFailure(boolean unstableOnFailure) {
+        exam.setUnstableOnFailure(unstableOnFailure);
+    }
+
+    public boolean isFailedFirst() {
+        return exam.isFailedFirst();
+    }
+
+    @DataBoundSetter
+    public void setFailedFirst(boolean failedFirst) {
+        exam.setFailedFirst(failedFirst);
+    }
+
+    public int getFailFastThreshold() {
+        return exam.getFailFastThreshold();
+    }
+
+    @DataBoundSetter
+    public void setFailFastThreshold(int failFastThreshold) {
+        exam.setFailFastThreshold(failFastThreshold);
+    }
+
+    public int getShardCount() {
+        return exam.getShardCount();
+    }
+
+    @DataBoundSetter
+    public void setShardCount(int shardCount) {
+        exam.setShardCount(shardCount);
+    }
+
+    public int getShardIndex() {
+        return exam.getShardIndex();
+    }
+
+    @DataBoundSetter
+    public void setShardIndex(int shardIndex) {
+        exam.setShardIndex(shardIndex);
+    }
+
+    public String getSystemConfigurations() {
+        return exam.getSystemConfigurations();
+    }
+
+    @DataBoundSetter
+    public void setSystemConfigurations(String systemConfigurations) {
+        exam.setSystemConfigurations(systemConfigurations);
+    }
+
+    public int getMatrixConcurrency() {
+        return exam.getMatrixConcurrency();
+    }
+
+    @DataBoundSetter
+    public void setMatrixConcurrency(int matrixConcurrency) {
+        exam.setMatrixConcurrency(matrixConcurrency);
+    }
+
+    public String getModelConfiguration() {
+        return exam.getModelConfiguration();
+    }
+
+    @DataBoundSetter
+    public void setModelConfiguration(String modelConfiguration) {
+        exam.setModelConfiguration(modelConfiguration);
+    }
+
+    public int getStatusPollFastInterval() {
+        return exam.getStatusPollFastInterval();
+    }
+
+    @DataBoundSetter
+    public void setStatusPollFastInterval(int statusPollFastInterval) {
+        exam.setStatusPollFastInterval(statusPollFastInterval);
+    }
+
+    public int getStatusPollSlowInterval() {
+        return exam.getStatusPollSlowInterval();
+    }
+
+    @DataBoundSetter
+    public void setStatusPollSlowInterval(int statusPollSlowInterval) {
+        exam.setStatusPollSlowInterval(statusPollSlowInterval);
+    }
+
+    public String getJavaOpts() {
+        return exam.getJavaOpts();
+    }
+
+    @DataBoundSetter
+    public void setJavaOpts(String javaOpts) {
+        exam.setJavaOpts(javaOpts);
+    }
+
+    @Override
+    public StepExecution start(StepContext context) throws Exception {
+        return new Execution(this, context);
+    }
+
+    /**
+     * Runs EXAM without blocking the CPS VM thread or an executor thread while the testrun is in progress.
+     * <p>
+     * The state of the started testrun is saved with the build. After a restart of Jenkins the execution reattaches
+     * to the still running EXAM, waits for the end of the testrun and copies the reports.
+     */
+    public static class Execution extends StepExecution {
+
+        private static final long serialVersionUID = 1L;
+        private static final Logger LOGGER = Logger.getLogger(Execution.class.getName());
+
+        /**
+         * Launches EXAM, the launch waits in the resource queue and for the REST API. The waiting builds do not hold
+         * threads of the shared remoting pool, an idle thread ends after a minute.
+         */
+        private static final ExecutorService LAUNCHER = Executors.newCachedThreadPool(
+                new NamingThreadFactory(new DaemonThreadFactory(), "EXAM step launcher"));
+
+        private final String id = UUID.randomUUID().toString();
+        private final transient ExamStep step;
+        private transient volatile ExamSession session;
+        private transient volatile CompletableFuture<ExamStatus> status;
+        private transient volatile Throwable stopCause;
+        private transient Thread launching;
+        private final boolean unstableOnFailure;
+        private final boolean matrix;
+
+        Execution(ExamStep step, StepContext context) {
+            super(context);
+            this.step = step;
+            this.unstableOnFailure = step.isUnstableOnFailure();
+            this.matrix = !step.getExam().getSystemConfigurationList().isEmpty();
+        }
+
+        @Override
+        public boolean start() throws Exception {
+            StepContext context = getContext();
+            Run<?, ?> run = context.get(Run.class);
+            FilePath workspace = context.get(FilePath.class);
+            Launcher launcher = context.get(Launcher.class);
+            TaskListener listener = context.get(TaskListener.class);
+            EnvVars env = context.get(EnvVars.class);
+            Exam exam = step.getExam();
+
+            if (matrix) {
+                performMatrix(exam, run, workspace, launcher, listener, env);
+                return false;
+            }
+            observe(run, listener, CompletableFuture.supplyAsync(() -> {
+                setLaunching(Thread.currentThread());
+                try {
+                    ExamSession examSession = exam.prepareSession(run, workspace, launcher, listener, env);
+                    session = examSession;
+                    exam.launchSession(examSession);
+                    if (examSession.isTestrunStarted()) {
+                        ExamProgressAction.start(run, id, exam.getExecutionFile(), examSession.getTestrunStartTime())
+                                .setTestIndex(examSession.getTestIndex());
+                        ExamRunStateAction.save(run, examSession.createRunState(id, exam.createPollingScheduler(run)));
+                    }
+                    return examSession;
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                } finally {
+                    setLaunching(null);
+                }
+            }, LAUNCHER));
+            return false;
+        }
+
+        /**
+         * Reattaches to EXAM after a restart of Jenkins.
+         */
+        @Override
+        public void onResume() {
+            StepContext context = getContext();
+            Run<?, ?> run;
+            TaskListener listener;
+            try {
+                run = context.get(Run.class);
+                listener = context.get(TaskListener.class);
+            } catch (IOException | InterruptedException e) {
+                context.onFailure(e);
+                return;
+            }
+            if (matrix) {
+                context.onFailure(new AbortException("ERROR: the EXAM matrix can not be continued after a restart"));
+                return;
+            }
+            ExamRunStateAction action = run.getAction(ExamRunStateAction.class);
+            ExamRunState state = action == null ? null : action.getState(id);
+            if (state == null) {
+                context.onFailure(new AbortException("ERROR: EXAM testrun was not started before the restart"));
+                return;
+            }
+
+            observe(run, listener, CompletableFuture.supplyAsync(() -> {
+                try {
+                    listener.getLogger().println("reattaching to EXAM at " + state.getBaseUrl());
+                    ExamSession examSession = ExamSession.reattach(run, context.get(FilePath.class),
+                            context.get(Launcher.class), listener, context.get(EnvVars.class), state);
+                    examSession.setUnstableOnFailure(unstableOnFailure);
+                    session = examSession;
+                    if (!examSession.getClientRequest().connectClient(ExamSession.CONNECT_TIMEOUT)) {
+                        throw new AbortException("ERROR: EXAM at " + state.getBaseUrl() + " is not available");
+                    }
+                    return examSession;
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+            }, LAUNCHER));
+        }
+
+        /**
+         * Runs the system configurations of the matrix in a pooled thread, the thread is interrupted if the step is
+         * stopped. The matrix is not reattached after a restart of Jenkins.
+         */
+        private void performMatrix(Exam exam, Run<?, ?> run, FilePath workspace, Launcher launcher,
+                                   TaskListener listener, EnvVars env) {
+            StepContext context = getContext();
+            CompletableFuture.runAsync(() -> {
+                setLaunching(Thread.currentThread());
+                try {
+                    exam.performMatrix(run, workspace, launcher, listener, env);
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                } finally {
+                    setLaunching(null);
+                }
+            }, LAUNCHER).whenComplete((ignored, error) -> {
+                Throwable cause = stopCause;
+                if (cause == null && error != null) {
+                    cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                }
+                if (cause == null) {
+                    context.onSuccess(null);
+                } else {
+                    context.onFailure(cause);
+                }
+            });
+        }
+
+        /**
+         * Waits asynchronously for the end of the testrun of the session, copies the reports, closes EXAM and
+         * completes the step.
+         */
+        private void observe(Run<?, ?> run, TaskListener listener, CompletableFuture<ExamSession> started) {
+            StepContext context = getContext();
+            started.thenCompose(examSession -> {
+                if (stopCause != null) {
+                    throw new CompletionException(stopCause);
+                }
+                if (!examSession.isTestrunStarted()) {
+                    throw new CompletionException(new AbortException("ERROR: EXAM testrun not started"));
+                }
+                // added with the run state when the testrun was started
+                ExamProgressAction progress = ExamProgressAction.start(run, id, null,
+                        examSession.getTestrunStartTime());
+                return waitForTestruns(run, examSession, progress);
+            }).thenAcceptAsync(lastStatus -> {
+                try {
+                    session.finish();
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+            }, Computer.threadPoolForRemoting).whenCompleteAsync((ignored, error) -> {
+                ExamProgressAction progress = ExamProgressAction.get(run, id);
+                if (progress != null) {
+                    progress.finish();
+                }
+                closeSession(listener);
+                try {
+                    ExamRunStateAction.remove(run, id);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "saving " + run + " failed", e);
+                }
+                Throwable cause = stopCause;
+                if (cause == null && error != null) {
+                    cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                }
+                if (cause == null) {
+                    context.onSuccess(null);
+                } else {
+                    dumpErrorOut();
+                    context.onFailure(cause);
+                }
+            }, Computer.threadPoolForRemoting);
+        }
+
+        /**
+         * Waits for the running testrun and starts the pending testruns of the session one after the other.
+         *
+         * @return completed with the last status of the last testrun
+         */
+        private CompletableFuture<ExamStatus> waitForTestruns(Run<?, ?> run, ExamSession examSession,
+                                                              ExamProgressAction progress) {
+            CompletableFuture<ExamStatus> running = examSession.getAsyncClientRequest().statusStream(
+                    getPollingScheduler(run), progress::sample, examSession.getTestrunStartTime());
+            status = running;
+            return running.thenComposeAsync(lastStatus -> {
+                boolean started;
+                try {
+                    started = stopCause == null && examSession.startNextBatch();
+                } catch (IOException | InterruptedException e) {
+                    throw new CompletionException(e);
+                }
+                // saved also if the fail fast threshold has dropped the pending testruns
+                saveRunState(run, examSession);
+                if (started) {
+                    return waitForTestruns(run, examSession, progress);
+                }
+                return CompletableFuture.completedFuture(lastStatus);
+            }, Computer.threadPoolForRemoting);
+        }
+
+        /**
+         * Saves the state of the session again, e.g. with the start time and the pending testruns after the next
+         * testrun was started.
+         */
+        private void saveRunState(Run<?, ?> run, ExamSession examSession) {
+            try {
+                ExamRunStateAction.save(run, examSession.createRunState(id, getPollingScheduler(run)));
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "saving " + run + " failed", e);
+            }
+        }
+
+        private PollingScheduler getPollingScheduler(Run<?, ?> run) {
+            ExamRunStateAction action = run.getAction(ExamRunStateAction.class);
+            ExamRunState state = action == null ? null : action.getState(id);
+            if (state != null && state.getPollingScheduler() != null) {
+                return state.getPollingScheduler();
+            }
+            return step != null ? step.getExam().createPollingScheduler(run) : new PollingScheduler();
+        }
+
+        /**
+         * Stops the testrun. The reports of the stopped testrun are still converted and copied.
+         */
+        @Override
+        public void stop(Throwable cause) throws Exception {
+            stopCause = cause;
+            synchronized (this) {
+                if (launching != null) {
+                    // e.g. waiting in the queue for a free EXAM
+                    launching.interrupt();
+                }
+            }
+            ExamSession examSession = session;
+            CompletableFuture<ExamStatus> running = status;
+            if (examSession != null && running != null && !running.isDone()) {
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        examSession.getClientRequest().stopTestrun();
+                    } finally {
+                        running.complete(null);
+                    }
+                }, Computer.threadPoolForRemoting);
+            }
+        }
+
+        /**
+         * Sets the thread launching EXAM, it is interrupted if the step is stopped. The interrupt flag is cleared
+         * before the pooled thread is returned.
+         */
+        private synchronized void setLaunching(Thread thread) {
+            launching = thread;
+            if (thread == null) {
+                Thread.interrupted();
+            }
+        }
+
+        private void closeSession(TaskListener listener) {
+            ExamSession examSession = session;
+            if (examSession == null) {
+                return;
+            }
+            try {
+                examSession.close();
+            } catch (IOException | RuntimeException e) {
+                listener.getLogger().println("ERROR: " + e.getMessage());
+                LOGGER.log(Level.WARNING, "closing EXAM failed", e);
+            }
+        }
+
+        private void dumpErrorOut() {
+            ExamSession examSession = session;
+            if (examSession == null) {
+                return;
+            }
+            try {
+                examSession.dumpErrorOut();
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "archiving the EXAM error output failed", e);
+            }
+        }
+    }
+
+    @Extension
+    public static class DescriptorImpl extends StepDescriptor implements ExamDescriptor {
+
+        @Override
+        public String getFunctionName() {
+            return "examTest";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return Messages.EXAM_DisplayName();
+        }
+
+        @Override
+        public Set<? extends Class<?>> getRequiredContext() {
+            return Collections.unmodifiableSet(new HashSet<Class<?>>(
+                    Arrays.asList(Run.class, FilePath.class, Launcher.class, TaskListener.class, EnvVars.class)));
+        }
+
+        private Exam.DescriptorImpl getExamDescriptor() {
+            return Jenkins.getInstance().getDescriptorByType(Exam.DescriptorImpl.class);
+        }
+
+        public String getDefaultLogLevel() {
+            return getExamDescriptor().getDefaultLogLevel();
+        }
+
+        public RestAPILogLevelEnum[] getLogLevels() {
+            return getExamDescriptor().getLogLevels();
+        }
+
+        public FormValidation doCheckExecutionFile(@QueryParameter String value) {
+            return getExamDescriptor().doCheckExecutionFile(value);
+        }
+
+        @Override
+        public FormValidation doCheckSystemConfiguration(@QueryParameter String value) {
+            return getExamDescriptor().doCheckSystemConfiguration(value);
+        }
+
+        @Override
+        public ExamTool[] getInstallations() {
+            return getExamDescriptor().getInstallations();
+        }
+
+        @Override
+        public PythonInstallation[] getPythonInstallations() {
+            return getExamDescriptor().getPythonInstallations();
+        }
+
+        @Override
+        public ExamModelConfig[] getModelConfigs() {
+            return getExamDescriptor().getModelConfigs();
+        }
+
+        @Override
+        public ExamReportConfig[] getReportConfigs() {
+            return getExamDescriptor().getReportConfigs();
+        }
+    }
+}
@@ -37,6 +37,14 @@ f.section(title: descriptor.displayName) {
         f.number()
     }
 
+    f.entry(title: _("last Rest api Port"), field: "portRangeEnd") {
+        f.number()
+    }
+
+    f.entry(title: _("queue timeout (min)"), field: "queueTimeout") {
+        f.number()
+    }
+
     f.entry(title: _("License Server host"), field: "licenseHost") {
         f.textbox()
     }
@@ -45,6 +53,54 @@ f.section(title: descriptor.displayName) {
         f.number()
     }
 
+    f.advanced() {
+        f.entry(title: _("fast status poll interval (s)"), field: "statusPollFastInterval") {
+            f.number()
+        }
+
+        f.entry(title: _("slow status poll interval (s)"), field: "statusPollSlowInterval") {
+            f.number()
+        }
+
+        f.entry(title: _("testrun detection timeout (s)"), field: "testrunDetectTimeout") {
+            f.number()
+        }
+
+        f.optionalBlock(title: _("keep EXAM running between builds"), field: "daemonMode", inline: true) {
+            f.entry(title: _("maximum idle time (min)"), field: "daemonMaxIdleTime") {
+                f.number()
+            }
+
+            f.entry(title: _("restart after testruns"), field: "daemonMaxRuns") {
+                f.number()
+            }
+        }
+
+        f.entry(title: _("console buffer size (KB)"), field: "logBufferSize") {
+            f.number()
+        }
+
+        f.entry(title: _("if the console buffer is full")) {
+            select(class: "setting-input", name: "logOverflowPolicy") {
+                descriptor.getLogOverflowPolicies().each {
+                    f.option(selected: it == descriptor.logOverflowPolicy, value: it.name(), _(it.name()))
+                }
+            }
+        }
+
+        f.entry(title: _("test case start pattern"), field: "testcaseStartPattern") {
+            f.textbox()
+        }
+
+        f.entry(title: _("test case finish pattern"), field: "testcaseFinishPattern") {
+            f.textbox()
+        }
+
+        f.entry(title: _("test case verdict pattern"), field: "testcaseVerdictPattern") {
+            f.textbox()
+        }
+    }
+
     f.entry(title: _("EXAM Model Connections")) {
         f.repeatableProperty(
                 field: "modelConfigs",
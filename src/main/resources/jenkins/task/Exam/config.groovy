@@ -61,11 +61,27 @@ f.section(title: _("Modeler")) {
     f.entry(title: _("delete project"), field: "clearWorkspace") {
         f.checkbox()
     }
+
+    f.entry(title: _("mark build unstable on failed testcases"), field: "unstableOnFailure") {
+        f.checkbox()
+    }
     f.advanced() {
 
         f.entry(title: _("Java Opts"), field: "javaOpts") {
             f.textbox()
         }
+
+        f.entry(title: _("archive EXAM output"), field: "archiveOutput") {
+            f.checkbox()
+        }
+
+        f.entry(title: _("reports to copy"), field: "reportIncludes") {
+            f.textbox()
+        }
+
+        f.entry(title: _("reports not to copy"), field: "reportExcludes") {
+            f.textbox()
+        }
     }
 }
 
@@ -90,6 +106,14 @@ f.section(title: _("Testrun")) {
         f.textbox()
     }
 
+    f.entry(title: _("further SystemConfigurations"), field: "systemConfigurations") {
+        f.textarea()
+    }
+
+    f.entry(title: _("parallel EXAM instances"), field: "matrixConcurrency") {
+        f.number()
+    }
+
     f.optionalBlock(title: _("configure Testrun Filters"), inline: "true", help: "/descriptor/jenkins.task.Exam/help/testrunFilter") {
         f.entry(title: "") {
             f.repeatableProperty(
@@ -99,6 +123,41 @@ f.section(title: _("Testrun")) {
         }
     }
 
+    f.entry(title: _("run failed testcases first"), field: "failedFirst") {
+        f.checkbox()
+    }
+
+    f.entry(title: _("stop after failed testcases"), field: "failFastThreshold") {
+        f.number()
+    }
+
+    f.entry(title: _("shard count"), field: "shardCount") {
+        f.number()
+    }
+
+    f.entry(title: _("shard index"), field: "shardIndex") {
+        f.number()
+    }
+
+    f.advanced() {
+        f.entry(title: _("fast status poll interval (s)"), field: "statusPollFastInterval") {
+            f.number()
+        }
+
+        f.entry(title: _("slow status poll interval (s)"), field: "statusPollSlowInterval") {
+            f.number()
+        }
+
+        f.entry(title: _("console log level"), help: "/descriptor/jenkins.task.Exam/help/loglevel_console") {
+            select(class: "setting-input", name: "loglevel_console") {
+                f.option(selected: instance?.loglevel_console == null, value: "", _("all"))
+                descriptor.getLogLevels().each {
+                    f.option(selected: it.name() == instance?.loglevel_console, value: it.name(), it.name())
+                }
+            }
+        }
+    }
+
     f.optionalBlock(title: _("configure logging"), inline: "true", help: "/descriptor/jenkins.task.Exam/help/logging") {
         f.entry(title: _("TEST_CTRL")) {
             select(class: "setting-input", name: "loglevel_test_ctrl") {
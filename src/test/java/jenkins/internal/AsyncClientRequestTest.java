@@ -0,0 +1,143 @@
+package jenkins.internal;
+
+import jenkins.internal.data.ExamStatus;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.powermock.reflect.Whitebox;
+import testData.ServerDispatcher;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class AsyncClientRequestTest {
+
+    private MockWebServer server;
+    private ServerDispatcher dispatcher;
+    private PrintStream printMock;
+    private ClientRequest clientRequest;
+    private AsyncClientRequest testObject;
+
+    @Before
+    public void setUp() throws Exception {
+        dispatcher = new ServerDispatcher();
+        server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        server.start(8085);
+        printMock = mock(PrintStream.class);
+        clientRequest = new ClientRequest(null, printMock, "http://localhost:8085");
+        Whitebox.invokeMethod(clientRequest, "createClient");
+        testObject = new AsyncClientRequest(clientRequest);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Whitebox.invokeMethod(clientRequest, "destroyClient");
+        server.shutdown();
+    }
+
+    @Test
+    public void getClientRequest() {
+        assertSame(clientRequest, testObject.getClientRequest());
+    }
+
+    @Test
+    public void startTestrunAsync() throws Exception {
+        testObject.startTestrunAsync(null).get(5, TimeUnit.SECONDS);
+        verify(printMock).println("starting testrun");
+        assertEquals("/testrun/start", server.takeRequest().getPath());
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void startTestrunAsync_error() throws Exception {
+        dispatcher.removeResponse("/testrun/start");
+        testObject.startTestrunAsync(null).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void convertAsync() throws Exception {
+        testObject.convertAsync("testProject").get(5, TimeUnit.SECONDS);
+        verify(printMock).println("convert to junit");
+        assertEquals("/testrun/convertToJunit/testProject", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void clearWorkspaceAsync() throws Exception {
+        testObject.clearWorkspaceAsync("myProject").get(5, TimeUnit.SECONDS);
+        verify(printMock).println("deleting project and pcode for project \"myProject\" from EXAM workspace");
+        assertEquals("/workspace/delete?projectName=myProject", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void statusStream() throws Exception {
+        dispatcher.setResponse("/testrun/status", new MockResponse().setResponseCode(200)
+                .addHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody("{\"jobName\":\"TestRun\",\"jobRunning\":\"false\",\"testRunState\":1}"));
+        List<ExamStatus> samples = new ArrayList<>();
+
+        ExamStatus last = testObject.statusStream(new PollingScheduler(10, 10, -1, 1000), samples::add)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, samples.size());
+        assertSame(samples.get(1), last);
+        assertFalse(last.getJobRunning());
+    }
+
+    @Test
+    public void statusStream_noTestrun() throws Exception {
+        ExamStatus last = testObject.statusStream(new PollingScheduler(10, 10, -1, 100), null)
+                .get(5, TimeUnit.SECONDS);
+
+        assertEquals("myTestJob", last.getJobName());
+        verify(printMock).println("No Testrun detected");
+    }
+
+    @Test
+    public void statusStream_cancel() throws Exception {
+        dispatcher.setResponse("/testrun/status", new MockResponse().setResponseCode(200)
+                .addHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody("{\"jobName\":\"TestRun\",\"jobRunning\":\"true\",\"testRunState\":1}"));
+        CompletableFuture<ExamStatus> future = testObject.statusStream(new PollingScheduler(10, 10, -1, 100), null);
+        Thread.sleep(200);
+        future.cancel(false);
+        Thread.sleep(100);
+        int requests = server.getRequestCount();
+        Thread.sleep(200);
+
+        assertTrue(future.isCancelled());
+        assertEquals(requests, server.getRequestCount());
+    }
+
+    @Test
+    public void statusStream_slowInstances() throws Exception {
+        dispatcher.setResponse("/testrun/status", new MockResponse().setResponseCode(200)
+                .addHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody("{\"jobName\":\"TestRun\",\"jobRunning\":\"false\",\"testRunState\":1}")
+                .setBodyDelay(1, TimeUnit.SECONDS));
+        List<CompletableFuture<ExamStatus>> streams = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 12; i++) {
+            streams.add(testObject.statusStream(new PollingScheduler(10, 10, -1, 1000), null));
+        }
+        CompletableFuture.allOf(streams.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        // two polls per stream, the slow answers do not wait for each other
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void statusStream_error() throws Exception {
+        dispatcher.clearAllResponse();
+        testObject.statusStream(new PollingScheduler(10, 10, -1, 100), null).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,95 @@
+package jenkins.internal;
+
+import com.sun.jersey.api.client.Client;
+import com.sun.jersey.api.client.ClientResponse;
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import com.sun.jersey.api.client.config.DefaultClientConfig;
+import com.sun.jersey.api.json.JSONConfiguration;
+import jenkins.internal.data.ExamStatus;
+import okhttp3.mockwebserver.MockWebServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import testData.ServerDispatcher;
+
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per request overhead of the EXAM REST calls.
+ * <p>
+ * {@code createClientPerRequest} is the old behaviour of {@link ClientRequest#isApiAvailable()} (new Jersey client
+ * and web resource for every probe), the other benchmarks use the shared {@link ExamHttpTransport}.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=jenkins.internal.ClientRequestBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ClientRequestBenchmark {
+
+    private MockWebServer server;
+    private String baseUrl;
+    private ClientRequest clientRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new ServerDispatcher());
+        server.start();
+        baseUrl = server.url("/").toString().replaceAll("/$", "");
+        PrintStream nullLogger = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+                // discard
+            }
+        });
+        clientRequest = new ClientRequest(null, nullLogger, baseUrl);
+        clientRequest.connectClient(1000);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public ExamStatus createClientPerRequest() {
+        ClientConfig clientConfig = new DefaultClientConfig();
+        clientConfig.getFeatures().put(JSONConfiguration.FEATURE_POJO_MAPPING, Boolean.TRUE);
+        Client client = Client.create(clientConfig);
+        try {
+            WebResource service = client.resource(baseUrl + "/testrun/status");
+            ClientResponse response = service.accept(MediaType.APPLICATION_JSON).type(MediaType.APPLICATION_JSON)
+                    .get(ClientResponse.class);
+            return response.getEntity(ExamStatus.class);
+        } finally {
+            client.destroy();
+        }
+    }
+
+    @Benchmark
+    public ExamStatus sharedTransportGetStatus() {
+        return clientRequest.getStatus();
+    }
+
+    @Benchmark
+    public boolean sharedTransportIsApiAvailable() {
+        return clientRequest.isApiAvailable();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(ClientRequestBenchmark.class.getSimpleName()).build();
+        new Runner(opt).run();
+    }
+}
@@ -32,6 +32,7 @@ package jenkins.internal;
 import com.sun.jersey.api.client.Client;
 import hudson.AbortException;
 import hudson.Launcher;
+import hudson.Proc;
 import hudson.model.Executor;
 import jenkins.internal.data.ApiVersion;
 import jenkins.internal.data.ExamStatus;
@@ -186,6 +187,16 @@ public class ClientRequestTest {
         verify(printMock).println("ERROR: EXAM does not answer in 1s");
     }
 
+    @Test
+    public void connectClient_processExited() throws Exception {
+        server.shutdown();
+        Proc process = mock(Proc.class);
+        when(process.isAlive()).thenReturn(false);
+        assertFalse(testObject.connectClient(60 * 1000, process));
+        verify(printMock).println("ERROR: EXAM process terminated before the REST API was available");
+        verify(printMock, never()).println("ERROR: EXAM does not answer in 60s");
+    }
+
     @Test
     public void disconnectClient() throws Exception {
         testObject.disconnectClient(1000);
@@ -239,11 +250,17 @@ public class ClientRequestTest {
                 .addHeader("Content-Type", "application/json; charset=utf-8")
                 .addHeader("Cache-Control", "no-cache")
                 .setBody("{\"jobName\":\"nothing\",\"jobRunning\":\"false\",\"testRunState\":1}"));
-        testObject.waitForTestrunEnds(executor);
+        PollingScheduler scheduler = new PollingScheduler(5000, 5000, -1, 45000);
+        long[] now = {0};
+        scheduler.setClock(() -> now[0]);
+        scheduler.setSleeper(millis -> now[0] += millis);
+        testObject.waitForTestrunEnds(executor, scheduler);
 
+        verify(printMock).println("No Testrun detected");
         inOrder(executor).verify(executor, calls(10)).isInterrupted();
         int reqCount = server.getRequestCount();
         assertEquals("unexpected count of server calls", 10, reqCount);
+        assertEquals(45000, now[0]);
 
         clearInvocations(executor);
         when(executor.isInterrupted()).thenReturn(true);
@@ -251,6 +268,37 @@ public class ClientRequestTest {
         inOrder(executor).verify(executor, calls(1)).isInterrupted();
     }
 
+    @Test
+    public void waitForTestrunEnds_interrupted() throws Exception {
+        Executor executor = mock(Executor.class);
+        when(executor.isInterrupted()).thenReturn(false);
+        dispatcher.setResponse("/testrun/status", new MockResponse().setResponseCode(200)
+                .addHeader("Content-Type", "application/json; charset=utf-8")
+                .addHeader("Cache-Control", "no-cache")
+                .setBody("{\"jobName\":\"TestRun\",\"jobRunning\":\"true\",\"testRunState\":1}"));
+        PollingScheduler scheduler = new PollingScheduler(60000, 60000, -1, 60000);
+        int[] sleeps = {0};
+        scheduler.setSleeper(millis -> {
+            if (++sleeps[0] == 3) {
+                // the build is aborted while waiting for the third poll
+                throw new InterruptedException();
+            }
+        });
+
+        try {
+            testObject.waitForTestrunEnds(executor, scheduler);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+
+        assertEquals(3, sleeps[0]);
+        inOrder(executor).verify(executor, calls(3)).isInterrupted();
+        // three status polls and the stop request
+        assertEquals("unexpected count of server calls", 4, server.getRequestCount());
+        verify(printMock).println("stopping testrun");
+    }
+
     @Test
     public void getLogger() {
         PrintStream printMock = mock(PrintStream.class, "PrintMock for Test");
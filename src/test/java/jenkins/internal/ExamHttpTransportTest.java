@@ -0,0 +1,66 @@
+package jenkins.internal;
+
+import com.sun.jersey.api.client.WebResource;
+import com.sun.jersey.api.client.config.ClientConfig;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExamHttpTransportTest {
+
+    @After
+    public void tearDown() {
+        ExamHttpTransport.clearResources();
+    }
+
+    @Test
+    public void forBaseUrl() {
+        ExamHttpTransport transport = ExamHttpTransport.forBaseUrl("http://localhost:8085");
+        assertSame(transport, ExamHttpTransport.forBaseUrl("http://localhost:8085"));
+        assertNotSame(transport, ExamHttpTransport.forBaseUrl("http://localhost:8086"));
+        assertEquals("http://localhost:8085", transport.getBaseUrl());
+    }
+
+    @Test
+    public void getClient() {
+        assertNotNull(ExamHttpTransport.getClient());
+        assertSame(ExamHttpTransport.getClient(), ExamHttpTransport.getClient());
+    }
+
+    @Test
+    public void resource() {
+        ExamHttpTransport transport = ExamHttpTransport.forBaseUrl("http://localhost:8085");
+        WebResource status = transport.resource("/testrun/status");
+        assertSame(status, transport.resource("/testrun/status"));
+        assertNotSame(status, transport.resource("/testrun/start"));
+        assertEquals("http://localhost:8085/testrun/status", status.getURI().toString());
+    }
+
+    @Test
+    public void resource_readTimeout() {
+        ExamHttpTransport transport = ExamHttpTransport.forBaseUrl("http://localhost:8085");
+        assertEquals(ExamHttpTransport.READ_TIMEOUT,
+                ExamHttpTransport.getClient().getProperties().get(ClientConfig.PROPERTY_READ_TIMEOUT));
+        WebResource convert = transport.resource("/testrun/convertToJunit", ExamHttpTransport.LONG_READ_TIMEOUT);
+        assertEquals(ExamHttpTransport.LONG_READ_TIMEOUT,
+                convert.getProperties().get(ClientConfig.PROPERTY_READ_TIMEOUT));
+        assertEquals("http://localhost:8085/testrun/convertToJunit/my%20project",
+                convert.path("my project").getURI().toString());
+    }
+
+    @Test
+    public void forBaseUrl_bounded() {
+        for (int port = 0; port < ExamHttpTransport.MAX_TRANSPORTS + 10; port++) {
+            ExamHttpTransport.forBaseUrl("http://localhost:" + port);
+        }
+        assertEquals(ExamHttpTransport.MAX_TRANSPORTS, ExamHttpTransport.getTransportCount());
+    }
+
+    @Test
+    public void clearResources() {
+        ExamHttpTransport transport = ExamHttpTransport.forBaseUrl("http://localhost:8085");
+        ExamHttpTransport.clearResources();
+        assertNotSame(transport, ExamHttpTransport.forBaseUrl("http://localhost:8085"));
+    }
+}
@@ -0,0 +1,117 @@
+package jenkins.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+
+import static jenkins.internal.TestResultsBuilder.results;
+import static org.junit.Assert.*;
+
+public class ExamResultIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendAndQuery() throws Exception {
+        File dir = folder.newFolder("job");
+        ExamResultIndex testObject = new ExamResultIndex(new File(dir, ExamResultIndex.DIRECTORY));
+        testObject.append(1, results().passed("a", 1.0).failed("b", 2.0).build());
+        testObject.append(2, results().failed("a", 3.0).failed("b", 2.0).build());
+        testObject.append(3, results().passed("a", 2.0).add("c", ReportSummary.SKIPPED, 0.0).build());
+
+        assertEquals(6, testObject.getRowCount());
+        assertEquals(3, testObject.getTestIds().size());
+
+        List<ExamResultIndex.Entry> history = testObject.getHistory("a", 10);
+        assertEquals(3, history.size());
+        assertEquals(3, history.get(0).getBuild());
+        assertEquals(ReportSummary.PASSED, history.get(0).getVerdict());
+        assertEquals(2000, history.get(0).getDuration());
+        assertEquals(2, testObject.getHistory("a", 2).size());
+        assertTrue(testObject.getHistory("unknown", 10).isEmpty());
+
+        assertEquals(1.0, testObject.getFlakiness("a", 10), 0.001);
+        assertEquals(0.0, testObject.getFlakiness("b", 10), 0.001);
+
+        Map<String, Long> averages = testObject.getAverageDurations(2);
+        assertEquals(Long.valueOf(2500), averages.get("a"));
+        assertEquals(Long.valueOf(2000), averages.get("b"));
+        assertNull(averages.get("c"));
+
+        Map<String, byte[]> histories = testObject.getVerdictHistories(2);
+        assertEquals(3, histories.size());
+        assertArrayEquals(new byte[]{ReportSummary.PASSED, ReportSummary.FAILED}, histories.get("a"));
+        assertArrayEquals(new byte[]{ReportSummary.FAILED, ReportSummary.FAILED}, histories.get("b"));
+        assertArrayEquals(new byte[]{ReportSummary.SKIPPED}, histories.get("c"));
+
+        // reopened from disk
+        ExamResultIndex reopened = new ExamResultIndex(new File(dir, ExamResultIndex.DIRECTORY));
+        assertEquals(6, reopened.getRowCount());
+        assertEquals(3, reopened.getHistory("a", 10).size());
+    }
+
+    @Test
+    public void interruptedAppend() throws Exception {
+        File dir = folder.newFolder(ExamResultIndex.DIRECTORY);
+        ExamResultIndex testObject = new ExamResultIndex(dir);
+        testObject.append(1, results().passed("a", 1.0).build());
+        try (RandomAccessFile test = new RandomAccessFile(new File(dir, "test.col"), "rw")) {
+            test.setLength(test.length() + 2);
+        }
+
+        ExamResultIndex reopened = new ExamResultIndex(dir);
+        assertEquals(1, reopened.getRowCount());
+        reopened.append(2, results().failed("a", 1.0).build());
+        assertEquals(2, reopened.getHistory("a", 10).size());
+        assertEquals(2, reopened.getHistory("a", 10).get(0).getBuild());
+    }
+
+    @Test
+    public void systemConfigurations() throws Exception {
+        ExamResultIndex testObject = new ExamResultIndex(folder.newFolder(ExamResultIndex.DIRECTORY));
+        testObject.append(1, "sys1", results().passed("a", 1.0).build());
+        testObject.append(1, "sys2", results().failed("a", 3.0).build());
+        testObject.append(2, "sys1", results().passed("a", 1.0).build());
+        testObject.append(2, "sys2", results().failed("a", 3.0).build());
+        testObject.append(3, results().passed("b", 2.0).build());
+
+        assertEquals(0.0, testObject.getFlakiness(ExamResultIndex.getTestId("sys1", "a"), 10), 0.001);
+        assertEquals(0.0, testObject.getFlakiness(ExamResultIndex.getTestId("sys2", "a"), 10), 0.001);
+        assertArrayEquals(new byte[]{ReportSummary.PASSED, ReportSummary.PASSED},
+                testObject.getVerdictHistories(10, "sys1").get("a"));
+        assertArrayEquals(new byte[]{ReportSummary.FAILED, ReportSummary.FAILED},
+                testObject.getVerdictHistories(10, "sys2").get("a"));
+        assertEquals(Long.valueOf(3000), testObject.getAverageDurations(10, Integer.MAX_VALUE, "sys2").get("a"));
+        assertEquals(1, testObject.getVerdictHistories(10).size());
+        assertNotNull(testObject.getVerdictHistories(10).get("b"));
+        assertTrue(testObject.getVerdictHistories(10, "sys3").isEmpty());
+    }
+
+    @Test
+    public void evict() throws Exception {
+        File folderDir = folder.newFolder("folder");
+        File jobDir = new File(folderDir, "jobs/job");
+        assertTrue(jobDir.mkdirs());
+        ExamResultIndex index = ExamResultIndex.forJob(jobDir);
+        index.append(1, results().passed("a", 1.0).build());
+        assertSame(index, ExamResultIndex.forJob(jobDir));
+        int count = ExamResultIndex.getIndexCount();
+
+        // the files can be removed between queries
+        FileUtils.deleteDirectory(jobDir);
+        ExamResultIndex.evictMissing();
+        assertEquals(count - 1, ExamResultIndex.getIndexCount());
+
+        ExamResultIndex.forJob(jobDir);
+        assertEquals(count, ExamResultIndex.getIndexCount());
+        ExamResultIndex.evict(folderDir);
+        assertEquals(count - 1, ExamResultIndex.getIndexCount());
+    }
+}
@@ -0,0 +1,60 @@
+package jenkins.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PollingSchedulerTest {
+
+    @Test
+    public void defaults() {
+        PollingScheduler testObject = new PollingScheduler();
+        assertEquals(PollingScheduler.DEFAULT_FAST_INTERVAL * 1000L, testObject.getFastInterval());
+        assertEquals(PollingScheduler.DEFAULT_SLOW_INTERVAL * 1000L, testObject.getSlowInterval());
+        assertEquals(PollingScheduler.DEFAULT_DETECT_TIMEOUT * 1000L, testObject.getDetectTimeout());
+        assertTrue(testObject.getExpectedDuration() <= 0);
+    }
+
+    @Test
+    public void nextDelay_unknownDuration() {
+        PollingScheduler testObject = new PollingScheduler(1000, 30000, -1, 60000);
+        assertEquals(1000, testObject.nextDelay(0));
+        assertEquals(1000, testObject.nextDelay(5000));
+        assertEquals(6000, testObject.nextDelay(60000));
+        assertEquals(30000, testObject.nextDelay(3600000));
+    }
+
+    @Test
+    public void nextDelay_expectedDuration() {
+        long hour = 3600000;
+        PollingScheduler testObject = new PollingScheduler(1000, 30000, hour, 60000);
+        // fast at the start
+        assertEquals(1000, testObject.nextDelay(2000));
+        // slow in the middle
+        assertEquals(30000, testObject.nextDelay(hour / 2));
+        // fast again near the expected end
+        assertEquals(5000, testObject.nextDelay(hour - 50000));
+        assertEquals(1000, testObject.nextDelay(hour - 2000));
+        assertEquals(1000, testObject.nextDelay(hour + 2000));
+        // slow again if the estimation was wrong
+        assertEquals(30000, testObject.nextDelay(3 * hour));
+    }
+
+    @Test
+    public void clockAndSleeper() throws InterruptedException {
+        PollingScheduler testObject = new PollingScheduler();
+        long before = System.currentTimeMillis();
+        assertTrue(testObject.currentTimeMillis() >= before);
+
+        long[] now = {1000};
+        testObject.setClock(() -> now[0]);
+        testObject.setSleeper(millis -> now[0] += millis);
+        testObject.sleep(500);
+        assertEquals(1500, testObject.currentTimeMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidIntervals() {
+        new PollingScheduler(5000, 1000, -1, 60000);
+    }
+}
@@ -0,0 +1,55 @@
+package jenkins.internal;
+
+import jenkins.plugins.exam.ExamTool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class PreflightTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void call() throws Exception {
+        File home = folder.newFolder("exam");
+        File exe = new File(home, "EXAM.exe");
+        assertTrue(exe.createNewFile());
+        File config = folder.newFile("config.ini");
+        ExamTool examTool = new ExamTool("EXAM", home.getPath(), Collections.emptyList());
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            int usedPort = socket.getLocalPort();
+            Preflight testObject = new Preflight(examTool, config.getPath(), folder.getRoot().getPath(),
+                    Arrays.asList(usedPort, usedPort + 1));
+            Preflight.Result result = testObject.call();
+
+            assertNotNull(result.getIp());
+            assertEquals(exe.getPath(), result.getExecutable());
+            assertTrue(result.isConfigurationFileExists());
+            assertEquals(Collections.singletonList(usedPort + 1), result.getFreePorts());
+            assertTrue(result.getUsableSpace() > 0);
+            assertNotNull(result.getExamProcesses());
+        }
+    }
+
+    @Test
+    public void call_missingFiles() throws Exception {
+        ExamTool examTool = new ExamTool("EXAM", folder.getRoot().getPath(), Collections.emptyList());
+        Preflight testObject = new Preflight(examTool, folder.getRoot().getPath(), null,
+                Collections.emptyList());
+        Preflight.Result result = testObject.call();
+
+        assertNull(result.getExecutable());
+        assertFalse(result.isConfigurationFileExists());
+        assertTrue(result.getFreePorts().isEmpty());
+        assertEquals(-1, result.getUsableSpace());
+    }
+}
@@ -0,0 +1,67 @@
+package jenkins.internal;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReadinessProbeTest {
+
+    private final ReadinessProbe testObject = new ReadinessProbe(10, 100, 2.0, 0.2, 5);
+
+    @Test
+    public void await_ready() throws InterruptedException {
+        AtomicInteger probes = new AtomicInteger();
+        ReadinessProbe.Result result = testObject.await(() -> probes.incrementAndGet() >= 3, null, 5000);
+        assertEquals(ReadinessProbe.Result.READY, result);
+        assertEquals(3, probes.get());
+    }
+
+    @Test
+    public void await_timeout() throws InterruptedException {
+        AtomicInteger probes = new AtomicInteger();
+        long start = System.currentTimeMillis();
+        ReadinessProbe.Result result = testObject.await(() -> {
+            probes.incrementAndGet();
+            return false;
+        }, null, 500);
+        long duration = System.currentTimeMillis() - start;
+
+        assertEquals(ReadinessProbe.Result.TIMEOUT, result);
+        assertTrue("timeout not respected: " + duration, duration >= 500);
+        // backoff up to 100ms: far less probes than a busy loop would do
+        assertTrue("too many probes: " + probes.get(), probes.get() < 20);
+    }
+
+    @Test
+    public void await_aborted() throws InterruptedException {
+        AtomicInteger probes = new AtomicInteger();
+        ReadinessProbe.Result result = testObject.await(() -> false, () -> probes.incrementAndGet() >= 2, 5000);
+        assertEquals(ReadinessProbe.Result.ABORTED, result);
+        assertEquals(2, probes.get());
+    }
+
+    @Test
+    public void await_exceptionIsNotReady() throws InterruptedException {
+        ReadinessProbe.Result result = testObject.await(() -> {
+            throw new IOException("channel closed");
+        }, null, 50);
+        assertEquals(ReadinessProbe.Result.TIMEOUT, result);
+    }
+
+    @Test
+    public void nextDelay() {
+        for (int i = 0; i < 100; i++) {
+            long delay = testObject.nextDelay(50);
+            assertTrue(delay >= 40 && delay <= 60);
+        }
+        assertEquals(100, testObject.nextDelay(1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidConfiguration() {
+        new ReadinessProbe(100, 10, 2.0, 0.2, 5);
+    }
+}
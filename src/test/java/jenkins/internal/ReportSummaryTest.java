@@ -0,0 +1,61 @@
+package jenkins.internal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ReportSummaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, String content) throws Exception {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void summarise() throws Exception {
+        File dir = folder.newFolder("junit");
+        write(new File(dir, "suite1.xml"), "<?xml version=\"1.0\"?>\n"
+                + "<testsuite name=\"s1\" tests=\"3\">\n"
+                + "  <testcase classname=\"c\" name=\"t1\" time=\"1.5\"/>\n"
+                + "  <testcase classname=\"c\" name=\"t2\" time=\"10\">"
+                + "<failure message=\"x\">trace</failure></testcase>\n"
+                + "  <testcase classname=\"c\" name=\"t3\" time=\"0.1\"><skipped/></testcase>\n"
+                + "</testsuite>");
+        write(new File(dir, "sub/suite2.xml"), "<testsuites><testsuite name=\"s2\">\n"
+                + "  <testcase name=\"t4\" time=\"1,000.0\"><error/></testcase>\n"
+                + "  <testcase name=\"t5\"/>\n"
+                + "</testsuite></testsuites>");
+        write(new File(dir, "broken.xml"), "<testsuite><testcase name=\"x\"");
+        write(new File(dir, "readme.txt"), "<testcase name=\"ignored\"/>");
+
+        ReportSummary summary = ReportSummary.summarise(dir, 2);
+        assertEquals(5, summary.getTests());
+        assertEquals(1, summary.getFailures());
+        assertEquals(1, summary.getErrors());
+        assertEquals(1, summary.getSkipped());
+        assertTrue(summary.hasFailures());
+        assertEquals(2, summary.getFiles());
+        assertEquals(1, summary.getUnreadableFiles());
+        assertEquals(1011.6, summary.getDuration(), 0.001);
+        assertEquals(2, summary.getSlowest().size());
+        assertEquals("t4", summary.getSlowest().get(0).getName());
+        assertEquals("c.t2", summary.getSlowest().get(1).getName());
+    }
+
+    @Test
+    public void summarise_noReports() {
+        ReportSummary summary = ReportSummary.summarise(new File(folder.getRoot(), "missing"), 10);
+        assertEquals(0, summary.getTests());
+        assertFalse(summary.hasFailures());
+        assertTrue(summary.getSlowest().isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package jenkins.internal;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ReportTransferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(File file, String content) throws Exception {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void invoke() throws Exception {
+        File source = folder.newFolder("junit");
+        write(new File(source, "a.xml"), "<a/>");
+        write(new File(source, "sub/b.xml"), "<b/>");
+        write(new File(source, "c_debug.xml"), "<c/>");
+        write(new File(source, "readme.txt"), "text");
+        File reports = folder.newFolder("test-reports");
+
+        File first = new File(reports, "model__AAAAA");
+        ReportTransfer.Result result = new ReportTransfer(first.getPath(), "**/*.xml", "**/*_debug.xml", "model__")
+                .invoke(source, null);
+        assertEquals(2, result.getCopied());
+        assertEquals(0, result.getLinked());
+        assertEquals("<a/>", read(new File(first, "a.xml")));
+        assertEquals("<b/>", read(new File(first, "sub/b.xml")));
+        assertFalse(new File(first, "c_debug.xml").exists());
+        assertFalse(new File(first, "readme.txt").exists());
+        Map<String, String> hashes = ReportTransfer.readManifest(first);
+        assertEquals(2, hashes.size());
+        assertTrue(hashes.containsKey("sub/b.xml"));
+
+        write(new File(source, "a.xml"), "<a changed=\"true\"/>");
+        File second = new File(reports, "model__BBBBB");
+        result = new ReportTransfer(second.getPath(), "**/*.xml", "**/*_debug.xml", "model__").invoke(source, null);
+        assertEquals(1, result.getCopied());
+        assertEquals(1, result.getLinked());
+        assertEquals("<a changed=\"true\"/>", read(new File(second, "a.xml")));
+        assertEquals("<b/>", read(new File(second, "sub/b.xml")));
+        assertEquals("<a/>", read(new File(first, "a.xml")));
+    }
+
+    @Test
+    public void invoke_noSource() throws Exception {
+        File target = new File(folder.getRoot(), "target");
+        ReportTransfer.Result result = new ReportTransfer(target.getPath(), null, null, null)
+                .invoke(new File(folder.getRoot(), "missing"), null);
+        assertEquals(0, result.getCopied());
+    }
+}
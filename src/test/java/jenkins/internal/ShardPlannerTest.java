@@ -0,0 +1,99 @@
+package jenkins.internal;
+
+import jenkins.internal.data.TestrunFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static jenkins.internal.TestResultsBuilder.results;
+import static org.junit.Assert.*;
+
+public class ShardPlannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void balancedShards() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        index.append(1, results().passed("a", 7.0).passed("b", 5.0).passed("c", 4.0).passed("d", 3.0)
+                .passed("e", 1.0).build());
+
+        ShardPlanner testObject = new ShardPlanner(index, 2, 2);
+
+        assertEquals(Arrays.asList("a", "d"), testObject.getTests(0));
+        assertEquals(Arrays.asList("b", "c", "e"), testObject.getTests(1));
+        assertEquals(10000, testObject.getDuration(0));
+        assertEquals(10000, testObject.getDuration(1));
+    }
+
+    @Test
+    public void laterBuildsIgnored() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        index.append(1, results().passed("a", 1.0).passed("b", 1.0).build());
+        index.append(2, results().passed("c", 1.0).build());
+
+        ShardPlanner testObject = new ShardPlanner(index, 2, 2);
+
+        assertEquals(Collections.singletonList("a"), testObject.getTests(0));
+        assertEquals(Collections.singletonList("b"), testObject.getTests(1));
+    }
+
+    @Test
+    public void filters() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        index.append(1, results().passed("x.a", 2.0).passed("x.b", 1.0).build());
+
+        ShardPlanner testObject = new ShardPlanner(index, 3, 2);
+
+        List<TestrunFilter> first = testObject.createFilters(0);
+        assertEquals(1, first.size());
+        assertEquals("^(?:b)$", first.get(0).getValue());
+        assertFalse(first.get(0).isActivateTestcases());
+        assertEquals("^(?!(?:b)$).*", testObject.createFilters(1).get(0).getValue());
+        assertEquals(".*", testObject.createFilters(2).get(0).getValue());
+
+        assertTrue(new ShardPlanner(index, 1, 2).createFilters(0).isEmpty());
+    }
+
+    @Test
+    public void sameNameInOneShard() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        index.append(1, results().passed("x.a", 2.0).passed("y.a", 2.0).passed("x.b", 3.0).build());
+
+        ShardPlanner testObject = new ShardPlanner(index, 2, 2);
+
+        assertEquals(Collections.singletonList("a"), testObject.getTests(0));
+        assertEquals(Collections.singletonList("b"), testObject.getTests(1));
+        assertEquals(4000, testObject.getDuration(0));
+    }
+
+    @Test
+    public void chunkedFilters() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        TestResultsBuilder results = results();
+        for (int i = 0; i < 10000; i++) {
+            results.passed("x.test_with_a_long_name_" + i, 1.0);
+        }
+        index.append(1, results.build());
+
+        ShardPlanner testObject = new ShardPlanner(index, 2, 2);
+
+        List<TestrunFilter> first = testObject.createFilters(0);
+        assertTrue(first.size() > 1);
+        int names = 0;
+        for (TestrunFilter filter : first) {
+            assertTrue(filter.getValue().length() <= ShardPlanner.MAX_REGEX_LENGTH);
+            names += filter.getValue().split("\\|").length;
+        }
+        assertEquals(testObject.getTests(1).size(), names);
+
+        assertEquals(Arrays.asList("a|b", "c"), ShardPlanner.toChunks(Arrays.asList("a", "b", "c"), 3));
+        assertEquals(Arrays.asList("abcd", "e"), ShardPlanner.toChunks(Arrays.asList("abcd", "e"), 3));
+        assertTrue(ShardPlanner.toChunks(Collections.emptyList(), 3).isEmpty());
+    }
+}
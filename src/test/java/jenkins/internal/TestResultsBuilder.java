@@ -0,0 +1,35 @@
+package jenkins.internal;
+
+/**
+ * Builds the {@link ReportSummary.TestResults} of a build for the tests of the result index and the planners.
+ */
+final class TestResultsBuilder {
+
+    private final ReportSummary.TestResults results = new ReportSummary.TestResults();
+
+    static TestResultsBuilder results() {
+        return new TestResultsBuilder();
+    }
+
+    /**
+     * @param name    name of the test case
+     * @param verdict one of the verdicts of {@link ReportSummary}
+     * @param time    duration in s
+     */
+    TestResultsBuilder add(String name, byte verdict, double time) {
+        results.add(name, verdict, time);
+        return this;
+    }
+
+    TestResultsBuilder passed(String name, double time) {
+        return add(name, ReportSummary.PASSED, time);
+    }
+
+    TestResultsBuilder failed(String name, double time) {
+        return add(name, ReportSummary.FAILED, time);
+    }
+
+    ReportSummary.TestResults build() {
+        return results;
+    }
+}
@@ -0,0 +1,63 @@
+package jenkins.internal;
+
+import jenkins.internal.data.FilterConfiguration;
+import jenkins.internal.data.TestrunFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static jenkins.internal.TestResultsBuilder.results;
+import static org.junit.Assert.*;
+
+public class TestrunBatchPlannerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void priorityTests() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        index.append(1, results().passed("c.stable", 1.0).passed("c.slowFail", 9.0).failed("c.fastFail", 1.0)
+                .add("c.fixed", ReportSummary.ERROR, 1.0).build());
+        index.append(2, results().passed("c.stable", 1.0).failed("c.slowFail", 9.0).failed("c.fastFail", 1.0)
+                .passed("c.fixed", 1.0).add("c.skipped", ReportSummary.SKIPPED, 0.0).build());
+
+        TestrunBatchPlanner testObject = new TestrunBatchPlanner(index, Collections.emptyList());
+        assertEquals(Arrays.asList("c.fastFail", "c.slowFail", "c.fixed"), testObject.getPriorityTests());
+    }
+
+    @Test
+    public void plan() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        index.append(1, results().failed("c.a", 1.0).passed("c.b_1", 1.0).build());
+        TestrunFilter userFilter = new TestrunFilter("name", "^TC_.*", false, true);
+
+        List<FilterConfiguration> batches = new TestrunBatchPlanner(index,
+                Collections.singletonList(userFilter)).plan();
+
+        assertEquals(2, batches.size());
+        List<TestrunFilter> first = batches.get(0).getTestrunFilter();
+        assertEquals(2, first.size());
+        assertSame(userFilter, first.get(0));
+        assertEquals("^(?!(?:a)$).*", first.get(1).getValue());
+        assertFalse(first.get(1).isActivateTestcases());
+        assertEquals("^(?:a)$", batches.get(1).getTestrunFilter().get(1).getValue());
+    }
+
+    @Test
+    public void planWithoutHistory() throws Exception {
+        ExamResultIndex index = new ExamResultIndex(folder.newFolder());
+        assertTrue(new TestrunBatchPlanner(index, Collections.emptyList()).plan().isEmpty());
+    }
+
+    @Test
+    public void escape() {
+        assertEquals("TC\\.a\\(1\\)\\$", TestrunBatchPlanner.escape("TC.a(1)$"));
+        assertEquals("TC_a", TestrunBatchPlanner.getTestName("pkg.Suite.TC_a"));
+        assertEquals("TC_a", TestrunBatchPlanner.getTestName("TC_a"));
+    }
+}
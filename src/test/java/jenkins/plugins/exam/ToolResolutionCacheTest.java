@@ -0,0 +1,65 @@
+package jenkins.plugins.exam;
+
+import hudson.model.TaskListener;
+import jenkins.model.Jenkins;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ToolResolutionCacheTest {
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    @After
+    public void tearDown() {
+        ToolResolutionCache.invalidateAll();
+    }
+
+    @Test
+    public void forNode_cached() throws Exception {
+        Jenkins node = jenkinsRule.getInstance();
+        ExamTool tool = new ExamTool("EXAM", "C:\\EXAM", Collections.emptyList());
+
+        ExamTool translated = ToolResolutionCache.forNode(tool, node, TaskListener.NULL);
+        assertEquals("C:\\EXAM", translated.getHome());
+        assertSame(translated, ToolResolutionCache.forNode(tool, node, TaskListener.NULL));
+
+        ExamTool otherHome = new ExamTool("EXAM", "D:\\EXAM", Collections.emptyList());
+        assertEquals("D:\\EXAM", ToolResolutionCache.forNode(otherHome, node, TaskListener.NULL).getHome());
+
+        ToolResolutionCache.invalidate(node.getNodeName());
+        assertNotSame(translated, ToolResolutionCache.forNode(tool, node, TaskListener.NULL));
+    }
+
+    @Test
+    public void validateExecutable() {
+        ExamTool tool = new ExamTool("EXAM", "C:\\EXAM", Collections.emptyList());
+
+        assertFalse(ToolResolutionCache.validateExecutable("node", tool, "C:\\EXAM\\EXAM.exe", 1000));
+        assertTrue(ToolResolutionCache.validateExecutable("node", tool, "C:\\EXAM\\EXAM.exe", 1000));
+        assertEquals(1000, ToolResolutionCache.getExecutable("node", tool).getLastModified());
+
+        assertFalse(ToolResolutionCache.validateExecutable("node", tool, "C:\\EXAM\\EXAM.exe", 2000));
+        assertEquals(2000, ToolResolutionCache.getExecutable("node", tool).getLastModified());
+        assertNull(ToolResolutionCache.getExecutable("otherNode", tool));
+    }
+
+    @Test
+    public void toolConfigurationSaved() throws Exception {
+        Jenkins node = jenkinsRule.getInstance();
+        ExamTool tool = new ExamTool("EXAM", "C:\\EXAM", Collections.emptyList());
+        ExamTool translated = ToolResolutionCache.forNode(tool, node, TaskListener.NULL);
+        ToolResolutionCache.validateExecutable(node.getNodeName(), tool, "C:\\EXAM\\EXAM.exe", 1000);
+
+        node.getDescriptorByType(ExamTool.DescriptorImpl.class).save();
+
+        assertNull(ToolResolutionCache.getExecutable(node.getNodeName(), tool));
+        assertNotSame(translated, ToolResolutionCache.forNode(tool, node, TaskListener.NULL));
+    }
+}
@@ -2,6 +2,8 @@ package jenkins.plugins.exam.config;
 
 import hudson.util.FormValidation;
 import jenkins.internal.DbFactory;
+import jenkins.internal.PollingScheduler;
+import jenkins.internal.enumeration.LogOverflowPolicy;
 import jenkins.task.Exam;
 import org.junit.After;
 import org.junit.Before;
@@ -58,6 +60,61 @@ public class ExamPluginConfigTest {
         assertEquals(testPort, setPort);
     }
 
+    @Test
+    public void portRangeEnd() {
+        testObject.setPort(8085);
+        assertEquals(8085, testObject.getPortRangeEnd());
+        testObject.setPortRangeEnd(8090);
+        assertEquals(8090, testObject.getPortRangeEnd());
+        testObject.setPortRangeEnd(8000);
+        assertEquals(8085, testObject.getPortRangeEnd());
+    }
+
+    @Test
+    public void queueTimeout() {
+        assertEquals(ExamPluginConfig.DEFAULT_QUEUE_TIMEOUT, testObject.getQueueTimeout());
+        testObject.setQueueTimeout(10);
+        assertEquals(10, testObject.getQueueTimeout());
+    }
+
+    @Test
+    public void logBuffer() {
+        assertEquals(ExamPluginConfig.DEFAULT_LOG_BUFFER_SIZE, testObject.getLogBufferSize());
+        assertEquals(LogOverflowPolicy.SPILL, testObject.getLogOverflowPolicy());
+        testObject.setLogBufferSize(64);
+        testObject.setLogOverflowPolicy(LogOverflowPolicy.BLOCK);
+        assertEquals(64, testObject.getLogBufferSize());
+        assertEquals(LogOverflowPolicy.BLOCK, testObject.getLogOverflowPolicy());
+    }
+
+    @Test
+    public void statusPolling() {
+        assertEquals(PollingScheduler.DEFAULT_FAST_INTERVAL, testObject.getStatusPollFastInterval());
+        assertEquals(PollingScheduler.DEFAULT_SLOW_INTERVAL, testObject.getStatusPollSlowInterval());
+        assertEquals(PollingScheduler.DEFAULT_DETECT_TIMEOUT, testObject.getTestrunDetectTimeout());
+
+        testObject.setStatusPollFastInterval(2);
+        testObject.setStatusPollSlowInterval(120);
+        testObject.setTestrunDetectTimeout(300);
+        assertEquals(2, testObject.getStatusPollFastInterval());
+        assertEquals(120, testObject.getStatusPollSlowInterval());
+        assertEquals(300, testObject.getTestrunDetectTimeout());
+    }
+
+    @Test
+    public void daemonMode() {
+        assertFalse(testObject.isDaemonMode());
+        assertEquals(ExamPluginConfig.DEFAULT_DAEMON_MAX_IDLE_TIME, testObject.getDaemonMaxIdleTime());
+        assertEquals(ExamPluginConfig.DEFAULT_DAEMON_MAX_RUNS, testObject.getDaemonMaxRuns());
+
+        testObject.setDaemonMode(true);
+        testObject.setDaemonMaxIdleTime(5);
+        testObject.setDaemonMaxRuns(3);
+        assertTrue(testObject.isDaemonMode());
+        assertEquals(5, testObject.getDaemonMaxIdleTime());
+        assertEquals(3, testObject.getDaemonMaxRuns());
+    }
+
     @Test
     public void getModelConfigs() {
         ExamModelConfig testConfig1 = new ExamModelConfig("exam");
@@ -137,16 +194,22 @@ public class ExamPluginConfigTest {
         BDDMockito.given(DbFactory.testModelConnection(anyString(), anyString(), anyInt())).willReturn("OK");
 
         // first mock result will be ok
+        ModelConnectionCheck.get().clear();
         FormValidation okResult = testObject.doVerifyModelConnections();
         assertEquals("connections OK<br>", okResult.getMessage());
 
-        // mock it again and return different value
+        // cached result
         BDDMockito.given(DbFactory.testModelConnection(anyString(), anyString(), anyInt())).willReturn("Wrong WebService!");
+        assertEquals("connections OK<br>", testObject.doVerifyModelConnections().getMessage());
+
+        // mock it again and return different value
+        ModelConnectionCheck.get().clear();
         FormValidation expectedErrorResult = testObject.doVerifyModelConnections();
 
         assertTrue(expectedErrorResult.getMessage().contains("Wrong WebService!"));
 
         // mock it again and return different value
+        ModelConnectionCheck.get().clear();
         BDDMockito.given(DbFactory.testModelConnection(anyString(), anyString(), anyInt())).willReturn("ok");
         FormValidation expetctError = testObject.doVerifyModelConnections();
 
@@ -0,0 +1,103 @@
+package jenkins.plugins.exam.config;
+
+import com.sun.jersey.api.client.ClientHandlerException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ModelConnectionCheckTest {
+
+    private static ExamModelConfig model(String modelName, String targetEndpoint) {
+        ExamModelConfig config = new ExamModelConfig(modelName);
+        config.setTargetEndpoint(targetEndpoint);
+        config.setExamVersion(44);
+        return config;
+    }
+
+    @Test
+    public void cachedResults() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ModelConnectionCheck testObject = new ModelConnectionCheck((modelName, targetEndpoint, examVersion) -> {
+            calls.incrementAndGet();
+            return "a".equals(modelName) ? "OK" : "Model does not exists";
+        }, TimeUnit.MINUTES.toMillis(1));
+        List<ExamModelConfig> configs = Arrays.asList(model("a", "http://one"), model("b", "http://one"),
+                model("a", "http://two"));
+
+        assertEquals(Arrays.asList("OK", "Model does not exists", "OK"), testObject.check(configs, 5000));
+        assertEquals(3, calls.get());
+
+        assertEquals(Arrays.asList("OK", "Model does not exists", "OK"), testObject.check(configs, 5000));
+        assertEquals(3, calls.get());
+
+        testObject.clear();
+        testObject.check(configs, 5000);
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    public void unreachableEndpoint() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ModelConnectionCheck testObject = new ModelConnectionCheck((modelName, targetEndpoint, examVersion) -> {
+            calls.incrementAndGet();
+            throw new ClientHandlerException("connect timed out");
+        }, TimeUnit.MINUTES.toMillis(1));
+
+        List<String> messages = testObject.check(Arrays.asList(model("a", "http://down"), model("b", "http://down")),
+                5000);
+
+        assertEquals(Arrays.asList("connect timed out", "connect timed out"), messages);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void slowEndpoint() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ModelConnectionCheck testObject = new ModelConnectionCheck((modelName, targetEndpoint, examVersion) -> {
+            if (targetEndpoint.equals("http://slow")) {
+                release.await();
+            }
+            return "OK";
+        }, TimeUnit.MINUTES.toMillis(1));
+        List<ExamModelConfig> configs = Arrays.asList(model("a", "http://slow"), model("a", "http://fast"));
+
+        List<String> messages = testObject.check(configs, 200);
+        assertTrue(messages.get(0).startsWith("no answer"));
+        assertEquals("OK", messages.get(1));
+
+        release.countDown();
+        assertEquals(Arrays.asList("OK", "OK"), testObject.check(configs, 5000));
+    }
+
+    @Test
+    public void joinCoveringCheckOnly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ModelConnectionCheck testObject = new ModelConnectionCheck((modelName, targetEndpoint, examVersion) -> {
+            calls.incrementAndGet();
+            if (modelName.equals("a")) {
+                release.await();
+            }
+            return "OK";
+        }, TimeUnit.MINUTES.toMillis(1));
+
+        assertTrue(testObject.check(Arrays.asList(model("a", "http://one")), 200).get(0).startsWith("no answer"));
+
+        List<String> messages = testObject.check(Arrays.asList(model("a", "http://one"), model("b", "http://one")),
+                2000);
+        assertTrue(messages.get(0).startsWith("no answer"));
+        assertEquals("OK", messages.get(1));
+        assertEquals(2, calls.get());
+
+        release.countDown();
+        assertEquals(Arrays.asList("OK", "OK"),
+                testObject.check(Arrays.asList(model("a", "http://one"), model("b", "http://one")), 5000));
+        assertEquals(2, calls.get());
+    }
+}
@@ -1,18 +1,26 @@
 package jenkins.task;
 
+import hudson.AbortException;
+import hudson.EnvVars;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Result;
+import hudson.util.StreamTaskListener;
 import jenkins.plugins.exam.ExamTool;
 import jenkins.plugins.shiningpanda.tools.PythonInstallation;
 import jenkins.task.TestUtil.Util;
 import org.junit.*;
 import org.jvnet.hudson.test.BuildWatcher;
 import org.jvnet.hudson.test.JenkinsRule;
+import org.mockito.Mockito;
 import org.powermock.reflect.Whitebox;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -266,6 +274,17 @@ public class ExamTest {
         assertEquals(modelConfig, setModelConfig);
     }
 
+    @Test
+    public void statusPollIntervals() {
+        assertEquals(0, testObject.getStatusPollFastInterval());
+        assertEquals(0, testObject.getStatusPollSlowInterval());
+
+        testObject.setStatusPollFastInterval(2);
+        testObject.setStatusPollSlowInterval(-1);
+        assertEquals(2, testObject.getStatusPollFastInterval());
+        assertEquals(0, testObject.getStatusPollSlowInterval());
+    }
+
     @Test
     public void getExamName() {
         String setExamName = testObject.getExamName();
@@ -361,6 +380,60 @@ public class ExamTest {
         assertEquals("FAILURE", buildResult.toString());
     }
 
+    @Test
+    public void getSystemConfigurationList() {
+        assertTrue(testObject.getSystemConfigurationList().isEmpty());
+
+        testObject.setSystemConfigurations("variantA\n variantB ,variantC\r\n\n" + examSysConfig);
+        assertEquals(Arrays.asList(examSysConfig, "variantA", "variantB", "variantC"),
+                testObject.getSystemConfigurationList());
+
+        testObject.setSystemConfigurations("  ");
+        assertNull(testObject.getSystemConfigurations());
+        assertTrue(testObject.getSystemConfigurationList().isEmpty());
+    }
+
+    @Test
+    public void performMatrix() throws Exception {
+        testObject.setSystemConfigurations("variantA\nvariantB\nvariantC");
+        testObject.setMatrixConcurrency(2);
+        Exam exam = Mockito.spy(testObject);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Mockito.doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(200);
+                if ("variantB".equals(invocation.getArgument(5))) {
+                    throw new AbortException("EXAM did not start");
+                }
+                return null;
+            } finally {
+                running.decrementAndGet();
+            }
+        }).when(exam).runMatrixEntry(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.anyString());
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(examTestProject);
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+        try {
+            exam.performMatrix(build, jenkinsRule.jenkins.getRootPath(), jenkinsRule.createLocalLauncher(),
+                    new StreamTaskListener(log, StandardCharsets.UTF_8), new EnvVars());
+            fail("one system configuration has failed");
+        } catch (AbortException e) {
+            assertEquals("ERROR: 1 of 4 system configurations failed", e.getMessage());
+        }
+
+        assertEquals(2, maxRunning.get());
+        Mockito.verify(exam, Mockito.times(4)).runMatrixEntry(Mockito.any(), Mockito.any(), Mockito.any(),
+                Mockito.any(), Mockito.any(), Mockito.anyString());
+        String console = log.toString("UTF-8");
+        assertTrue(console.contains("running 4 system configurations, 2 at the same time"));
+        assertTrue(console.contains("  " + examSysConfig + ": no reports"));
+        assertTrue(console.contains("  variantB: FAILED EXAM did not start"));
+        assertTrue(console.contains("  variantC: no reports"));
+    }
+
     private PythonInstallation createAndRegisterPythonInstallation(String name, String home) {
         PythonInstallation[] installations = jenkinsRule.getInstance()
                 .getDescriptorByType(PythonInstallation.DescriptorImpl.class)
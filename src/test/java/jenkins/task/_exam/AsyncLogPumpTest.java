@@ -0,0 +1,122 @@
+package jenkins.task._exam;
+
+import jenkins.internal.enumeration.LogOverflowPolicy;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class AsyncLogPumpTest {
+
+    /**
+     * Console which blocks until it is opened.
+     */
+    private static class SlowConsole extends OutputStream {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        final CountDownLatch open = new CountDownLatch(1);
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                open.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            synchronized (written) {
+                written.write(b, off, len);
+            }
+        }
+    }
+
+    private static String lines(int count, String prefix) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(prefix).append(" line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AsyncLogPump testObject = new AsyncLogPump(out, 16, LogOverflowPolicy.BLOCK);
+        String text = lines(100, "INFO") + "last line without newline";
+        testObject.write(text.getBytes());
+        testObject.close();
+
+        assertEquals(text, out.toString());
+        assertEquals(0, testObject.getDroppedLines());
+        assertEquals(0, testObject.getSpilledBytes());
+    }
+
+    @Test
+    public void spill() throws IOException {
+        SlowConsole out = new SlowConsole();
+        AsyncLogPump testObject = new AsyncLogPump(out, 64, LogOverflowPolicy.SPILL);
+        String text = lines(100, "INFO");
+        testObject.write(text.getBytes());
+        assertTrue(testObject.getSpilledBytes() > 0);
+
+        out.open.countDown();
+        testObject.close();
+        assertEquals(text, out.written.toString());
+    }
+
+    @Test
+    public void dropDebug() throws IOException {
+        SlowConsole out = new SlowConsole();
+        AsyncLogPump testObject = new AsyncLogPump(out, 64, LogOverflowPolicy.DROP_DEBUG);
+        testObject.write(lines(100, "DEBUG").getBytes());
+        assertTrue(testObject.getDroppedLines() > 0);
+
+        out.open.countDown();
+        testObject.write("INFO done\n".getBytes());
+        testObject.close();
+        assertTrue(out.written.toString().endsWith("INFO done\n"));
+    }
+
+    @Test
+    public void awaitEmpty() throws Exception {
+        SlowConsole out = new SlowConsole();
+        AsyncLogPump testObject = new AsyncLogPump(out, 1024, LogOverflowPolicy.BLOCK);
+        testObject.write("INFO one\nINFO two\n".getBytes());
+        assertFalse(testObject.awaitEmpty(100));
+
+        out.open.countDown();
+        assertTrue(testObject.awaitEmpty(5000));
+        synchronized (out.written) {
+            assertEquals("INFO one\nINFO two\n", out.written.toString());
+        }
+        testObject.close();
+    }
+
+    @Test
+    public void close_keepsConsoleOpen() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                fail("console closed");
+            }
+        };
+        AsyncLogPump testObject = new AsyncLogPump(out, 16, LogOverflowPolicy.SPILL);
+        testObject.close();
+        testObject.close();
+    }
+
+    @Test
+    public void isDebugLine() {
+        assertTrue(AsyncLogPump.isDebugLine("12:00:00 DEBUG message".getBytes(), 22));
+        assertTrue(AsyncLogPump.isDebugLine("12:00:00 INTERNAL message".getBytes(), 25));
+        assertFalse(AsyncLogPump.isDebugLine("12:00:00 INFO message".getBytes(), 21));
+        assertFalse(AsyncLogPump.isDebugLine("12:00:00 DEBUG message".getBytes(), 12));
+    }
+}
@@ -0,0 +1,130 @@
+package jenkins.task._exam;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.profile.GCProfiler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and allocation of the console annotation of the EXAM output.
+ * <p>
+ * One operation writes one line. The {@code bytes} counter gives the throughput in bytes/s, the
+ * {@code gc.alloc.rate.norm} of the GC profiler the allocation per line. {@code decodingAnnotator} is the old
+ * behaviour of {@link ExamConsoleAnnotator} (decode every line to a String, encode the prefix on every line).
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=jenkins.task._exam.ExamConsoleAnnotatorBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ExamConsoleAnnotatorBenchmark {
+
+    private static final int LINE_COUNT = 1024;
+
+    private byte[][] lines;
+    private int next;
+    private ExamConsoleAnnotator annotator;
+    private DecodingAnnotator decodingAnnotator;
+
+    /**
+     * Counts the written bytes, reported per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        lines = new byte[LINE_COUNT][];
+        for (int i = 0; i < LINE_COUNT; i++) {
+            String line = i % 10 == 0 ? "\r\n" : "[DEBUG] 12:00:00.000 TestCase_" + i
+                    + " step " + (i % 7) + ": set signal Ubatt = 13.5 V, wait 100 ms\r\n";
+            lines[i] = line.getBytes(StandardCharsets.UTF_8);
+        }
+        OutputStream nullStream = new OutputStream() {
+            @Override
+            public void write(int b) {
+                // discard
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                // discard
+            }
+        };
+        annotator = new ExamConsoleAnnotator(nullStream, StandardCharsets.UTF_8);
+        decodingAnnotator = new DecodingAnnotator(nullStream, StandardCharsets.UTF_8);
+    }
+
+    private byte[] nextLine() {
+        byte[] line = lines[next];
+        next = (next + 1) % LINE_COUNT;
+        return line;
+    }
+
+    @Benchmark
+    public void byteAnnotator(Counters counters) throws IOException {
+        byte[] line = nextLine();
+        annotator.eol(line, line.length);
+        counters.bytes += line.length;
+    }
+
+    @Benchmark
+    public void decodingAnnotator(Counters counters) throws IOException {
+        byte[] line = nextLine();
+        decodingAnnotator.eol(line, line.length);
+        counters.bytes += line.length;
+    }
+
+    /**
+     * The annotator before it worked on bytes.
+     */
+    private static class DecodingAnnotator {
+        private final OutputStream out;
+        private final Charset charset;
+        private boolean seenEmptyLine;
+
+        DecodingAnnotator(OutputStream out, Charset charset) {
+            this.out = out;
+            this.charset = charset;
+        }
+
+        void eol(byte[] b, int len) throws IOException {
+            String line = charset.decode(ByteBuffer.wrap(b, 0, len)).toString();
+            int end = line.length();
+            while (end > 0 && (line.charAt(end - 1) == '\r' || line.charAt(end - 1) == '\n')) {
+                end--;
+            }
+            line = line.substring(0, end);
+            seenEmptyLine = line.length() == 0;
+            out.write("EXAM: ".getBytes());
+            out.write(b, 0, len);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(ExamConsoleAnnotatorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build();
+        new Runner(opt).run();
+    }
+}
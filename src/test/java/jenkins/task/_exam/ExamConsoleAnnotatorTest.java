@@ -67,6 +67,24 @@ public class ExamConsoleAnnotatorTest {
         Mockito.verify(writeMock).write(testString.getBytes(), 0, testString.length());
     }
 
+    @Test
+    public void eol_emptyLine() throws IOException {
+        OutputStream writeMock = Mockito.mock(OutputStream.class);
+        ExamConsoleAnnotator obj = new ExamConsoleAnnotator(writeMock, Charset.defaultCharset());
+        obj.eol("\r\n".getBytes(), 2);
+        assertTrue((Boolean) Whitebox.getInternalState(obj, "seenEmptyLine"));
+        obj.eol("a\r\n".getBytes(), 3);
+        assertFalse((Boolean) Whitebox.getInternalState(obj, "seenEmptyLine"));
+    }
+
+    @Test
+    public void isEmptyLine() {
+        assertTrue(ExamConsoleAnnotator.isEmptyLine(new byte[0], 0));
+        assertTrue(ExamConsoleAnnotator.isEmptyLine("\n".getBytes(), 1));
+        assertTrue(ExamConsoleAnnotator.isEmptyLine("\r\nxyz".getBytes(), 2));
+        assertFalse(ExamConsoleAnnotator.isEmptyLine(" \n".getBytes(), 2));
+    }
+
     @Test
     public void close() throws IOException {
         testObject.close();
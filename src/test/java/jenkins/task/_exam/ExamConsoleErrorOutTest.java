@@ -64,6 +64,35 @@ public class ExamConsoleErrorOutTest {
         Mockito.verify(writeMock,Mockito.never());
     }
 
+    @Test
+    public void getTail() throws IOException {
+        assertEquals(0, testObject.getTail().length);
+        testObject.write("line 1\nline 2\n".getBytes());
+        assertEquals("line 1\nline 2\n", new String(testObject.getTail()));
+        assertEquals(14, testObject.getWritten());
+    }
+
+    @Test
+    public void getTail_overflow() throws IOException {
+        ExamConsoleErrorOut obj = new ExamConsoleErrorOut(null, Charset.defaultCharset(), 10);
+        obj.write("0123456\nabcdef\n".getBytes());
+        assertEquals("56\nabcdef\n", new String(obj.getTail()));
+
+        obj.write("this line is longer than the buffer\n".getBytes());
+        assertEquals("he buffer\n", new String(obj.getTail()));
+    }
+
+    @Test
+    public void reset() throws IOException {
+        testObject.write("line 1\n".getBytes());
+        testObject.reset();
+        assertEquals(0, testObject.getTail().length);
+        assertEquals(0, testObject.getWritten());
+
+        testObject.write("line 2\n".getBytes());
+        assertEquals("line 2\n", new String(testObject.getTail()));
+    }
+
     @Test
     public void close() throws IOException {
         testObject.close();
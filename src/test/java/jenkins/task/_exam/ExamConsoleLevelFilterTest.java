@@ -0,0 +1,76 @@
+package jenkins.task._exam;
+
+import jenkins.internal.enumeration.RestAPILogLevelEnum;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ExamConsoleLevelFilterTest {
+
+    private static RestAPILogLevelEnum detect(String line) {
+        byte[] b = line.getBytes();
+        return ExamConsoleLevelFilter.detectLevel(b, b.length);
+    }
+
+    @Test
+    public void detectLevel() {
+        assertEquals(RestAPILogLevelEnum.INFO, detect("12:00:00,123 INFO  [main] testcase started\n"));
+        assertEquals(RestAPILogLevelEnum.DEBUG, detect("[DEBUG] value=5\n"));
+        assertEquals(RestAPILogLevelEnum.ERROR, detect("ERROR: connection lost\n"));
+        assertEquals(RestAPILogLevelEnum.WARNING, detect("12:00:00 WARNING"));
+        assertEquals(RestAPILogLevelEnum.INTERNAL, detect("12:00:00 INTERNAL call()\n"));
+        assertNull(detect("\tat jenkins.task.Exam.perform(Exam.java:10)\n"));
+        assertNull(detect("INFORMATION without level\n"));
+        assertNull(detect("XDEBUG\n"));
+        assertNull(detect(""));
+    }
+
+    @Test
+    public void write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExamConsoleLevelFilter testObject = new ExamConsoleLevelFilter(out, RestAPILogLevelEnum.INFO);
+        testObject.write(("plain line\n"
+                + "INFO started\n"
+                + "DEBUG details\n"
+                + "  continued details\n"
+                + "ERROR failed\n"
+                + "\tat stack\n"
+                + "INTERNAL last").getBytes());
+        testObject.close();
+
+        assertEquals("plain line\nINFO started\nERROR failed\n\tat stack\n", out.toString());
+        assertEquals(3, testObject.getDroppedLines());
+    }
+
+    @Test
+    public void keepTestcaseLines() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExamConsoleLevelFilter testObject = new ExamConsoleLevelFilter(out, RestAPILogLevelEnum.WARNING,
+                ExamEventStreamTest.PATTERNS);
+        testObject.write(("12:00:00 INFO  Testcase started: Suite.test_a\n"
+                + "12:00:00 DEBUG details\n"
+                + "12:00:01 INFO  Verdict: PASSED\n"
+                + "12:00:01 INFO  Testcase finished: Suite.test_a - PASSED\n"
+                + "12:00:01 INFO  next\n").getBytes());
+        testObject.close();
+
+        assertEquals("12:00:00 INFO  Testcase started: Suite.test_a\n"
+                + "12:00:01 INFO  Verdict: PASSED\n"
+                + "12:00:01 INFO  Testcase finished: Suite.test_a - PASSED\n", out.toString());
+        assertEquals(2, testObject.getDroppedLines());
+    }
+
+    @Test
+    public void dropTestcaseLinesWithoutPatterns() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExamConsoleLevelFilter testObject = new ExamConsoleLevelFilter(out, RestAPILogLevelEnum.WARNING);
+        testObject.write("12:00:00 INFO  Testcase started: Suite.test_a\n".getBytes());
+        testObject.close();
+
+        assertEquals("", out.toString());
+        assertEquals(1, testObject.getDroppedLines());
+    }
+}
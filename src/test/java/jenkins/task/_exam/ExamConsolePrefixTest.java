@@ -0,0 +1,24 @@
+package jenkins.task._exam;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ExamConsolePrefixTest {
+
+    @Test
+    public void write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExamConsolePrefix testObject = new ExamConsolePrefix(out, "[variantA] ", StandardCharsets.UTF_8);
+        testObject.write("first\n\nsecond line\nlast".getBytes(StandardCharsets.UTF_8));
+        assertEquals("[variantA] first\n[variantA] \n[variantA] second line\n", out.toString("UTF-8"));
+
+        testObject.forceEol();
+        assertEquals("[variantA] first\n[variantA] \n[variantA] second line\n[variantA] last",
+                out.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,127 @@
+package jenkins.task._exam;
+
+import jenkins.plugins.exam.config.ExamPluginConfig;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import testData.ServerDispatcher;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ExamDaemonPoolTest {
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    private MockWebServer server;
+    private ExamPluginConfig config;
+    private ExamDaemonPool testObject;
+
+    @Before
+    public void setUp() throws Exception {
+        ServerDispatcher dispatcher = new ServerDispatcher();
+        dispatcher.setResponse("/examRest/testrun/status", new MockResponse().setResponseCode(200)
+                .addHeader("Content-Type", "application/json; charset=utf-8")
+                .setBody("{\"jobName\":\"myTestJob\",\"jobRunning\":\"false\",\"testRunState\":-1}"));
+        server = new MockWebServer();
+        server.setDispatcher(dispatcher);
+        server.start(8085);
+        config = ExamPluginConfig.configuration();
+        config.setDaemonMode(true);
+        config.setDaemonMaxRuns(2);
+        testObject = new ExamDaemonPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void leaseAndRelease() {
+        ExamDaemon daemon = new ExamDaemon("node", "key", "localhost", 8085, null);
+        testObject.register(daemon);
+        assertTrue(daemon.isLeased());
+        assertNull(testObject.lease("node", "key"));
+
+        testObject.release(daemon, true);
+        assertFalse(daemon.isLeased());
+        assertEquals(1, daemon.getRuns());
+        assertNull(testObject.lease("otherNode", "key"));
+        assertNull(testObject.lease("node", "otherKey"));
+        assertSame(daemon, testObject.lease("node", "key"));
+    }
+
+    @Test
+    public void release_maxRuns() throws Exception {
+        ExamDaemon daemon = new ExamDaemon("node", "key", "localhost", 8085, null);
+        testObject.register(daemon);
+        testObject.release(daemon, true);
+        assertSame(daemon, testObject.lease("node", "key"));
+
+        server.shutdown();
+        testObject.release(daemon, true);
+        assertTrue(testObject.getDaemons().isEmpty());
+        assertEquals(0, ExamPortLeaseManager.get().getLeaseCount("node"));
+    }
+
+    @Test
+    public void lease_unhealthy() throws Exception {
+        ExamDaemon daemon = new ExamDaemon("node", "key", "localhost", 8085, null);
+        testObject.register(daemon);
+        testObject.release(daemon, true);
+
+        server.shutdown();
+        assertNull(testObject.lease("node", "key"));
+        assertTrue(testObject.getDaemons().isEmpty());
+    }
+
+    @Test
+    public void evictIdle() throws Exception {
+        ExamDaemon idle = new ExamDaemon("node", "key", "localhost", 8085, null);
+        testObject.register(idle);
+        testObject.release(idle, true);
+        ExamDaemon busy = new ExamDaemon("node", "otherKey", "localhost", 8086, null);
+        testObject.register(busy);
+
+        server.shutdown();
+        assertFalse(testObject.evictIdle("otherNode"));
+        assertTrue(testObject.evictIdle("node"));
+        assertEquals(1, testObject.getDaemons().size());
+        assertSame(busy, testObject.getDaemons().get(0));
+        assertFalse(testObject.evictIdle("node"));
+    }
+
+    @Test
+    public void reap_daemonModeOff() throws Exception {
+        ExamDaemon daemon = new ExamDaemon("node", "key", "localhost", 8085, null);
+        testObject.register(daemon);
+        testObject.release(daemon, true);
+        testObject.reap();
+        assertEquals(1, testObject.getDaemons().size());
+
+        config.setDaemonMode(false);
+        server.shutdown();
+        testObject.reap();
+        assertTrue(testObject.getDaemons().isEmpty());
+    }
+
+    @Test
+    public void daemonOutput() throws Exception {
+        ExamDaemon daemon = new ExamDaemon("node", "key", "localhost", 8085, null);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        daemon.getOut().write("lost".getBytes());
+        daemon.getOut().setTarget(target);
+        daemon.getOut().write("build".getBytes());
+        testObject.register(daemon);
+        testObject.release(daemon, true);
+        daemon.getOut().write("idle".getBytes());
+        assertEquals("build", target.toString());
+    }
+}
@@ -0,0 +1,157 @@
+package jenkins.task._exam;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExamEventStreamTest {
+
+    /** patterns of the sample output in ExamEventStreamTest/console.log */
+    static final ExamEventPatterns PATTERNS = new ExamEventPatterns("Testcase started: (?<name>.+)",
+            "Testcase finished: (?<name>.+?)(?: - (?<verdict>PASSED|FAILED|ERROR|SKIPPED))?$",
+            "Verdict: (?<verdict>\\w+)$");
+
+    private ExamTestIndex index;
+    private ExamEventStream testObject;
+
+    @Before
+    public void setUp() {
+        index = new ExamTestIndex();
+        testObject = new ExamEventStream(new ByteArrayOutputStream(), index, null, PATTERNS);
+    }
+
+    private void parse(String line, long time) {
+        byte[] b = line.getBytes();
+        testObject.parse(b, b.length, time);
+    }
+
+    @Test
+    public void parse() {
+        parse("12:00:00 INFO Testcase started: TC_1\n", 1000);
+        assertEquals("TC_1", index.getCurrentTest());
+        assertEquals(1000, index.getCurrentTestStart());
+
+        parse("12:00:01 INFO Verdict: FAILED\r\n", 1500);
+        parse("12:00:02 INFO Testcase finished: TC_1\n", 2000);
+        assertNull(index.getCurrentTest());
+
+        parse("12:00:03 INFO Testcase started: TC 2 - part\n", 3000);
+        parse("12:00:04 INFO Testcase finished: TC 2 - part - PASSED\n", 3500);
+
+        parse("12:00:05 INFO Testcase started: TC_3\n", 4000);
+        parse("12:00:06 INFO Testcase finished: TC_3\n", 4100);
+
+        List<ExamTestIndex.TestResult> results = index.getResults();
+        assertEquals(3, results.size());
+        assertEquals("TC_1", results.get(0).getName());
+        assertEquals(ExamTestIndex.Verdict.FAILED, results.get(0).getVerdict());
+        assertEquals(1000, results.get(0).getDuration());
+        assertEquals("TC 2 - part", results.get(1).getName());
+        assertEquals(ExamTestIndex.Verdict.PASSED, results.get(1).getVerdict());
+        assertEquals(ExamTestIndex.Verdict.ERROR, results.get(2).getVerdict());
+        assertEquals(1, index.getCount(ExamTestIndex.Verdict.PASSED));
+        assertEquals(1, index.getCount(ExamTestIndex.Verdict.FAILED));
+        assertEquals(3, index.getFinished());
+    }
+
+    @Test
+    public void parse_otherLines() {
+        parse("12:00:00 INFO the Verdict: is not a verdict\n", 1000);
+        parse("Testcase started:\n", 1000);
+        parse("\n", 1000);
+        assertEquals(0, index.getFinished());
+    }
+
+    @Test
+    public void write() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExamEventStream stream = new ExamEventStream(out, index, null, PATTERNS);
+        String text = "Testcase started: TC_1\nVerdict: PASSED\nTestcase finished: TC_1";
+        stream.write(text.getBytes());
+        stream.close();
+        assertEquals(text, out.toString());
+        assertEquals(1, index.getCount(ExamTestIndex.Verdict.PASSED));
+    }
+
+    @Test
+    public void consoleLog() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExamEventStream stream = new ExamEventStream(out, index, null, PATTERNS);
+        try (InputStream in = getClass().getResourceAsStream("ExamEventStreamTest/console.log")) {
+            IOUtils.copy(in, stream);
+        }
+        stream.close();
+
+        List<ExamTestIndex.TestResult> results = index.getResults();
+        assertEquals(4, results.size());
+        assertEquals("TC_Door_Open", results.get(0).getName());
+        assertEquals(ExamTestIndex.Verdict.PASSED, results.get(0).getVerdict());
+        assertEquals("TC_Window - closing", results.get(1).getName());
+        assertEquals(ExamTestIndex.Verdict.FAILED, results.get(1).getVerdict());
+        assertEquals("TC_Mirror_Fold", results.get(2).getName());
+        assertEquals(ExamTestIndex.Verdict.ERROR, results.get(2).getVerdict());
+        assertEquals(ExamTestIndex.Verdict.SKIPPED, results.get(3).getVerdict());
+        assertNull(index.getCurrentTest());
+    }
+
+    @Test
+    public void noPatterns() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExamEventStream stream = new ExamEventStream(out, index, null, new ExamEventPatterns(" ", null, ""));
+        String text = "Testcase started: TC_1\nVerdict: PASSED\nTestcase finished: TC_1\n";
+        stream.write(text.getBytes());
+        stream.close();
+
+        assertEquals(text, out.toString());
+        assertEquals(0, index.getFinished());
+        assertNull(index.getCurrentTest());
+    }
+
+    @Test
+    public void otherFormat() {
+        ExamEventStream stream = new ExamEventStream(new ByteArrayOutputStream(), index, null,
+                new ExamEventPatterns("\\[TC\\] begin (?<name>\\S+)",
+                        "\\[TC\\] end (?<name>\\S+) result=(?<verdict>\\w+)", null));
+        byte[] started = "[TC] begin Suite.test_a\n".getBytes();
+        stream.parse(started, started.length, 1000);
+        byte[] finished = "[TC] end Suite.test_a result=failed\n".getBytes();
+        stream.parse(finished, finished.length, 1200);
+
+        assertEquals("Suite.test_a", index.getResults().get(0).getName());
+        assertEquals(ExamTestIndex.Verdict.FAILED, index.getResults().get(0).getVerdict());
+        assertEquals(1, index.getCount(ExamTestIndex.Verdict.FAILED));
+    }
+
+    @Test
+    public void invalidPatterns() {
+        assertNull(ExamEventPatterns.check("Testcase started: (?<name>.+)", ExamEventPatterns.NAME_GROUP));
+        assertNull(ExamEventPatterns.check("", ExamEventPatterns.NAME_GROUP));
+        assertNotNull(ExamEventPatterns.check("Testcase started: (.+)", ExamEventPatterns.NAME_GROUP));
+        assertNotNull(ExamEventPatterns.check("Verdict: (?<verdict>", ExamEventPatterns.VERDICT_GROUP));
+    }
+
+    @Test
+    public void interleavedSessions() throws IOException {
+        ExamTestIndex otherIndex = new ExamTestIndex();
+        ExamEventStream other = new ExamEventStream(new ByteArrayOutputStream(), otherIndex, null, PATTERNS);
+        parse("12:00:00 INFO Testcase started: TC_1\n", 1000);
+        byte[] started = "12:00:00 INFO Testcase started: TC_A\n".getBytes();
+        other.parse(started, started.length, 1100);
+        parse("12:00:01 INFO Testcase finished: TC_1 - PASSED\n", 2000);
+        assertEquals("TC_A", otherIndex.getCurrentTest());
+        byte[] finished = "12:00:02 INFO Testcase finished: TC_A - FAILED\n".getBytes();
+        other.parse(finished, finished.length, 3100);
+
+        assertEquals(1000, index.getResults().get(0).getDuration());
+        assertEquals(2000, otherIndex.getResults().get(0).getDuration());
+        assertEquals(0, index.getCount(ExamTestIndex.Verdict.FAILED));
+        assertEquals(1, otherIndex.getCount(ExamTestIndex.Verdict.FAILED));
+    }
+}
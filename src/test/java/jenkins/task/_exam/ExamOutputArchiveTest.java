@@ -0,0 +1,141 @@
+package jenkins.task._exam;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+import jenkins.internal.enumeration.LogOverflowPolicy;
+import jenkins.internal.enumeration.RestAPILogLevelEnum;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+
+public class ExamOutputArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void launch() throws Exception {
+        assumeFalse(Functions.isWindows());
+        FilePath dir = new FilePath(folder.getRoot());
+        FilePath logFile = dir.child("target").child("exam-output-8085" + ExamOutputArchive.EXTENSION);
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ArgumentListBuilder args = new ArgumentListBuilder("sh", "-c",
+                "echo 'INFO started'; echo 'WARNING slow'; echo 'DEBUG details'; echo 'ERROR failed'; "
+                        + "echo 'INFO Testcase finished: test_a - FAILED'");
+
+        Proc proc = ExamOutputArchive.launch(new Launcher.LocalLauncher(TaskListener.NULL), args, new EnvVars(),
+                dir, logFile, console, ExamEventStreamTest.PATTERNS, RestAPILogLevelEnum.WARNING,
+                AsyncLogPump.DEFAULT_CAPACITY, LogOverflowPolicy.BLOCK);
+        assertEquals(0, proc.join());
+
+        // the test case lines are kept for the fail fast threshold
+        assertEquals("WARNING slow\nERROR failed\nINFO Testcase finished: test_a - FAILED\n", console.toString());
+        try (InputStream in = new GZIPInputStream(logFile.read())) {
+            assertEquals("INFO started\nWARNING slow\nDEBUG details\nERROR failed\n"
+                            + "INFO Testcase finished: test_a - FAILED\n",
+                    IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void launchWithoutArchive() throws Exception {
+        assumeFalse(Functions.isWindows());
+        FilePath dir = new FilePath(folder.getRoot());
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ArgumentListBuilder args = new ArgumentListBuilder("sh", "-c",
+                "echo 'INFO started'; echo 'DEBUG details'; echo 'INFO Testcase started: test_a'");
+
+        Proc proc = ExamOutputArchive.launch(new Launcher.LocalLauncher(TaskListener.NULL), args, new EnvVars(),
+                dir, null, console, null, RestAPILogLevelEnum.INFO, AsyncLogPump.DEFAULT_CAPACITY,
+                LogOverflowPolicy.BLOCK);
+        assertEquals(0, proc.join());
+
+        assertEquals("INFO started\nINFO Testcase started: test_a\n", console.toString());
+        assertTrue(dir.list().isEmpty());
+    }
+
+    @Test
+    public void launchWithDecoratedLauncher() throws Exception {
+        assumeFalse(Functions.isWindows());
+        FilePath dir = new FilePath(folder.getRoot());
+        FilePath logFile = dir.child("exam-output-8085" + ExamOutputArchive.EXTENSION);
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ArgumentListBuilder args = new ArgumentListBuilder("sh", "-c",
+                "echo \"WARNING $EXAM_DECORATED\"; echo 'DEBUG details'; echo 'ERROR failed' >&2");
+        Launcher launcher = new Launcher.LocalLauncher(TaskListener.NULL)
+                .decorateByEnv(new EnvVars("EXAM_DECORATED", "decorated"));
+        assertFalse(ExamOutputArchive.isPlain(launcher));
+
+        ExamProc proc = ExamOutputArchive.launch(launcher, args, new EnvVars(), dir, logFile, console, null,
+                RestAPILogLevelEnum.WARNING, AsyncLogPump.DEFAULT_CAPACITY, LogOverflowPolicy.BLOCK);
+        assertEquals(0, proc.join());
+
+        // the environment of the decorator is used, the output still runs through the filter and the log
+        assertEquals("WARNING decorated\n", console.toString());
+        // the error output is kept on the node until it is fetched
+        ExamOutputArchive.ErrorOutput errorOutput = proc.getErrorOutput();
+        assertEquals("ERROR failed\n", new String(errorOutput.getTail(), StandardCharsets.UTF_8));
+        assertEquals(13, errorOutput.getWritten());
+        proc.resetErrorOutput();
+        assertEquals(0, proc.getErrorOutput().getTail().length);
+        try (InputStream in = new GZIPInputStream(logFile.read())) {
+            assertEquals("WARNING decorated\nDEBUG details\n", IOUtils.toString(in, StandardCharsets.UTF_8));
+        }
+        assertTrue(ExamOutputArchive.isPlain(new Launcher.LocalLauncher(TaskListener.NULL)));
+    }
+
+    @Test
+    public void slowConsoleDoesNotStallExam() throws Exception {
+        assumeFalse(Functions.isWindows());
+        FilePath dir = new FilePath(folder.getRoot());
+        CountDownLatch open = new CountDownLatch(1);
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        OutputStream console = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    open.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                written.write(b);
+            }
+        };
+        ArgumentListBuilder args = new ArgumentListBuilder("sh", "-c",
+                "i=0; while [ $i -lt 2000 ]; do echo \"INFO line $i\"; i=$((i+1)); done");
+
+        ExamProc proc = ExamOutputArchive.launch(new Launcher.LocalLauncher(TaskListener.NULL), args,
+                new EnvVars(), dir, null, console, null, null, 1024, LogOverflowPolicy.SPILL);
+        // EXAM exits although the console does not take a single byte, its output is spilled on its node
+        assertFalse(waitForExit(proc));
+        open.countDown();
+        assertEquals(0, proc.join());
+
+        assertTrue(written.toString().endsWith("INFO line 1999\n"));
+        assertEquals(0, proc.drainOutput().getDroppedLines());
+    }
+
+    private static boolean waitForExit(ExamProc proc) throws Exception {
+        for (int i = 0; i < 100 && proc.isAlive(); i++) {
+            Thread.sleep(100);
+        }
+        return proc.isAlive();
+    }
+}
@@ -0,0 +1,60 @@
+package jenkins.task._exam;
+
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ExamPortLeaseManagerTest {
+
+    private ExamPortLeaseManager testObject;
+
+    @Before
+    public void setUp() {
+        testObject = new ExamPortLeaseManager();
+    }
+
+    @Test
+    public void leaseAndRelease() throws Exception {
+        assertEquals(8085, testObject.lease("node", null, 8085, 8086));
+        assertEquals(8086, testObject.lease("node", null, 8085, 8086));
+        assertEquals(-1, testObject.lease("node", null, 8085, 8086));
+        assertEquals(2, testObject.getLeaseCount("node"));
+        assertEquals(8085, testObject.lease("otherNode", null, 8085, 8086));
+
+        testObject.release("node", 8085);
+        assertEquals(1, testObject.getLeaseCount("node"));
+        assertEquals(8085, testObject.lease("node", null, 8085, 8086));
+    }
+
+    @Test
+    public void lease_checkedPorts() throws Exception {
+        assertEquals(8086, testObject.lease("node", null, 8085, 8087, Arrays.asList(8086, 8087)));
+        assertTrue(testObject.isLeased("node", 8086));
+        assertFalse(testObject.isLeased("node", 8085));
+        assertEquals(8087, testObject.lease("node", null, 8085, 8087, Arrays.asList(8086, 8087)));
+        assertEquals(-1, testObject.lease("node", null, 8085, 8087, Arrays.asList(8086, 8087)));
+    }
+
+    @Test
+    public void lease_portInUse() throws Exception {
+        Launcher launcher = new Launcher.LocalLauncher(TaskListener.NULL);
+        try (ServerSocket socket = new ServerSocket(0)) {
+            int usedPort = socket.getLocalPort();
+            assertEquals(usedPort + 1, testObject.lease("node", launcher, usedPort, usedPort + 1));
+            assertEquals(-1, testObject.lease("node", launcher, usedPort, usedPort));
+        }
+    }
+
+    @Test
+    public void leaseRunning() throws Exception {
+        assertTrue(testObject.leaseRunning("node", 8085));
+        assertFalse(testObject.leaseRunning("node", 8085));
+        assertEquals(8086, testObject.lease("node", null, 8085, 8086));
+    }
+}
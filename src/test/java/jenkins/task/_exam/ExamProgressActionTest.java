@@ -0,0 +1,97 @@
+package jenkins.task._exam;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import jenkins.internal.data.ExamStatus;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ExamProgressActionTest {
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    private static ExamStatus status(boolean running, Integer state) {
+        ExamStatus status = new ExamStatus();
+        status.setJobRunning(running);
+        status.setTestRunState(state);
+        return status;
+    }
+
+    @Test
+    public void encodeDecode() {
+        int[] samples = {0, 3, 2, 3, 300, 5, 100000, 0};
+        String series = ExamProgressAction.encode(samples, 4);
+        assertArrayEquals(samples, ExamProgressAction.decode(series));
+        assertEquals(0, ExamProgressAction.decode(null).length);
+        assertEquals(0, ExamProgressAction.decode("").length);
+    }
+
+    @Test
+    public void encodeState() {
+        ExamProgressAction.Sample sample = new ExamProgressAction.Sample(0,
+                ExamProgressAction.encodeState(status(true, 4)));
+        assertTrue(sample.isJobRunning());
+        assertEquals(4, sample.getTestRunState());
+
+        sample = new ExamProgressAction.Sample(0, ExamProgressAction.encodeState(new ExamStatus()));
+        assertFalse(sample.isJobRunning());
+        assertEquals(-1, sample.getTestRunState());
+    }
+
+    @Test
+    public void sample() {
+        ExamProgressAction testObject = new ExamProgressAction("id", 0, "file", System.currentTimeMillis());
+        assertNull(testObject.getCurrentState());
+        assertTrue(testObject.isRunning());
+        for (int i = 0; i < 100; i++) {
+            testObject.sample(status(true, 1));
+        }
+        testObject.sample(status(false, 2));
+        assertEquals(101, testObject.getSampleCount());
+        assertEquals(2, testObject.getCurrentState().getTestRunState());
+
+        List<ExamProgressAction.Sample> changes = testObject.getStateChanges();
+        assertEquals(2, changes.size());
+        assertTrue(changes.get(0).isJobRunning());
+        assertFalse(changes.get(1).isJobRunning());
+
+        testObject.finish();
+        assertFalse(testObject.isRunning());
+        assertEquals(100, testObject.getPercentage());
+        assertEquals(-1, testObject.getRemaining());
+        assertEquals(-1, testObject.getExpectedDuration());
+    }
+
+    @Test
+    public void sampleAfterReload() throws Exception {
+        FreeStyleProject project = jenkinsRule.createFreeStyleProject();
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(project);
+
+        // not saved yet, the samples are lost with the restart
+        ExamProgressAction.start(build, "id1", "file", System.currentTimeMillis());
+        ExamProgressAction.get(build, "id1").sample(status(true, 1));
+        build.save();
+        build.reload();
+        ExamProgressAction testObject = ExamProgressAction.get(build, "id1");
+        assertTrue(testObject.isRunning());
+        assertEquals(0, testObject.getSampleCount());
+        testObject.sample(status(true, 1));
+        assertEquals(1, testObject.getSampleCount());
+
+        // saved with the first sample after the save interval
+        long startTime = System.currentTimeMillis() - (ExamProgressAction.SAVE_INTERVAL + 10) * 1000L;
+        ExamProgressAction.start(build, "id2", "file", startTime).sample(status(true, 1));
+        build.reload();
+        testObject = ExamProgressAction.get(build, "id2");
+        assertEquals(1, testObject.getSampleCount());
+        testObject.sample(status(false, 2));
+        assertEquals(2, testObject.getSampleCount());
+        assertEquals(2, testObject.getCurrentState().getTestRunState());
+    }
+}
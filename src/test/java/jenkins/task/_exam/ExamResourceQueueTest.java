@@ -0,0 +1,106 @@
+package jenkins.task._exam;
+
+import hudson.AbortException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ExamResourceQueueTest {
+
+    private ExamResourceQueue testObject;
+    private PrintStream printMock;
+
+    @Before
+    public void setUp() {
+        testObject = new ExamResourceQueue();
+        printMock = mock(PrintStream.class);
+    }
+
+    @Test
+    public void acquire_free() throws Exception {
+        assertEquals(Integer.valueOf(8085), testObject.acquire("node", () -> 8085, 1000, printMock));
+        assertEquals(0, testObject.getQueueDepth("node"));
+        assertEquals(0, testObject.getWaitCount());
+        verify(printMock, never()).println("waiting for EXAM on node, position 1 in queue");
+    }
+
+    @Test
+    public void acquire_waitForRelease() throws Exception {
+        AtomicBoolean free = new AtomicBoolean(false);
+        CompletableFuture<Integer> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return testObject.acquire("node", () -> free.get() ? 8085 : null, 10000, printMock);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (testObject.getQueueDepth() == 0) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, testObject.getQueueDepth("node"));
+        assertEquals(1, testObject.getQueueDepths().get("node").intValue());
+
+        free.set(true);
+        testObject.resourceReleased();
+        assertEquals(Integer.valueOf(8085), waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, testObject.getQueueDepth());
+        assertEquals(1, testObject.getWaitCount());
+        verify(printMock).println("waiting for EXAM on node, position 1 in queue");
+    }
+
+    @Test
+    public void acquire_fifo() throws Exception {
+        AtomicBoolean free = new AtomicBoolean(false);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return testObject.acquire("node", () -> free.getAndSet(false) ? 1 : null, 10000, printMock);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (testObject.getQueueDepth() == 0) {
+            Thread.sleep(10);
+        }
+        PrintStream secondPrint = mock(PrintStream.class);
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return testObject.acquire("node", () -> free.getAndSet(false) ? 2 : null, 10000, secondPrint);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (testObject.getQueueDepth() < 2) {
+            Thread.sleep(10);
+        }
+
+        free.set(true);
+        testObject.resourceReleased();
+        assertEquals(Integer.valueOf(1), first.get(5, TimeUnit.SECONDS));
+        free.set(true);
+        testObject.resourceReleased();
+        assertEquals(Integer.valueOf(2), second.get(5, TimeUnit.SECONDS));
+        verify(secondPrint).println("waiting for EXAM on node, position 2 in queue");
+        verify(secondPrint).println("waiting for EXAM on node, position 1 in queue");
+    }
+
+    @Test
+    public void acquire_timeout() throws Exception {
+        try {
+            testObject.acquire("", () -> null, 100, printMock);
+            fail("AbortException expected");
+        } catch (AbortException e) {
+            assertEquals("ERROR: no EXAM available on master after 0 min", e.getMessage());
+        }
+        assertEquals(1, testObject.getTimeouts());
+        assertEquals(0, testObject.getQueueDepth());
+    }
+}
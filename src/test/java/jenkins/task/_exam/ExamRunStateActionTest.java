@@ -0,0 +1,97 @@
+package jenkins.task._exam;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import jenkins.internal.PollingScheduler;
+import jenkins.internal.data.FilterConfiguration;
+import jenkins.internal.data.ReportConfiguration;
+import jenkins.internal.data.TestConfiguration;
+import jenkins.internal.data.TestrunFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ExamRunStateActionTest {
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    @Test
+    public void saveAndReload() throws Exception {
+        FreeStyleProject project = jenkinsRule.createFreeStyleProject();
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(project);
+
+        PollingScheduler scheduler = new PollingScheduler(2000, 20000, 3600000, 60000);
+        ExamRunStateAction.save(build, new ExamRunState("id1", "127.0.0.1", 8085, "reportProject",
+                "modelProject", "/ws/workspace_exam_restApi", 12345L, scheduler));
+        build.reload();
+
+        ExamRunStateAction action = build.getAction(ExamRunStateAction.class);
+        assertNotNull(action);
+        ExamRunState state = action.getState("id1");
+        assertNotNull(state);
+        assertEquals("http://127.0.0.1:8085/examRest", state.getBaseUrl());
+        assertEquals("reportProject", state.getReportProject());
+        assertEquals("modelProject", state.getModelProject());
+        assertEquals("/ws/workspace_exam_restApi", state.getExamWorkspace());
+        assertEquals(12345L, state.getStartTime());
+        assertEquals(20000, state.getPollingScheduler().getSlowInterval());
+        assertNull(action.getState("id2"));
+
+        ExamRunStateAction.remove(build, "id1");
+        build.reload();
+        assertTrue(build.getAction(ExamRunStateAction.class).getStates().isEmpty());
+    }
+
+    @Test
+    public void saveBatchesAndReplace() throws Exception {
+        FreeStyleProject project = jenkinsRule.createFreeStyleProject();
+        FreeStyleBuild build = jenkinsRule.buildAndAssertSuccess(project);
+
+        ReportConfiguration report = new ReportConfiguration();
+        report.setProjectName("reportProject");
+        report.setDbPassword("secret");
+        TestConfiguration tc = new TestConfiguration();
+        tc.setReportProject(report);
+        tc.setSystemConfig("system");
+        FilterConfiguration batch = new FilterConfiguration();
+        batch.addTestrunFilter(new TestrunFilter("name", "^(?:test_a)$", false, true));
+
+        ExamRunState state = new ExamRunState("id1", "127.0.0.1", 8085, "reportProject", "modelProject",
+                "/ws/workspace_exam_restApi", 12345L, new PollingScheduler());
+        state.setNodeName("node");
+        state.setReportIncludes("**/*.xml");
+        state.setPendingBatches(Collections.singletonList(batch));
+        state.setFailFastThreshold(5);
+        state.setTestConfiguration(tc);
+        ExamRunStateAction.save(build, state);
+        ExamRunStateAction.save(build, new ExamRunState("id1", "127.0.0.1", 8085, "reportProject",
+                "modelProject", "/ws/workspace_exam_restApi", 23456L, new PollingScheduler()));
+        assertEquals(1, build.getAction(ExamRunStateAction.class).getStates().size());
+        assertEquals(23456L, build.getAction(ExamRunStateAction.class).getState("id1").getStartTime());
+
+        ExamRunStateAction.save(build, state);
+        build.reload();
+
+        ExamRunState reloaded = build.getAction(ExamRunStateAction.class).getState("id1");
+        assertEquals(12345L, reloaded.getStartTime());
+        assertEquals("node", reloaded.getNodeName());
+        assertEquals("**/*.xml", reloaded.getReportIncludes());
+        assertNull(reloaded.getReportExcludes());
+        assertEquals(5, reloaded.getFailFastThreshold());
+        assertEquals(1, reloaded.getPendingBatches().size());
+        assertEquals("^(?:test_a)$", reloaded.getPendingBatches().get(0).getTestrunFilter().get(0).getValue());
+        assertEquals("system", reloaded.getTestConfiguration().getSystemConfig());
+        assertEquals("secret", reloaded.getTestConfiguration().getReportProject().getDbPassword());
+        // the password is saved encrypted
+        assertFalse(new String(Files.readAllBytes(new File(build.getRootDir(), "build.xml").toPath()),
+                StandardCharsets.UTF_8).contains("secret"));
+    }
+}
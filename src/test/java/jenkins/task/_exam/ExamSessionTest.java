@@ -0,0 +1,105 @@
+package jenkins.task._exam;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.model.Run;
+import hudson.util.StreamTaskListener;
+import jenkins.internal.ClientRequest;
+import jenkins.internal.data.FilterConfiguration;
+import jenkins.internal.data.ReportConfiguration;
+import jenkins.internal.data.TestConfiguration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ExamSessionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExamSession testObject;
+    private ClientRequest clientRequest;
+    private ByteArrayOutputStream log;
+    private FilterConfiguration batch1;
+    private FilterConfiguration batch2;
+    private FilterConfiguration batch3;
+
+    @Before
+    public void setUp() throws Exception {
+        File root = folder.getRoot();
+        log = new ByteArrayOutputStream();
+        testObject = new ExamSession(Mockito.mock(Run.class), new FilePath(root), null,
+                new StreamTaskListener(log, StandardCharsets.UTF_8), new EnvVars());
+        testObject.setExamWorkspace(new FilePath(new File(root, "workspace_exam_restApi_8085")));
+
+        ReportConfiguration report = new ReportConfiguration();
+        report.setProjectName("reportProject");
+        TestConfiguration tc = new TestConfiguration();
+        tc.setReportProject(report);
+        testObject.setTestConfiguration(tc);
+
+        // every converted testrun adds a report with one failed test case
+        File junit = new File(root, "workspace_exam_restApi_8085/reports/reportProject/junit");
+        AtomicInteger testruns = new AtomicInteger();
+        clientRequest = Mockito.mock(ClientRequest.class);
+        Mockito.doAnswer(invocation -> {
+            int n = testruns.incrementAndGet();
+            junit.mkdirs();
+            Files.write(new File(junit, "testrun" + n + ".xml").toPath(), ("<testsuite name=\"s" + n + "\">"
+                    + "<testcase name=\"t" + n + "\"><failure message=\"x\"/></testcase>"
+                    + "<testcase name=\"passed" + n + "\"/></testsuite>").getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(clientRequest).convert("reportProject");
+        testObject.setClientRequest(clientRequest);
+
+        batch1 = new FilterConfiguration();
+        batch2 = new FilterConfiguration();
+        batch3 = new FilterConfiguration();
+        testObject.setPendingBatches(Arrays.asList(batch1, batch2, batch3));
+    }
+
+    @Test
+    public void startNextBatch_failFast() throws Exception {
+        testObject.setFailFastThreshold(2);
+
+        // one failed test case after the first testrun
+        assertTrue(testObject.startNextBatch());
+        Mockito.verify(clientRequest).setTestrunFilter(batch1);
+        assertFalse(testObject.isFailFastReached());
+
+        // two failed test cases after the second testrun
+        assertFalse(testObject.startNextBatch());
+        assertTrue(testObject.isFailFastReached());
+        assertEquals(0, testObject.getPendingBatches());
+        assertTrue(log.toString("UTF-8").contains("fail fast: 2 testcases failed, 2 pending testruns skipped"));
+
+        assertFalse(testObject.startNextBatch());
+        Mockito.verify(clientRequest, Mockito.times(2)).convert("reportProject");
+        Mockito.verify(clientRequest, Mockito.times(1)).startTestrun(Mockito.any());
+        Mockito.verify(clientRequest, Mockito.never()).setTestrunFilter(batch2);
+    }
+
+    @Test
+    public void startNextBatch_withoutThreshold() throws Exception {
+        assertTrue(testObject.startNextBatch());
+        assertTrue(testObject.startNextBatch());
+        assertTrue(testObject.startNextBatch());
+        assertFalse(testObject.startNextBatch());
+
+        // the reports are only converted at the end of the session
+        Mockito.verify(clientRequest, Mockito.never()).convert(Mockito.anyString());
+        Mockito.verify(clientRequest, Mockito.times(3)).startTestrun(Mockito.any());
+        assertFalse(testObject.isFailFastReached());
+    }
+}
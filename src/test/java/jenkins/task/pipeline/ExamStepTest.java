@@ -0,0 +1,81 @@
+package jenkins.task.pipeline;
+
+import jenkins.task.Exam;
+import jenkins.task.TestUtil.Util;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.*;
+
+public class ExamStepTest {
+
+    @Rule
+    public JenkinsRule jenkinsRule = new JenkinsRule();
+
+    private ExamStep testObject;
+
+    @Before
+    public void setUp() {
+        testObject = new ExamStep("EXAM", "Python-2.7", "EXAM44", "examReport", "I123456",
+                "testExamSystemConfig");
+    }
+
+    @Test
+    public void constructor() {
+        assertEquals("EXAM", testObject.getExamName());
+        assertEquals("Python-2.7", testObject.getPythonName());
+        assertEquals("EXAM44", testObject.getExamModel());
+        assertEquals("examReport", testObject.getExamReport());
+        assertEquals("I123456", testObject.getExecutionFile());
+        assertEquals("testExamSystemConfig", testObject.getSystemConfiguration());
+    }
+
+    @Test
+    public void settersDelegateToExam() {
+        testObject.setReportPrefix("prefix");
+        testObject.setPdfReport(true);
+        testObject.setPdfReportTemplate("template");
+        testObject.setPdfSelectFilter("filter");
+        testObject.setPdfMeasureImages(true);
+        testObject.setLogging(true);
+        testObject.setTestrunFilter(Util.createTestrunFilter());
+        testObject.setLoglevel_test_ctrl("DEBUG");
+        testObject.setLoglevel_test_logic("ERROR");
+        testObject.setLoglevel_lib_ctrl("WARNING");
+        testObject.setClearWorkspace(true);
+        testObject.setModelConfiguration("modelConfig");
+        testObject.setStatusPollFastInterval(2);
+        testObject.setStatusPollSlowInterval(20);
+        testObject.setJavaOpts("-Xmx1g");
+
+        Exam exam = testObject.getExam();
+        assertEquals("prefix", exam.getReportPrefix());
+        assertTrue(exam.getPdfReport());
+        assertEquals("template", exam.getPdfReportTemplate());
+        assertEquals("filter", exam.getPdfSelectFilter());
+        assertTrue(exam.getPdfMeasureImages());
+        assertTrue(exam.getLogging());
+        assertEquals(4, exam.getTestrunFilter().size());
+        assertEquals("DEBUG", exam.getLoglevel_test_ctrl());
+        assertEquals("ERROR", exam.getLoglevel_test_logic());
+        assertEquals("WARNING", exam.getLoglevel_lib_ctrl());
+        assertTrue(exam.isClearWorkspace());
+        assertEquals("modelConfig", exam.getModelConfiguration());
+        assertEquals(2, exam.getStatusPollFastInterval());
+        assertEquals(20, exam.getStatusPollSlowInterval());
+        assertEquals("-Xmx1g", exam.getJavaOpts());
+    }
+
+    @Test
+    public void descriptor() {
+        ExamStep.DescriptorImpl descriptor = jenkinsRule.getInstance()
+                .getDescriptorByType(ExamStep.DescriptorImpl.class);
+        assertEquals("examTest", descriptor.getFunctionName());
+        assertEquals(5, descriptor.getRequiredContext().size());
+        assertEquals("INFO", descriptor.getDefaultLogLevel());
+        assertEquals(0, descriptor.getInstallations().length);
+        assertEquals(1, descriptor.getReportConfigs().length);
+    }
+}